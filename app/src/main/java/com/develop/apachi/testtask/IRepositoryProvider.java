@@ -1,19 +1,21 @@
 package com.develop.apachi.testtask;
 
-import android.support.annotation.Nullable;
+import android.support.annotation.NonNull;
 
 import com.develop.apachi.testtask.model.UserRepository;
 
+import io.reactivex.Single;
+
 /**
  * Provider for repository instance.
  */
 public interface IRepositoryProvider {
 
     /**
-     * Retrieves current user repository.
+     * Retrieves current user repository. It is created in background, so it is provided asynchronously.
      *
-     * @return User repository instance.
+     * @return Stream with user repository instance.
      */
-    @Nullable
-    UserRepository getCurrentRepository();
+    @NonNull
+    Single<UserRepository> getCurrentRepository();
 }
@@ -3,28 +3,97 @@ package com.develop.apachi.testtask;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.v4.os.TraceCompat;
 import android.support.v7.app.AppCompatActivity;
+import android.view.View;
+import android.widget.TextView;
 
-import com.develop.apachi.testtask.model.User;
+import com.develop.apachi.testtask.metrics.Metrics;
+import com.develop.apachi.testtask.model.UserListItem;
 import com.develop.apachi.testtask.model.UserRepository;
 import com.develop.apachi.testtask.view.PersonListFragment;
 import com.develop.apachi.testtask.view.UserDetailsFragment;
 
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
+
 /**
  * Landscape activity host for person list fragment and person details fragment.
  */
 public class MainActivity extends AppCompatActivity implements IRepositoryProvider,
         PersonListFragment.OnUserSelectedListener {
 
+    /** Refresh of metrics overlay, it runs while activity is started.*/
+    @Nullable
+    private Disposable iMetricsOverlayRefresh;
+
     /**
      * {@inheritDoc}
      */
     @Override
     protected void onCreate(Bundle aSavedInstanceState) {
+
+        TraceCompat.beginSection("MainActivity.onCreate");
+
         super.onCreate(aSavedInstanceState);
         setContentView(R.layout.activity_main);
 
         displayListFragment();
+
+        TraceCompat.endSection();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onStart() {
+        super.onStart();
+
+        if (BuildConfig.DEBUG) {
+            startMetricsOverlay();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onStop() {
+
+        if (iMetricsOverlayRefresh != null) {
+
+            iMetricsOverlayRefresh.dispose();
+            iMetricsOverlayRefresh = null;
+        }
+
+        super.onStop();
+    }
+
+    /**
+     * Shows metrics of data sources over content and refreshes them periodically.
+     */
+    private void startMetricsOverlay() {
+
+        final TextView overlay = findViewById(R.id.metrics_overlay);
+
+        if (overlay == null) {
+            return;
+        }
+
+        final Metrics metrics = ((MainApplication) getApplication()).getMetrics();
+
+        overlay.setVisibility(View.VISIBLE);
+
+        iMetricsOverlayRefresh = Flowable
+                .interval(0, getResources().getInteger(R.integer.metrics_overlay_refresh_millis), TimeUnit.MILLISECONDS)
+                .map(tick -> metrics.describe().trim())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(overlay::setText);
     }
 
     /**
@@ -41,7 +110,7 @@ public class MainActivity extends AppCompatActivity implements IRepositoryProvid
     /**
      * Displays details fragment.
      */
-    public void displayDetailsFragment(@NonNull User aUser) {
+    public void displayDetailsFragment(@NonNull UserListItem aUser) {
 
         getSupportFragmentManager()
                 .beginTransaction()
@@ -52,9 +121,9 @@ public class MainActivity extends AppCompatActivity implements IRepositoryProvid
     /**
      * {@inheritDoc}
      */
-    @Nullable
+    @NonNull
     @Override
-    public UserRepository getCurrentRepository() {
+    public Single<UserRepository> getCurrentRepository() {
         return ((MainApplication) getApplication()).getUserRepository();
     }
 
@@ -62,7 +131,7 @@ public class MainActivity extends AppCompatActivity implements IRepositoryProvid
      * {@inheritDoc}
      */
     @Override
-    public void onUserSelected(User aUser) {
+    public void onUserSelected(UserListItem aUser) {
 
         displayDetailsFragment(aUser);
     }
@@ -4,33 +4,41 @@ import android.app.Application;
 import android.arch.persistence.room.Room;
 import android.content.ContextWrapper;
 import android.support.annotation.NonNull;
-import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import android.support.v4.os.TraceCompat;
 
 import com.develop.apachi.testtask.database.UsersDatabase;
 import com.develop.apachi.testtask.database.UsersDatabaseContract;
+import com.develop.apachi.testtask.metrics.Metrics;
 import com.develop.apachi.testtask.model.UserRepository;
 import com.develop.apachi.testtask.network.IRandomUserClient;
+import com.develop.apachi.testtask.network.LatencyPolicy;
 import com.develop.apachi.testtask.network.RandomUsersClientImpl;
+import com.develop.apachi.testtask.sync.UserSyncWorker;
 
 import net.danlew.android.joda.JodaTimeAndroid;
 
+import java.io.File;
+
+import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
+
 /**
- * Main application/DI container.
+ * Main application/DI container. Dependencies are created in background in parallel
+ * with the first frame, so main thread never waits for them.
  */
 public class MainApplication extends Application {
 
-    /** Only one place where DB instance is created.
-        main thread queries are disabled. */
-    @NonNull
-    private UsersDatabase iRoomDatabase;
+    private static final String HTTP_CACHE_DIRECTORY = "http_cache";
+    private static final long HTTP_CACHE_SIZE = 20 * 1024 * 1024;
 
-    /** Client for HTTP activity*/
+    /** Metrics of data sources, shared by client and repository.*/
     @NonNull
-    private IRandomUserClient iRandomUserClient;
+    private final Metrics iMetrics = new Metrics();
 
-    /** Repository pattern for users data.*/
-    @Nullable
-    private UserRepository iUserRepository;
+    /** Repository pattern for users data, created once and shared by all subscribers.*/
+    @NonNull
+    private Single<UserRepository> iUserRepository;
 
     /**
      * {@inheritDoc}
@@ -39,29 +47,139 @@ public class MainApplication extends Application {
     public void onCreate() {
         super.onCreate();
 
-        JodaTimeAndroid.init(this);
+        TraceCompat.beginSection("MainApplication.onCreate");
+
+        iUserRepository = Single
+                .zip(Single.fromCallable(this::initJodaTime).subscribeOn(Schedulers.io()),
+                        Single.fromCallable(this::openDatabase).subscribeOn(Schedulers.io()),
+                        Single.fromCallable(this::createClient).subscribeOn(Schedulers.io()),
+                        (jodaTimeInitialized, database, client) -> createRepository(database, client))
+                .cache();
 
-        iRoomDatabase = Room
-                .databaseBuilder(new ContextWrapper(this),
-                        UsersDatabase.class,
-                        UsersDatabaseContract.DATABASE_NAME)
-                .build();
+        // Starts creation at once, fragments subscribe to the already running one.
+        // Error is cached too and delivered to them
+        iUserRepository.subscribe(repository -> { }, throwable -> { });
 
-        iRandomUserClient
-                = new RandomUsersClientImpl(BuildConfig.SERVER_URL);
+        UserSyncWorker.schedule();
 
-        iUserRepository = new UserRepository(
-                new ContextWrapper(this),
-                iRoomDatabase,
-                iRandomUserClient
-        );
+        TraceCompat.endSection();
     }
 
     /**
-     * @return User repository instance.
+     * @return Stream with user repository, it is created once in background.
      */
-    @Nullable
-    public UserRepository getUserRepository() {
+    @NonNull
+    public Single<UserRepository> getUserRepository() {
         return iUserRepository;
     }
+
+    /**
+     * @return Metrics of data sources.
+     */
+    @NonNull
+    public Metrics getMetrics() {
+        return iMetrics;
+    }
+
+    /**
+     * Initializes time zone data, it is needed before any date is parsed.
+     *
+     * @return true.
+     */
+    @WorkerThread
+    private boolean initJodaTime() {
+
+        TraceCompat.beginSection("MainApplication.initJodaTime");
+
+        try {
+
+            JodaTimeAndroid.init(this);
+            return true;
+
+        } finally {
+            TraceCompat.endSection();
+        }
+    }
+
+    /**
+     * Only one place where DB instance is created, main thread queries are disabled.
+     * Database is opened and migrated at once, so the first query does not wait for it.
+     *
+     * @return Opened database.
+     */
+    @NonNull
+    @WorkerThread
+    private UsersDatabase openDatabase() {
+
+        TraceCompat.beginSection("MainApplication.openDatabase");
+
+        try {
+
+            final UsersDatabase database = Room
+                    .databaseBuilder(new ContextWrapper(this),
+                            UsersDatabase.class,
+                            UsersDatabaseContract.DATABASE_NAME)
+                    .addMigrations(UsersDatabase.MIGRATION_1_2,
+                            UsersDatabase.MIGRATION_2_3,
+                            UsersDatabase.MIGRATION_3_4,
+                            UsersDatabase.MIGRATION_4_5,
+                            UsersDatabase.MIGRATION_5_6)
+                    .addCallback(UsersDatabase.CALLBACK)
+                    .build();
+
+            database.getOpenHelper().getWritableDatabase();
+
+            return database;
+
+        } finally {
+            TraceCompat.endSection();
+        }
+    }
+
+    /**
+     * @return Client for HTTP activity.
+     */
+    @NonNull
+    @WorkerThread
+    private IRandomUserClient createClient() {
+
+        TraceCompat.beginSection("MainApplication.createClient");
+
+        try {
+
+            return new RandomUsersClientImpl(BuildConfig.SERVER_URL,
+                    new File(getCacheDir(), HTTP_CACHE_DIRECTORY),
+                    HTTP_CACHE_SIZE,
+                    LatencyPolicy.DEFAULT,
+                    iMetrics);
+
+        } finally {
+            TraceCompat.endSection();
+        }
+    }
+
+    /**
+     * Creates repository, it reads its preferences synchronously.
+     *
+     * @param aDatabase
+     *      Opened database.
+     * @param aClient
+     *      Client for HTTP activity.
+     * @return User repository.
+     */
+    @NonNull
+    @WorkerThread
+    private UserRepository createRepository(@NonNull UsersDatabase aDatabase,
+                                            @NonNull IRandomUserClient aClient) {
+
+        TraceCompat.beginSection("MainApplication.createRepository");
+
+        try {
+
+            return new UserRepository(new ContextWrapper(this), aDatabase, aClient, iMetrics);
+
+        } finally {
+            TraceCompat.endSection();
+        }
+    }
 }
@@ -0,0 +1,202 @@
+package com.develop.apachi.testtask.adapters;
+
+import android.content.res.Resources;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.text.PrecomputedTextCompat;
+import android.support.v4.util.LruCache;
+import android.support.v4.widget.TextViewCompat;
+import android.widget.TextView;
+
+import com.develop.apachi.testtask.R;
+import com.develop.apachi.testtask.model.UserListItem;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import io.reactivex.Single;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Builds texts of user rows and measures them in background, so binding only attaches
+ * ready text layouts. Texts are cached by user id and built for text params of row views,
+ * cached texts are dropped when user's displayed data or params change.
+ *
+ * All methods are called on main thread, only text creation runs in background.
+ */
+@MainThread
+/*package*/ class UserRowTextLoader {
+
+    /** Count of rows with cached texts.*/
+    private static final int MAX_CACHED_ROWS = 100;
+
+    @NonNull
+    private final Resources iResources;
+
+    /** Cached texts by user id.*/
+    @NonNull
+    private final LruCache<Long, RowText> iRowTexts = new LruCache<>(MAX_CACHED_ROWS);
+
+    /** Ids of users with texts being built.*/
+    @NonNull
+    private final Set<Long> iPendingIds = new HashSet<>();
+
+    @NonNull
+    private final CompositeDisposable iSubscriptions = new CompositeDisposable();
+
+    /** Params of full name view, texts are not built until they are known.*/
+    @Nullable
+    private PrecomputedTextCompat.Params iFullNameParams;
+
+    /** Params of user name view.*/
+    @Nullable
+    private PrecomputedTextCompat.Params iUserNameParams;
+
+    /**
+     * @param aResources
+     *      Resources to format texts.
+     */
+    /*package*/ UserRowTextLoader(@NonNull Resources aResources) {
+
+        iResources = aResources;
+    }
+
+    /**
+     * Takes text params from views of row. Cached texts are dropped if params are changed.
+     *
+     * @param aFullNameView
+     *      Full name view.
+     * @param aUserNameView
+     *      User name view.
+     */
+    /*package*/ void setParams(@NonNull TextView aFullNameView, @NonNull TextView aUserNameView) {
+
+        final PrecomputedTextCompat.Params fullNameParams = TextViewCompat.getTextMetricsParams(aFullNameView);
+        final PrecomputedTextCompat.Params userNameParams = TextViewCompat.getTextMetricsParams(aUserNameView);
+
+        if (!fullNameParams.equals(iFullNameParams) || !userNameParams.equals(iUserNameParams)) {
+
+            iFullNameParams = fullNameParams;
+            iUserNameParams = userNameParams;
+            iRowTexts.evictAll();
+        }
+    }
+
+    /**
+     * Retrieves texts of user row.
+     *
+     * @param aUser
+     *      User.
+     * @return Texts or null if they are not built yet.
+     */
+    @Nullable
+    /*package*/ RowText get(@NonNull UserListItem aUser) {
+
+        final RowText rowText = iRowTexts.get(aUser.getId());
+
+        return rowText != null && rowText.iUser.hasSameListData(aUser) ? rowText : null;
+    }
+
+    /**
+     * Builds texts of user row in background, if they are not built yet.
+     *
+     * @param aUser
+     *      User.
+     */
+    /*package*/ void prefetch(@NonNull UserListItem aUser) {
+
+        final PrecomputedTextCompat.Params fullNameParams = iFullNameParams;
+        final PrecomputedTextCompat.Params userNameParams = iUserNameParams;
+
+        if (fullNameParams == null
+                || userNameParams == null
+                || iPendingIds.contains(aUser.getId())
+                || get(aUser) != null) {
+            return;
+        }
+
+        iPendingIds.add(aUser.getId());
+
+        iSubscriptions.add(Single
+                .fromCallable(() -> new RowText(aUser,
+                        PrecomputedTextCompat.create(createFullName(iResources, aUser), fullNameParams),
+                        PrecomputedTextCompat.create(createUserName(aUser), userNameParams)))
+                .subscribeOn(Schedulers.computation())
+                .observeOn(AndroidSchedulers.mainThread())
+                .doFinally(() -> iPendingIds.remove(aUser.getId()))
+                .subscribe(rowText -> {
+
+                    // Params could be changed while texts were being built
+                    if (fullNameParams.equals(iFullNameParams) && userNameParams.equals(iUserNameParams)) {
+                        iRowTexts.put(aUser.getId(), rowText);
+                    }
+                }, throwable -> { /* Row falls back to plain text */ }));
+    }
+
+    /**
+     * Cancels building of texts and drops cached ones.
+     */
+    /*package*/ void release() {
+
+        iSubscriptions.clear();
+        iPendingIds.clear();
+        iRowTexts.evictAll();
+    }
+
+    /**
+     * Formats full name of user.
+     *
+     * @param aResources
+     *      Resources.
+     * @param aUser
+     *      User.
+     * @return Full name.
+     */
+    @NonNull
+    /*package*/ static String createFullName(@NonNull Resources aResources, @NonNull UserListItem aUser) {
+
+        return aResources.getString(R.string.user_list_item_full_name_format,
+                aUser.getTitle(),
+                aUser.getFirstName(),
+                aUser.getLastName());
+    }
+
+    /**
+     * @param aUser
+     *      User.
+     * @return User name or empty string if there is no user name.
+     */
+    @NonNull
+    /*package*/ static String createUserName(@NonNull UserListItem aUser) {
+
+        return aUser.getUserName() == null ? "" : aUser.getUserName();
+    }
+
+    /**
+     * Measured texts of user row.
+     */
+    /*package*/ static final class RowText {
+
+        /** User texts are built for.*/
+        @NonNull
+        /*package*/ final UserListItem iUser;
+
+        @NonNull
+        /*package*/ final PrecomputedTextCompat iFullName;
+
+        @NonNull
+        /*package*/ final PrecomputedTextCompat iUserName;
+
+        /*package*/ RowText(@NonNull UserListItem aUser,
+                            @NonNull PrecomputedTextCompat aFullName,
+                            @NonNull PrecomputedTextCompat aUserName) {
+
+            iUser = aUser;
+            iFullName = aFullName;
+            iUserName = aUserName;
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package com.develop.apachi.testtask.adapters;
 
-import android.content.Context;
-import android.content.ContextWrapper;
+import android.graphics.drawable.Drawable;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.v4.text.PrecomputedTextCompat;
+import android.support.v4.util.ObjectsCompat;
+import android.support.v4.widget.TextViewCompat;
+import android.support.v7.recyclerview.extensions.AsyncListDiffer;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.text.TextUtils;
 import android.view.LayoutInflater;
@@ -12,15 +17,16 @@ import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 
-import com.bumptech.glide.Glide;
 import com.bumptech.glide.ListPreloader;
 import com.bumptech.glide.RequestBuilder;
 import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
 import com.bumptech.glide.request.RequestOptions;
-import com.bumptech.glide.util.FixedPreloadSizeProvider;
+import com.bumptech.glide.util.ViewPreloadSizeProvider;
 import com.develop.apachi.testtask.R;
 import com.develop.apachi.testtask.glide_app.GlideApp;
-import com.develop.apachi.testtask.model.User;
+import com.develop.apachi.testtask.glide_app.GlideRequest;
+import com.develop.apachi.testtask.glide_app.GlideRequests;
+import com.develop.apachi.testtask.model.UserListItem;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -30,27 +36,80 @@ import butterknife.BindView;
 import butterknife.ButterKnife;
 
 /**
- * Persons recycler view adapter.
+ * Persons recycler view adapter. Updates are diffed in background and only changed rows
+ * and their changed parts are rebound. Texts of upcoming rows are built and measured
+ * in background, so binding attaches ready text layouts.
  *
  * @author Maksym Poliakov
  */
 public class UsersAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
-    private static final int PRELOAD_IMAGE_WIDTH = 1024;
-    private static final int PRELOAD_IMAGE_HEIGHT = 720;
-
     private static final int PRELOAD_COUNT = 10;
 
-    /** List of persons.*/
+    /** Change payloads, rebind only changed parts of row.*/
+    private static final int PAYLOAD_FULL_NAME = 1;
+    private static final int PAYLOAD_USER_NAME = 1 << 1;
+    private static final int PAYLOAD_IMAGE = 1 << 2;
+
+    /** Compares users by stable id and displayed fields.*/
+    private static final DiffUtil.ItemCallback<UserListItem> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<UserListItem>() {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean areItemsTheSame(@NonNull UserListItem aOldUser, @NonNull UserListItem aNewUser) {
+            return aOldUser.getId() == aNewUser.getId();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean areContentsTheSame(@NonNull UserListItem aOldUser, @NonNull UserListItem aNewUser) {
+            return getChangedParts(aOldUser, aNewUser) == 0;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Nullable
+        @Override
+        public Object getChangePayload(@NonNull UserListItem aOldUser, @NonNull UserListItem aNewUser) {
+            return getChangedParts(aOldUser, aNewUser);
+        }
+    };
+
+    /** Diffs lists of persons in background.*/
     @NonNull
-    private final List<User> iUsers;
+    private final AsyncListDiffer<UserListItem> iDiffer;
+
+    /** The last list submitted to differ, it is displayed when pending diffs are done.*/
+    @NonNull
+    private List<UserListItem> iSubmittedUsers;
 
     /** Listener for user clicks.*/
     @Nullable
     private OnItemClickListener iItemClickListener;
 
     @NonNull
-    private final RecyclerViewPreloader<User> iPreloader;
+    private final RecyclerViewPreloader<UserListItem> iPreloader;
+
+    /** Measures avatar view, so preloaded images have the same size as displayed ones.*/
+    @NonNull
+    private final ViewPreloadSizeProvider<UserListItem> iPreloadSizeProvider;
+
+    /** Image requests for both binding and preloading.*/
+    @NonNull
+    private final GlideRequests iGlideRequests;
+
+    /** Builds texts of rows in background.*/
+    @NonNull
+    private final UserRowTextLoader iTextLoader;
+
+    @NonNull
+    private final RecyclerView.OnScrollListener iTextPrefetcher;
 
     /**
      * Persons adapter.
@@ -60,21 +119,26 @@ public class UsersAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
      * @param aRecyclerView
      *      Recycler view.
      */
-    public UsersAdapter(@NonNull List<User> aUsers,
+    public UsersAdapter(@NonNull List<UserListItem> aUsers,
                         @NonNull RecyclerView aRecyclerView) {
 
-        iUsers = new ArrayList<>(aUsers);
+        iDiffer = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+        submitList(new ArrayList<>(aUsers));
 
-        final ListPreloader.PreloadSizeProvider<User> sizeProvider =
-                new FixedPreloadSizeProvider<>(PRELOAD_IMAGE_WIDTH, PRELOAD_IMAGE_HEIGHT);
+        setHasStableIds(true);
 
-        final UserPreloadModelProvider preloadModelProvider = new UserPreloadModelProvider(aUsers,
-                new ContextWrapper(aRecyclerView.getContext()));
+        iGlideRequests = GlideApp.with(aRecyclerView);
+        iPreloadSizeProvider = new ViewPreloadSizeProvider<>();
 
-        iPreloader = new RecyclerViewPreloader<>(Glide.with(aRecyclerView),
-                preloadModelProvider, sizeProvider, PRELOAD_COUNT);
+        iPreloader = new RecyclerViewPreloader<>(iGlideRequests,
+                new UserPreloadModelProvider(), iPreloadSizeProvider, PRELOAD_COUNT);
 
         aRecyclerView.addOnScrollListener(iPreloader);
+
+        iTextLoader = new UserRowTextLoader(aRecyclerView.getResources());
+        iTextPrefetcher = new TextPrefetchScrollListener();
+
+        aRecyclerView.addOnScrollListener(iTextPrefetcher);
     }
 
     /**
@@ -83,8 +147,16 @@ public class UsersAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
     @NonNull
     @Override
     public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup aViewGroup, int aPosition) {
-        return new UserViewHolder(LayoutInflater.from(aViewGroup.getContext())
+
+        final UserViewHolder userViewHolder = new UserViewHolder(LayoutInflater.from(aViewGroup.getContext())
                 .inflate(R.layout.user_list_item_layout, aViewGroup, false));
+
+        userViewHolder.itemView.setOnClickListener(view -> handleClick(userViewHolder));
+
+        iPreloadSizeProvider.setView(userViewHolder.iImageView);
+        iTextLoader.setParams(userViewHolder.iFullName, userViewHolder.iUserName);
+
+        return userViewHolder;
     }
 
     /**
@@ -93,15 +165,65 @@ public class UsersAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
     @Override
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder aViewHolder, int aPosition) {
 
-        final User user = iUsers.get(aPosition);
+        final UserListItem user = iDiffer.getCurrentList().get(aPosition);
 
         final UserViewHolder userViewHolder = (UserViewHolder) aViewHolder;
 
         setUserFullName(userViewHolder, user);
         setUserName(userViewHolder, user);
         loadImage(userViewHolder, user);
+    }
+
+    /**
+     * Rebinds only changed parts of row, if there are change payloads.
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder aViewHolder,
+                                 int aPosition,
+                                 @NonNull List<Object> aPayloads) {
+
+        if (aPayloads.isEmpty()) {
+
+            onBindViewHolder(aViewHolder, aPosition);
+            return;
+        }
+
+        int changedParts = 0;
+
+        for (Object payload : aPayloads) {
+            changedParts |= (Integer) payload;
+        }
+
+        final UserListItem user = iDiffer.getCurrentList().get(aPosition);
+
+        final UserViewHolder userViewHolder = (UserViewHolder) aViewHolder;
+
+        if ((changedParts & PAYLOAD_FULL_NAME) != 0) {
+            setUserFullName(userViewHolder, user);
+        }
+
+        if ((changedParts & PAYLOAD_USER_NAME) != 0) {
+            setUserName(userViewHolder, user);
+        }
+
+        if ((changedParts & PAYLOAD_IMAGE) != 0) {
+            loadImage(userViewHolder, user);
+        }
+    }
+
+    /**
+     * Cancels building of texts, adapter is not used after.
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView aRecyclerView) {
 
-        aViewHolder.itemView.setOnClickListener(view -> handleClick(user));
+        aRecyclerView.removeOnScrollListener(iPreloader);
+        aRecyclerView.removeOnScrollListener(iTextPrefetcher);
+        iTextLoader.release();
     }
 
     /**
@@ -109,21 +231,60 @@ public class UsersAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
      */
     @Override
     public int getItemCount() {
-        return iUsers.size();
+        return iDiffer.getCurrentList().size();
+    }
+
+    /**
+     * Stable id is user's primary key.
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public long getItemId(int aPosition) {
+        return iDiffer.getCurrentList().get(aPosition).getId();
+    }
+
+    /**
+     * Updates data with users. Difference with displayed users is calculated in background.
+     *
+     * @param aUsers
+     *      Users, list must not be modified after.
+     */
+    public void updateData(List<UserListItem> aUsers) {
+
+        submitList(aUsers);
     }
 
     /**
-     * Updates data with users.
+     * Appends users to the end of the list. Users are appended to the last submitted list,
+     * so update, which is still diffed, is not lost.
      *
      * @param aUsers
      *      Users.
      */
-    public void updateData(List<User> aUsers) {
+    public void appendData(List<UserListItem> aUsers) {
+
+        if (aUsers.isEmpty()) {
+            return;
+        }
+
+        final List<UserListItem> users = new ArrayList<>(iSubmittedUsers);
+
+        users.addAll(aUsers);
 
-        iUsers.clear();
-        iUsers.addAll(aUsers);
+        submitList(users);
+    }
+
+    /**
+     * Submits list to differ and remembers it.
+     *
+     * @param aUsers
+     *      Users, list must not be modified after.
+     */
+    private void submitList(@NonNull List<UserListItem> aUsers) {
 
-        notifyDataSetChanged();
+        iSubmittedUsers = aUsers;
+        iDiffer.submitList(aUsers);
     }
 
     /**
@@ -138,35 +299,58 @@ public class UsersAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
     }
 
     /**
-     * Setups user full name.
+     * Setups user full name. Precomputed text is used if it is ready, otherwise text is built in place.
      *
      * @param aUserViewHolder
      *      User view holder.
      * @param aUser
      *      User.
      */
-    private void setUserFullName(@NonNull UserViewHolder aUserViewHolder, @NonNull User aUser) {
+    private void setUserFullName(@NonNull UserViewHolder aUserViewHolder, @NonNull UserListItem aUser) {
+
+        final UserRowTextLoader.RowText rowText = iTextLoader.get(aUser);
 
-        final String fullUserName = aUserViewHolder.itemView.getResources()
-                .getString(R.string.user_list_item_full_name_format,
-                        aUser.getTitle(),
-                        aUser.getFirstName(),
-                        aUser.getLastName());
+        if (rowText == null || !setPrecomputedText(aUserViewHolder.iFullName, rowText.iFullName)) {
 
-        aUserViewHolder.iFullName.setText(fullUserName);
+            aUserViewHolder.iFullName.setText(
+                    UserRowTextLoader.createFullName(aUserViewHolder.itemView.getResources(), aUser));
+        }
     }
 
     /**
-     * Sets user name.
+     * Sets user name. Precomputed text is used if it is ready, otherwise text is set in place.
      *
      * @param aUserViewHolder
      *      user view holder.
      * @param aUser
      *      User
      */
-    private void setUserName(@NonNull UserViewHolder aUserViewHolder, @NonNull User aUser) {
+    private void setUserName(@NonNull UserViewHolder aUserViewHolder, @NonNull UserListItem aUser) {
+
+        final UserRowTextLoader.RowText rowText = iTextLoader.get(aUser);
+
+        if (rowText == null || !setPrecomputedText(aUserViewHolder.iUserName, rowText.iUserName)) {
+            aUserViewHolder.iUserName.setText(aUser.getUserName());
+        }
+    }
+
+    /**
+     * Sets precomputed text to view.
+     *
+     * @param aTextView
+     *      Text view.
+     * @param aText
+     *      Precomputed text.
+     * @return false if text was built for other text params than params of the view.
+     */
+    private boolean setPrecomputedText(@NonNull TextView aTextView, @NonNull PrecomputedTextCompat aText) {
+
+        if (!aText.getParams().equals(TextViewCompat.getTextMetricsParams(aTextView))) {
+            return false;
+        }
 
-        aUserViewHolder.iUserName.setText(aUser.getUserName());
+        TextViewCompat.setPrecomputedText(aTextView, aText);
+        return true;
     }
 
     /**
@@ -177,28 +361,74 @@ public class UsersAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
      * @param aUser
      *      User.
      */
-    private void loadImage(@NonNull UserViewHolder aUserViewHolder, @NonNull User aUser) {
+    private void loadImage(@NonNull UserViewHolder aUserViewHolder, @NonNull UserListItem aUser) {
 
-
-        GlideApp.with(aUserViewHolder.iImageView)
-                .load(aUser.getMediumPictureUrl())
-                .apply(RequestOptions.circleCropTransform())
+        createImageRequest(aUser)
                 .placeholder(R.mipmap.ic_launcher)
                 .into(aUserViewHolder.iImageView);
     }
 
     /**
-     * Handles click on a view.
+     * Creates image request for user, it is shared by binding and preloading
+     * to produce the same memory cache key.
      *
      * @param aUser
-     *      View.
+     *      User.
+     * @return Image request.
+     */
+    @NonNull
+    private GlideRequest<Drawable> createImageRequest(@NonNull UserListItem aUser) {
+
+        return iGlideRequests
+                .load(aUser.getMediumPictureUrl())
+                .apply(RequestOptions.circleCropTransform());
+    }
+
+    /**
+     * Handles click on a view.
+     *
+     * @param aUserViewHolder
+     *      Clicked view holder.
+     */
+    private void handleClick(@NonNull UserViewHolder aUserViewHolder) {
+
+        final int position = aUserViewHolder.getAdapterPosition();
+
+        if (iItemClickListener != null
+                && position != RecyclerView.NO_POSITION) {
+
+            iItemClickListener.onItemClick(iDiffer.getCurrentList().get(position));
+        }
+    }
+
+    /**
+     * Compares displayed parts of users.
+     *
+     * @param aOldUser
+     *      Displayed user.
+     * @param aNewUser
+     *      New user with the same id.
+     * @return Flags of changed parts, 0 if nothing displayed is changed.
      */
-    private void handleClick(@NonNull User aUser) {
+    private static int getChangedParts(@NonNull UserListItem aOldUser, @NonNull UserListItem aNewUser) {
+
+        int changedParts = 0;
 
-        if (iItemClickListener != null) {
+        if (!ObjectsCompat.equals(aOldUser.getTitle(), aNewUser.getTitle())
+                || !ObjectsCompat.equals(aOldUser.getFirstName(), aNewUser.getFirstName())
+                || !ObjectsCompat.equals(aOldUser.getLastName(), aNewUser.getLastName())) {
+            changedParts |= PAYLOAD_FULL_NAME;
+        }
+
+        if (!ObjectsCompat.equals(aOldUser.getUserName(), aNewUser.getUserName())) {
+            changedParts |= PAYLOAD_USER_NAME;
+        }
 
-            iItemClickListener.onItemClick(aUser);
+        if (!ObjectsCompat.equals(aOldUser.getMediumPictureUrl(), aNewUser.getMediumPictureUrl())) {
+            changedParts |= PAYLOAD_IMAGE;
         }
+
+        return changedParts;
     }
 
     /**
@@ -235,47 +465,31 @@ public class UsersAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
          * @param aUser
          *      User.
          */
-        void onItemClick(User aUser);
+        void onItemClick(UserListItem aUser);
     }
 
     /**
-     * Preloads users images on scrolling.
+     * Preloads images of upcoming users on scrolling. Follows the current list of adapter and
+     * uses the same request as binding, so preloaded images are memory cache hits.
      */
-    private static class UserPreloadModelProvider implements ListPreloader.PreloadModelProvider<User> {
-
-        /** List of users to preload.*/
-        @NonNull
-        private List<User> iUsers;
-        /** Context for glide.*/
-        @NonNull
-        private Context iContext;
-
-        /**
-         * @param aUsers
-         *      List of users.
-         * @param aContext
-         *      Any context.
-         */
-        private UserPreloadModelProvider(@NonNull List<User> aUsers, @NonNull Context aContext) {
-
-            iUsers = aUsers;
-            iContext = aContext;
-        }
+    private class UserPreloadModelProvider implements ListPreloader.PreloadModelProvider<UserListItem> {
 
         /**
          * {@inheritDoc}
          */
         @Override
         @NonNull
-        public List<User> getPreloadItems(int aPosition) {
+        public List<UserListItem> getPreloadItems(int aPosition) {
+
+            final List<UserListItem> users = iDiffer.getCurrentList();
 
-            if (aPosition < iUsers.size()) {
+            if (aPosition < users.size()) {
 
-                if (TextUtils.isEmpty(iUsers.get(aPosition).getMediumPictureUrl())) {
+                if (TextUtils.isEmpty(users.get(aPosition).getMediumPictureUrl())) {
                     return Collections.emptyList();
                 }
 
-                return Collections.singletonList(iUsers.get(aPosition));
+                return Collections.singletonList(users.get(aPosition));
             }
 
             return Collections.emptyList();
@@ -286,11 +500,45 @@ public class UsersAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
          */
         @Nullable
         @Override
-        public RequestBuilder<?> getPreloadRequestBuilder(@NonNull User aUser) {
-            return Glide.with(iContext)
-                    .load(aUser.getMediumPictureUrl())
-                    .apply(RequestOptions.circleCropTransform())
-                    .override(PRELOAD_IMAGE_WIDTH, PRELOAD_IMAGE_HEIGHT);
+        public RequestBuilder<?> getPreloadRequestBuilder(@NonNull UserListItem aUser) {
+            return createImageRequest(aUser);
+        }
+    }
+
+    /**
+     * Builds texts of upcoming rows in scrolling direction, as images are preloaded.
+     */
+    private class TextPrefetchScrollListener extends RecyclerView.OnScrollListener {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onScrolled(@NonNull RecyclerView aRecyclerView, int aDx, int aDy) {
+
+            if (!(aRecyclerView.getLayoutManager() instanceof LinearLayoutManager)) {
+                return;
+            }
+
+            final LinearLayoutManager layoutManager = (LinearLayoutManager) aRecyclerView.getLayoutManager();
+            final List<UserListItem> users = iDiffer.getCurrentList();
+
+            final int start;
+            final int end;
+
+            if (aDy >= 0) {
+
+                start = layoutManager.findLastVisibleItemPosition() + 1;
+                end = Math.min(users.size(), start + PRELOAD_COUNT);
+            } else {
+
+                end = layoutManager.findFirstVisibleItemPosition();
+                start = Math.max(0, end - PRELOAD_COUNT);
+            }
+
+            for (int position = start; position < end; position++) {
+                iTextLoader.prefetch(users.get(position));
+            }
         }
     }
 }
@@ -1,13 +1,29 @@
 package com.develop.apachi.testtask.database;
 
+import android.arch.persistence.db.SimpleSQLiteQuery;
+import android.arch.persistence.db.SupportSQLiteQuery;
 import android.arch.persistence.room.Dao;
 import android.arch.persistence.room.Insert;
 import android.arch.persistence.room.OnConflictStrategy;
 import android.arch.persistence.room.Query;
+import android.arch.persistence.room.RawQuery;
+import android.arch.persistence.room.Transaction;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
 import com.develop.apachi.testtask.model.User;
+import com.develop.apachi.testtask.model.UserListItem;
+import com.develop.apachi.testtask.model.UserLocationItem;
+import com.develop.apachi.testtask.utils.GeoGrid;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import io.reactivex.Single;
 
@@ -15,18 +31,230 @@ import io.reactivex.Single;
  * Data access object for users.
  */
 @Dao
-public interface UserDao {
+public abstract class UserDao {
+
+    /** SQLite limits count of bound variables in single statement by 999.*/
+    private static final int MAX_BOUND_VARIABLES = 900;
+
+    /** Columns of user list item.*/
+    private static final String LIST_ITEM_COLUMNS = UsersDatabaseContract.UsersTable._ID + ", "
+            + UsersDatabaseContract.UsersTable.TITLE + ", "
+            + UsersDatabaseContract.UsersTable.FIRST_NAME + ", "
+            + UsersDatabaseContract.UsersTable.LAST_NAME + ", "
+            + UsersDatabaseContract.UsersTable.USER_NAME + ", "
+            + UsersDatabaseContract.UsersTable.MEDIUM_PICTURE_URL;
+
+    /** Searches list items by full-text match expression bound as the only argument.*/
+    private static final String SEARCH_QUERY = "SELECT "
+            + LIST_ITEM_COLUMNS
+            + " FROM "
+            + UsersDatabaseContract.UsersTable.TABLE_NAME
+            + " WHERE "
+            + UsersDatabaseContract.UsersTable._ID
+            + " IN (SELECT "
+            + UsersDatabaseContract.UsersSearchTable.DOC_ID
+            + " FROM "
+            + UsersDatabaseContract.UsersSearchTable.TABLE_NAME
+            + " WHERE "
+            + UsersDatabaseContract.UsersSearchTable.TABLE_NAME
+            + " MATCH ?)"
+            + " ORDER BY "
+            + UsersDatabaseContract.UsersTable.LAST_NAME
+            + ", "
+            + UsersDatabaseContract.UsersTable.FIRST_NAME;
+
+    /** Selects location items of users, condition is appended.*/
+    private static final String LOCATION_ITEMS_QUERY = "SELECT "
+            + LIST_ITEM_COLUMNS + ", "
+            + UsersDatabaseContract.UsersTable.LATITUDE + ", "
+            + UsersDatabaseContract.UsersTable.LONGITUDE
+            + " FROM "
+            + UsersDatabaseContract.UsersTable.TABLE_NAME
+            + " WHERE ";
 
     /**
-     * Retrieves all users from database ordered by last and first name.
+     * Retrieves list items of all users ordered by last and first name.
+     * Selected columns are covered by {@link UsersDatabaseContract.UsersTable#LIST_INDEX},
+     * so the query walks the index only and neither scans nor sorts the table.
      */
-    @Query("SELECT * FROM "
+    @Query("SELECT "
+            + LIST_ITEM_COLUMNS
+            + " FROM "
             + UsersDatabaseContract.UsersTable.TABLE_NAME
             + " ORDER BY "
             + UsersDatabaseContract.UsersTable.LAST_NAME
             + ", "
             + UsersDatabaseContract.UsersTable.FIRST_NAME)
-    Single<List<User>> getUsers();
+    public abstract Single<List<UserListItem>> getUsers();
+
+    /**
+     * Searches users by prefixes of words in their names, user name, email, city or state.
+     * Every word of query must match.
+     *
+     * @param aQuery
+     *      Query typed by user.
+     * @return List items of found users ordered by last and first name.
+     */
+    @NonNull
+    public List<UserListItem> search(@NonNull String aQuery) {
+
+        final String matchExpression = createMatchExpression(aQuery);
+
+        if (matchExpression == null) {
+            return Collections.emptyList();
+        }
+
+        return searchUsers(new SimpleSQLiteQuery(SEARCH_QUERY, new Object[] {matchExpression}));
+    }
+
+    /**
+     * Runs search query. Search table is unknown to Room, so query is raw.
+     *
+     * @param aQuery
+     *      {@link #SEARCH_QUERY} with bound match expression.
+     * @return List items of found users.
+     */
+    @RawQuery
+    /*package*/ abstract List<UserListItem> searchUsers(SupportSQLiteQuery aQuery);
+
+    /**
+     * Retrieves users located in bounding box. Box is looked up by ranges of grid cells,
+     * so only index entries of cells intersecting the box are read.
+     *
+     * @param aBox
+     *      Bounding box.
+     * @return Location items of users in the box in no particular order.
+     */
+    @NonNull
+    public List<UserLocationItem> getUsersInBox(@NonNull GeoGrid.BoundingBox aBox) {
+
+        final StringBuilder condition = new StringBuilder("(");
+        final List<Object> arguments = new ArrayList<>();
+
+        for (int[] cellRange : GeoGrid.getCellRanges(aBox)) {
+
+            if (arguments.size() > 0) {
+                condition.append(" OR ");
+            }
+
+            condition.append(UsersDatabaseContract.UsersTable.GRID_CELL).append(" BETWEEN ? AND ?");
+            arguments.add(cellRange[0]);
+            arguments.add(cellRange[1]);
+        }
+
+        condition.append(") AND ")
+                .append(UsersDatabaseContract.UsersTable.LATITUDE).append(" BETWEEN ? AND ? AND ");
+        arguments.add(aBox.getSouth());
+        arguments.add(aBox.getNorth());
+
+        if (aBox.crossesAntimeridian()) {
+
+            condition.append('(')
+                    .append(UsersDatabaseContract.UsersTable.LONGITUDE).append(" >= ? OR ")
+                    .append(UsersDatabaseContract.UsersTable.LONGITUDE).append(" <= ?)");
+        } else {
+
+            condition.append(UsersDatabaseContract.UsersTable.LONGITUDE).append(" BETWEEN ? AND ?");
+        }
+
+        arguments.add(aBox.getWest());
+        arguments.add(aBox.getEast());
+
+        return getUserLocations(new SimpleSQLiteQuery(
+                LOCATION_ITEMS_QUERY + condition, arguments.toArray()));
+    }
+
+    /**
+     * Retrieves users nearest to point. Search area starts from one grid cell and is doubled
+     * until it contains enough users, so lookup cost depends on count of found users
+     * instead of size of table.
+     *
+     * @param aLatitude
+     *      Latitude of point.
+     * @param aLongitude
+     *      Longitude of point.
+     * @param aCount
+     *      Maximum count of users.
+     * @return Location items of nearest users ordered by distance.
+     */
+    @NonNull
+    public List<UserLocationItem> getNearestUsers(double aLatitude, double aLongitude, int aCount) {
+
+        final Comparator<UserLocationItem> byDistance = (aUser, aOtherUser) -> Double.compare(
+                aUser.getDistanceDegrees(aLatitude, aLongitude),
+                aOtherUser.getDistanceDegrees(aLatitude, aLongitude));
+
+        for (double radius = GeoGrid.CELL_SIZE_DEGREES; ; radius *= 2) {
+
+            final boolean coversGlobe = radius >= GeoGrid.MAX_DISTANCE_DEGREES;
+            final List<UserLocationItem> users = getUsersInBox(
+                    GeoGrid.getBoundingBox(aLatitude, aLongitude, Math.min(radius, GeoGrid.MAX_DISTANCE_DEGREES)));
+
+            Collections.sort(users, byDistance);
+
+            // Corners of the box are farther than radius, users beyond the circle may be not the nearest ones
+            int nearestCount = users.size();
+
+            while (!coversGlobe
+                    && nearestCount > 0
+                    && users.get(nearestCount - 1).getDistanceDegrees(aLatitude, aLongitude) > radius) {
+                nearestCount--;
+            }
+
+            if (coversGlobe || nearestCount >= aCount) {
+                return new ArrayList<>(users.subList(0, Math.min(aCount, nearestCount)));
+            }
+        }
+    }
+
+    /**
+     * Runs location items query. Conditions are built from grid cell ranges, so query is raw.
+     *
+     * @param aQuery
+     *      {@link #LOCATION_ITEMS_QUERY} with condition and bound arguments.
+     * @return Location items of found users.
+     */
+    @RawQuery
+    /*package*/ abstract List<UserLocationItem> getUserLocations(SupportSQLiteQuery aQuery);
+
+    /**
+     * Retrieves all users from database synchronously in storage order.
+     */
+    @Query("SELECT * FROM " + UsersDatabaseContract.UsersTable.TABLE_NAME)
+    public abstract List<User> getStoredUsers();
+
+    /**
+     * Retrieves specified users from database synchronously.
+     *
+     * @param aIds
+     *      Ids of users, not more than {@link #MAX_BOUND_VARIABLES}.
+     * @return Stored users, missing ones are skipped.
+     */
+    @Query("SELECT * FROM "
+            + UsersDatabaseContract.UsersTable.TABLE_NAME
+            + " WHERE "
+            + UsersDatabaseContract.UsersTable._ID + " IN (:aIds)")
+    /*package*/ abstract List<User> getStoredUsers(List<Long> aIds);
+
+    /**
+     * Retrieves ids of all stored users.
+     */
+    @Query("SELECT " + UsersDatabaseContract.UsersTable._ID + " FROM " + UsersDatabaseContract.UsersTable.TABLE_NAME)
+    /*package*/ abstract List<Long> getStoredIds();
+
+    /**
+     * Retrieves ids of stored users of page.
+     *
+     * @param aPage
+     *      Page of seeded data set.
+     */
+    @Query("SELECT "
+            + UsersDatabaseContract.UsersTable._ID
+            + " FROM "
+            + UsersDatabaseContract.UsersTable.TABLE_NAME
+            + " WHERE "
+            + UsersDatabaseContract.UsersTable.PAGE + " = :aPage")
+    /*package*/ abstract List<Long> getStoredPageIds(int aPage);
 
     /**
      * Retrieves single user from database.
@@ -39,7 +267,7 @@ public interface UserDao {
             + UsersDatabaseContract.UsersTable.TABLE_NAME
             + " WHERE "
             + UsersDatabaseContract.UsersTable._ID + " = " + ":aId")
-    Single<User> getUser(int aId);
+    public abstract Single<User> getUser(long aId);
 
     /**
      * Saves users into the database.
@@ -48,11 +276,217 @@ public interface UserDao {
      *      List of users.
      */
     @Insert(onConflict = OnConflictStrategy.REPLACE)
-    void saveUsers(List<User> aUsers);
+    public abstract void saveUsers(List<User> aUsers);
+
+    /**
+     * Saves users, which are not stored yet. Stored users are kept, so partial users
+     * never overwrite complete ones. Stored users are filtered out before insert,
+     * since ignored insert still fires search index trigger and drops their index.
+     *
+     * @param aUsers
+     *      List of users.
+     */
+    @Transaction
+    public void saveNewUsers(@NonNull List<User> aUsers) {
+
+        final List<Long> ids = new ArrayList<>(aUsers.size());
+
+        for (User user : aUsers) {
+            ids.add(user.getId());
+        }
+
+        final Set<Long> skippedIds = new HashSet<>(ids.size());
+
+        for (int start = 0; start < ids.size(); start += MAX_BOUND_VARIABLES) {
+
+            skippedIds.addAll(getStoredIds(ids.subList(start,
+                    Math.min(start + MAX_BOUND_VARIABLES, ids.size()))));
+        }
+
+        final List<User> newUsers = new ArrayList<>(aUsers.size() - skippedIds.size());
+
+        for (User user : aUsers) {
+
+            if (skippedIds.add(user.getId())) {
+                newUsers.add(user);
+            }
+        }
+
+        if (!newUsers.isEmpty()) {
+            insertUsers(newUsers);
+        }
+    }
+
+    /**
+     * Retrieves which of specified users are stored.
+     *
+     * @param aIds
+     *      Ids of users, not more than {@link #MAX_BOUND_VARIABLES}.
+     * @return Ids of stored users.
+     */
+    @Query("SELECT "
+            + UsersDatabaseContract.UsersTable._ID
+            + " FROM "
+            + UsersDatabaseContract.UsersTable.TABLE_NAME
+            + " WHERE "
+            + UsersDatabaseContract.UsersTable._ID + " IN (:aIds)")
+    /*package*/ abstract List<Long> getStoredIds(List<Long> aIds);
+
+    /**
+     * Inserts users, which are known to be not stored.
+     *
+     * @param aUsers
+     *      List of new users.
+     */
+    @Insert(onConflict = OnConflictStrategy.ABORT)
+    /*package*/ abstract void insertUsers(List<User> aUsers);
 
     /**
      * Clears all data from users table.
      */
     @Query("DELETE FROM " + UsersDatabaseContract.UsersTable.TABLE_NAME)
-    void deleteAll();
+    public abstract void deleteAll();
+
+    /**
+     * Deletes users with specified ids.
+     *
+     * @param aIds
+     *      Ids of users, not more than {@link #MAX_BOUND_VARIABLES}.
+     */
+    @Query("DELETE FROM "
+            + UsersDatabaseContract.UsersTable.TABLE_NAME
+            + " WHERE "
+            + UsersDatabaseContract.UsersTable._ID + " IN (:aIds)")
+    public abstract void deleteUsers(List<Long> aIds);
+
+    /**
+     * Makes users table equal to specified users in single transaction.
+     * Only new and changed users are written and only missing users are deleted,
+     * so readers never see empty table and unchanged rows cost nothing.
+     * Partial user doesn't replace stored complete one with the same partial data.
+     * Only ids of all stored users are read, full rows are read for specified users only.
+     *
+     * @param aUsers
+     *      Actual users.
+     */
+    @Transaction
+    public void syncUsers(@NonNull List<User> aUsers) {
+
+        syncUsers(getStoredIds(), aUsers);
+    }
+
+    /**
+     * Makes stored page of seeded data set equal to specified users in single transaction,
+     * users of other pages are kept. Users are written the same way as by {@link #syncUsers(List)},
+     * only users stored with the page are deleted.
+     *
+     * @param aPage
+     *      Page of seeded data set.
+     * @param aUsers
+     *      Actual users of page.
+     */
+    @Transaction
+    public void syncPage(int aPage, @NonNull List<User> aUsers) {
+
+        syncUsers(getStoredPageIds(aPage), aUsers);
+    }
+
+    /**
+     * Writes new and changed users and deletes stored users, which are missing in specified ones.
+     *
+     * @param aStoredIds
+     *      Ids of stored users to sync, users with other ids are kept.
+     * @param aUsers
+     *      Actual users.
+     */
+    private void syncUsers(@NonNull List<Long> aStoredIds, @NonNull List<User> aUsers) {
+
+        final Set<Long> missingIds = new HashSet<>(aStoredIds);
+        final List<Long> ids = new ArrayList<>(aUsers.size());
+
+        for (User user : aUsers) {
+
+            missingIds.remove(user.getId());
+            ids.add(user.getId());
+        }
+
+        final Map<Long, User> storedUsers = new HashMap<>(ids.size());
+
+        // User may be stored with other page, so stored rows are read for all specified users
+        for (int start = 0; start < ids.size(); start += MAX_BOUND_VARIABLES) {
+
+            for (User storedUser : getStoredUsers(ids.subList(start,
+                    Math.min(start + MAX_BOUND_VARIABLES, ids.size())))) {
+
+                storedUsers.put(storedUser.getId(), storedUser);
+            }
+        }
+
+        final List<User> changedUsers = new ArrayList<>();
+
+        for (User user : aUsers) {
+
+            final User storedUser = storedUsers.get(user.getId());
+
+            if (!user.equals(storedUser) && !isCompletedBy(user, storedUser)) {
+                changedUsers.add(user);
+            }
+        }
+
+        if (!changedUsers.isEmpty()) {
+            saveUsers(changedUsers);
+        }
+
+        final List<Long> deletedIds = new ArrayList<>(missingIds);
+
+        for (int start = 0; start < deletedIds.size(); start += MAX_BOUND_VARIABLES) {
+
+            deleteUsers(deletedIds.subList(start,
+                    Math.min(start + MAX_BOUND_VARIABLES, deletedIds.size())));
+        }
+    }
+
+    /**
+     * @param aUser
+     *      Fetched user.
+     * @param aStoredUser
+     *      Stored user with the same id.
+     * @return true if fetched user is partial and stored one is its complete version.
+     */
+    private static boolean isCompletedBy(@NonNull User aUser, @Nullable User aStoredUser) {
+
+        return aUser.isPartial()
+                && aStoredUser != null
+                && !aStoredUser.isPartial()
+                && aUser.hasSamePartialData(aStoredUser);
+    }
+
+    /**
+     * Creates FTS match expression from query typed by user. Every word becomes quoted prefix
+     * term, so characters of FTS query syntax typed by user are matched literally.
+     *
+     * @param aQuery
+     *      Query typed by user.
+     * @return Match expression or null if there are no words in query.
+     */
+    @Nullable
+    /*package*/ static String createMatchExpression(@NonNull String aQuery) {
+
+        final StringBuilder matchExpression = new StringBuilder();
+
+        for (String word : aQuery.replace("\"", " ").trim().split("\\s+")) {
+
+            if (word.isEmpty()) {
+                continue;
+            }
+
+            if (matchExpression.length() > 0) {
+                matchExpression.append(' ');
+            }
+
+            matchExpression.append('"').append(word).append("*\"");
+        }
+
+        return matchExpression.length() == 0 ? null : matchExpression.toString();
+    }
 }
@@ -1,21 +1,375 @@
 package com.develop.apachi.testtask.database;
 
+import android.arch.persistence.db.SupportSQLiteDatabase;
 import android.arch.persistence.room.Database;
 import android.arch.persistence.room.RoomDatabase;
-import android.arch.persistence.room.TypeConverters;
+import android.arch.persistence.room.migration.Migration;
+import android.database.Cursor;
+import android.location.Location;
+import android.support.annotation.NonNull;
 
-import com.develop.apachi.testtask.database.converters.DateConverter;
 import com.develop.apachi.testtask.database.converters.LocationConverter;
 import com.develop.apachi.testtask.model.User;
+import com.develop.apachi.testtask.utils.GeoGrid;
+import com.develop.apachi.testtask.utils.TimeZoneUtils;
 
 /**
  * Database with users.
  */
 @Database(entities = User.class, version = UsersDatabase.DATABASE_VERSION)
-@TypeConverters({LocationConverter.class, DateConverter.class})
 public abstract class UsersDatabase extends RoomDatabase {
 
-    /*package*/ static final int DATABASE_VERSION = 1;
+    /*package*/ static final int DATABASE_VERSION = 6;
+
+    /** Columns of users table indexed for full-text search.*/
+    private static final String SEARCH_COLUMNS = UsersDatabaseContract.UsersTable.FIRST_NAME + ", "
+            + UsersDatabaseContract.UsersTable.LAST_NAME + ", "
+            + UsersDatabaseContract.UsersTable.USER_NAME + ", "
+            + UsersDatabaseContract.UsersTable.EMAIL + ", "
+            + UsersDatabaseContract.UsersTable.CITY + ", "
+            + UsersDatabaseContract.UsersTable.STATE;
+
+    /** The same columns taken from new row in triggers.*/
+    private static final String NEW_SEARCH_VALUES = "new." + UsersDatabaseContract.UsersTable._ID + ", "
+            + "new." + UsersDatabaseContract.UsersTable.FIRST_NAME + ", "
+            + "new." + UsersDatabaseContract.UsersTable.LAST_NAME + ", "
+            + "new." + UsersDatabaseContract.UsersTable.USER_NAME + ", "
+            + "new." + UsersDatabaseContract.UsersTable.EMAIL + ", "
+            + "new." + UsersDatabaseContract.UsersTable.CITY + ", "
+            + "new." + UsersDatabaseContract.UsersTable.STATE;
+
+    /** Creates search table for a new database.*/
+    public static final Callback CALLBACK = new Callback() {
+
+        @Override
+        public void onCreate(@NonNull SupportSQLiteDatabase aDatabase) {
+
+            createSearchTable(aDatabase);
+        }
+    };
+
+    /** Adds covering index for user list.*/
+    public static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase aDatabase) {
+
+            createListIndex(aDatabase);
+        }
+    };
+
+    /** Adds full-text search table and indexes stored users.*/
+    public static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase aDatabase) {
+
+            createSearchTable(aDatabase);
+
+            aDatabase.execSQL("INSERT INTO "
+                    + UsersDatabaseContract.UsersSearchTable.TABLE_NAME
+                    + "(" + UsersDatabaseContract.UsersSearchTable.TABLE_NAME + ")"
+                    + " VALUES('rebuild')");
+        }
+    };
+
+    /**
+     * Replaces serialized location with coordinate columns and grid cell index.
+     * SQLite can't drop columns, so table is copied, locations are deserialized one by one.
+     * Users with location, which can't be decoded, get no coordinates and {@link GeoGrid#NO_CELL}.
+     */
+    public static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase aDatabase) {
+
+            final String usersTable = UsersDatabaseContract.UsersTable.TABLE_NAME;
+            final String newUsersTable = usersTable + "_new";
+            final String copiedColumns = UsersDatabaseContract.UsersTable._ID + ", "
+                    + UsersDatabaseContract.UsersTable.USER_ID + ", "
+                    + UsersDatabaseContract.UsersTable.TITLE + ", "
+                    + UsersDatabaseContract.UsersTable.FIRST_NAME + ", "
+                    + UsersDatabaseContract.UsersTable.LAST_NAME + ", "
+                    + UsersDatabaseContract.UsersTable.USER_NAME + ", "
+                    + UsersDatabaseContract.UsersTable.BIRTH_DATE + ", "
+                    + UsersDatabaseContract.UsersTable.AGE + ", "
+                    + UsersDatabaseContract.UsersTable.REGISTRATION_DATE + ", "
+                    + UsersDatabaseContract.UsersTable.REGISTRATION_AGE + ", "
+                    + UsersDatabaseContract.UsersTable.PHONE_NUMBER + ", "
+                    + UsersDatabaseContract.UsersTable.CELL_NUMBER + ", "
+                    + UsersDatabaseContract.UsersTable.ID_TYPE + ", "
+                    + UsersDatabaseContract.UsersTable.THUMBNAIL_PICTURE_URL + ", "
+                    + UsersDatabaseContract.UsersTable.MEDIUM_PICTURE_URL + ", "
+                    + UsersDatabaseContract.UsersTable.LARGE_PICTURE_URL + ", "
+                    + UsersDatabaseContract.UsersTable.STREET + ", "
+                    + UsersDatabaseContract.UsersTable.CITY + ", "
+                    + UsersDatabaseContract.UsersTable.STATE + ", "
+                    + UsersDatabaseContract.UsersTable.POST_CODE + ", "
+                    + UsersDatabaseContract.UsersTable.TIME_ZONE + ", "
+                    + UsersDatabaseContract.UsersTable.EMAIL;
+
+            aDatabase.execSQL("CREATE TABLE " + newUsersTable + " ("
+                    + UsersDatabaseContract.UsersTable._ID + " INTEGER NOT NULL, "
+                    + UsersDatabaseContract.UsersTable.USER_ID + " TEXT, "
+                    + UsersDatabaseContract.UsersTable.TITLE + " TEXT, "
+                    + UsersDatabaseContract.UsersTable.FIRST_NAME + " TEXT, "
+                    + UsersDatabaseContract.UsersTable.LAST_NAME + " TEXT, "
+                    + UsersDatabaseContract.UsersTable.USER_NAME + " TEXT, "
+                    + UsersDatabaseContract.UsersTable.BIRTH_DATE + " INTEGER NOT NULL, "
+                    + UsersDatabaseContract.UsersTable.AGE + " INTEGER NOT NULL, "
+                    + UsersDatabaseContract.UsersTable.REGISTRATION_DATE + " INTEGER NOT NULL, "
+                    + UsersDatabaseContract.UsersTable.REGISTRATION_AGE + " INTEGER NOT NULL, "
+                    + UsersDatabaseContract.UsersTable.PHONE_NUMBER + " TEXT, "
+                    + UsersDatabaseContract.UsersTable.CELL_NUMBER + " TEXT, "
+                    + UsersDatabaseContract.UsersTable.ID_TYPE + " TEXT, "
+                    + UsersDatabaseContract.UsersTable.THUMBNAIL_PICTURE_URL + " TEXT, "
+                    + UsersDatabaseContract.UsersTable.MEDIUM_PICTURE_URL + " TEXT, "
+                    + UsersDatabaseContract.UsersTable.LARGE_PICTURE_URL + " TEXT, "
+                    + UsersDatabaseContract.UsersTable.STREET + " TEXT, "
+                    + UsersDatabaseContract.UsersTable.CITY + " TEXT, "
+                    + UsersDatabaseContract.UsersTable.STATE + " TEXT, "
+                    + UsersDatabaseContract.UsersTable.POST_CODE + " TEXT, "
+                    + UsersDatabaseContract.UsersTable.LATITUDE + " REAL NOT NULL, "
+                    + UsersDatabaseContract.UsersTable.LONGITUDE + " REAL NOT NULL, "
+                    + UsersDatabaseContract.UsersTable.GRID_CELL + " INTEGER NOT NULL, "
+                    + UsersDatabaseContract.UsersTable.TIME_ZONE + " TEXT, "
+                    + UsersDatabaseContract.UsersTable.EMAIL + " TEXT, "
+                    + "PRIMARY KEY(" + UsersDatabaseContract.UsersTable._ID + "))");
+
+            aDatabase.execSQL("INSERT INTO " + newUsersTable + " ("
+                    + copiedColumns + ", "
+                    + UsersDatabaseContract.UsersTable.LATITUDE + ", "
+                    + UsersDatabaseContract.UsersTable.LONGITUDE + ", "
+                    + UsersDatabaseContract.UsersTable.GRID_CELL + ")"
+                    + " SELECT " + copiedColumns + ", 0, 0, " + GeoGrid.NO_CELL
+                    + " FROM " + usersTable);
+
+            try (Cursor cursor = aDatabase.query("SELECT "
+                    + UsersDatabaseContract.UsersTable._ID + ", "
+                    + UsersDatabaseContract.UsersTable.LOCATION_BLOB
+                    + " FROM " + usersTable
+                    + " WHERE " + UsersDatabaseContract.UsersTable.LOCATION_BLOB + " IS NOT NULL")) {
+
+                while (cursor.moveToNext()) {
+
+                    final Location location = LocationConverter.fromBlob(cursor.getBlob(1));
+
+                    if (location == null) {
+                        continue;
+                    }
+
+                    aDatabase.execSQL("UPDATE " + newUsersTable + " SET "
+                            + UsersDatabaseContract.UsersTable.LATITUDE + " = ?, "
+                            + UsersDatabaseContract.UsersTable.LONGITUDE + " = ?, "
+                            + UsersDatabaseContract.UsersTable.GRID_CELL + " = ?"
+                            + " WHERE " + UsersDatabaseContract.UsersTable._ID + " = ?",
+                            new Object[] {
+                                    location.getLatitude(),
+                                    location.getLongitude(),
+                                    GeoGrid.getCell(location.getLatitude(), location.getLongitude()),
+                                    cursor.getLong(0)});
+                }
+            }
+
+            // Dropping of users table drops its indexes and search triggers too
+            aDatabase.execSQL("DROP TABLE " + usersTable);
+            aDatabase.execSQL("ALTER TABLE " + newUsersTable + " RENAME TO " + usersTable);
+
+            createListIndex(aDatabase);
+            createGridIndex(aDatabase);
+            createSearchTable(aDatabase);
+        }
+    };
+
+    /**
+     * Replaces time zone id with offset in minutes. Stored ids are fixed offset ids
+     * in [+|-]hh:mm format or UTC, so they are converted by SQL while table is copied.
+     */
+    public static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase aDatabase) {
+
+            final String usersTable = UsersDatabaseContract.UsersTable.TABLE_NAME;
+            final String newUsersTable = usersTable + "_new";
+            final String timeZone = UsersDatabaseContract.UsersTable.TIME_ZONE;
+            final String copiedColumns = UsersDatabaseContract.UsersTable._ID + ", "
+                    + UsersDatabaseContract.UsersTable.USER_ID + ", "
+                    + UsersDatabaseContract.UsersTable.TITLE + ", "
+                    + UsersDatabaseContract.UsersTable.FIRST_NAME + ", "
+                    + UsersDatabaseContract.UsersTable.LAST_NAME + ", "
+                    + UsersDatabaseContract.UsersTable.USER_NAME + ", "
+                    + UsersDatabaseContract.UsersTable.BIRTH_DATE + ", "
+                    + UsersDatabaseContract.UsersTable.AGE + ", "
+                    + UsersDatabaseContract.UsersTable.REGISTRATION_DATE + ", "
+                    + UsersDatabaseContract.UsersTable.REGISTRATION_AGE + ", "
+                    + UsersDatabaseContract.UsersTable.PHONE_NUMBER + ", "
+                    + UsersDatabaseContract.UsersTable.CELL_NUMBER + ", "
+                    + UsersDatabaseContract.UsersTable.ID_TYPE + ", "
+                    + UsersDatabaseContract.UsersTable.THUMBNAIL_PICTURE_URL + ", "
+                    + UsersDatabaseContract.UsersTable.MEDIUM_PICTURE_URL + ", "
+                    + UsersDatabaseContract.UsersTable.LARGE_PICTURE_URL + ", "
+                    + UsersDatabaseContract.UsersTable.STREET + ", "
+                    + UsersDatabaseContract.UsersTable.CITY + ", "
+                    + UsersDatabaseContract.UsersTable.STATE + ", "
+                    + UsersDatabaseContract.UsersTable.POST_CODE + ", "
+                    + UsersDatabaseContract.UsersTable.LATITUDE + ", "
+                    + UsersDatabaseContract.UsersTable.LONGITUDE + ", "
+                    + UsersDatabaseContract.UsersTable.GRID_CELL + ", "
+                    + UsersDatabaseContract.UsersTable.EMAIL;
+
+            aDatabase.execSQL("CREATE TABLE " + newUsersTable + " ("
+                    + UsersDatabaseContract.UsersTable._ID + " INTEGER NOT NULL, "
+                    + UsersDatabaseContract.UsersTable.USER_ID + " TEXT, "
+                    + UsersDatabaseContract.UsersTable.TITLE + " TEXT, "
+                    + UsersDatabaseContract.UsersTable.FIRST_NAME + " TEXT, "
+                    + UsersDatabaseContract.UsersTable.LAST_NAME + " TEXT, "
+                    + UsersDatabaseContract.UsersTable.USER_NAME + " TEXT, "
+                    + UsersDatabaseContract.UsersTable.BIRTH_DATE + " INTEGER NOT NULL, "
+                    + UsersDatabaseContract.UsersTable.AGE + " INTEGER NOT NULL, "
+                    + UsersDatabaseContract.UsersTable.REGISTRATION_DATE + " INTEGER NOT NULL, "
+                    + UsersDatabaseContract.UsersTable.REGISTRATION_AGE + " INTEGER NOT NULL, "
+                    + UsersDatabaseContract.UsersTable.PHONE_NUMBER + " TEXT, "
+                    + UsersDatabaseContract.UsersTable.CELL_NUMBER + " TEXT, "
+                    + UsersDatabaseContract.UsersTable.ID_TYPE + " TEXT, "
+                    + UsersDatabaseContract.UsersTable.THUMBNAIL_PICTURE_URL + " TEXT, "
+                    + UsersDatabaseContract.UsersTable.MEDIUM_PICTURE_URL + " TEXT, "
+                    + UsersDatabaseContract.UsersTable.LARGE_PICTURE_URL + " TEXT, "
+                    + UsersDatabaseContract.UsersTable.STREET + " TEXT, "
+                    + UsersDatabaseContract.UsersTable.CITY + " TEXT, "
+                    + UsersDatabaseContract.UsersTable.STATE + " TEXT, "
+                    + UsersDatabaseContract.UsersTable.POST_CODE + " TEXT, "
+                    + UsersDatabaseContract.UsersTable.LATITUDE + " REAL NOT NULL, "
+                    + UsersDatabaseContract.UsersTable.LONGITUDE + " REAL NOT NULL, "
+                    + UsersDatabaseContract.UsersTable.GRID_CELL + " INTEGER NOT NULL, "
+                    + UsersDatabaseContract.UsersTable.TIME_ZONE_OFFSET + " INTEGER NOT NULL, "
+                    + UsersDatabaseContract.UsersTable.EMAIL + " TEXT, "
+                    + "PRIMARY KEY(" + UsersDatabaseContract.UsersTable._ID + "))");
+
+            aDatabase.execSQL("INSERT INTO " + newUsersTable + " ("
+                    + copiedColumns + ", "
+                    + UsersDatabaseContract.UsersTable.TIME_ZONE_OFFSET + ")"
+                    + " SELECT " + copiedColumns + ", "
+                    + "CASE"
+                    + " WHEN " + timeZone + " IS NULL THEN " + TimeZoneUtils.NO_OFFSET
+                    + " WHEN substr(" + timeZone + ", 1, 1) IN ('+', '-')"
+                    + " THEN (CASE substr(" + timeZone + ", 1, 1) WHEN '-' THEN -1 ELSE 1 END)"
+                    + " * (CAST(substr(" + timeZone + ", 2, 2) AS INTEGER) * 60"
+                    + " + CAST(substr(" + timeZone + ", 5, 2) AS INTEGER))"
+                    + " ELSE 0 END"
+                    + " FROM " + usersTable);
+
+            aDatabase.execSQL("DROP TABLE " + usersTable);
+            aDatabase.execSQL("ALTER TABLE " + newUsersTable + " RENAME TO " + usersTable);
+
+            createListIndex(aDatabase);
+            createGridIndex(aDatabase);
+            createSearchTable(aDatabase);
+        }
+    };
+
+    /** Adds source of users. Stored users were fetched with all sections, their page is unknown.*/
+    public static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase aDatabase) {
+
+            aDatabase.execSQL("ALTER TABLE " + UsersDatabaseContract.UsersTable.TABLE_NAME
+                    + " ADD COLUMN " + UsersDatabaseContract.UsersTable.PAGE
+                    + " INTEGER NOT NULL DEFAULT " + User.NO_PAGE);
+            aDatabase.execSQL("ALTER TABLE " + UsersDatabaseContract.UsersTable.TABLE_NAME
+                    + " ADD COLUMN " + UsersDatabaseContract.UsersTable.PARTIAL
+                    + " INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+
+    /**
+     * Creates index for user list.
+     *
+     * @param aDatabase
+     *      Database.
+     */
+    private static void createListIndex(@NonNull SupportSQLiteDatabase aDatabase) {
+
+        aDatabase.execSQL("CREATE INDEX IF NOT EXISTS "
+                + UsersDatabaseContract.UsersTable.LIST_INDEX
+                + " ON " + UsersDatabaseContract.UsersTable.TABLE_NAME + " ("
+                + UsersDatabaseContract.UsersTable.LAST_NAME + ", "
+                + UsersDatabaseContract.UsersTable.FIRST_NAME + ", "
+                + UsersDatabaseContract.UsersTable.TITLE + ", "
+                + UsersDatabaseContract.UsersTable.USER_NAME + ", "
+                + UsersDatabaseContract.UsersTable.MEDIUM_PICTURE_URL + ")");
+    }
+
+    /**
+     * Creates index for spatial lookups.
+     *
+     * @param aDatabase
+     *      Database.
+     */
+    private static void createGridIndex(@NonNull SupportSQLiteDatabase aDatabase) {
+
+        aDatabase.execSQL("CREATE INDEX IF NOT EXISTS "
+                + UsersDatabaseContract.UsersTable.GRID_INDEX
+                + " ON " + UsersDatabaseContract.UsersTable.TABLE_NAME + " ("
+                + UsersDatabaseContract.UsersTable.GRID_CELL + ", "
+                + UsersDatabaseContract.UsersTable.LATITUDE + ", "
+                + UsersDatabaseContract.UsersTable.LONGITUDE + ")");
+    }
+
+    /**
+     * Creates FTS4 table over users table and triggers keeping it in sync. Room doesn't know about
+     * virtual tables, so they are created manually. External content table reads old values of
+     * users table to unindex them, so index is always dropped before the row is changed.
+     * Prefix indexes make prefix queries as fast as queries of whole words.
+     *
+     * @param aDatabase
+     *      Database.
+     */
+    private static void createSearchTable(@NonNull SupportSQLiteDatabase aDatabase) {
+
+        final String searchTable = UsersDatabaseContract.UsersSearchTable.TABLE_NAME;
+        final String usersTable = UsersDatabaseContract.UsersTable.TABLE_NAME;
+        final String searchColumns = UsersDatabaseContract.UsersSearchTable.DOC_ID + ", " + SEARCH_COLUMNS;
+        final String deleteNewRow = "DELETE FROM " + searchTable + " WHERE "
+                + UsersDatabaseContract.UsersSearchTable.DOC_ID + " = new." + UsersDatabaseContract.UsersTable._ID + ";";
+        final String deleteOldRow = "DELETE FROM " + searchTable + " WHERE "
+                + UsersDatabaseContract.UsersSearchTable.DOC_ID + " = old." + UsersDatabaseContract.UsersTable._ID + ";";
+        final String insertNewRow = "INSERT INTO " + searchTable + "(" + searchColumns + ")"
+                + " VALUES(" + NEW_SEARCH_VALUES + ");";
+
+        aDatabase.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS " + searchTable
+                + " USING fts4(" + SEARCH_COLUMNS
+                + ", content=\"" + usersTable + "\""
+                + ", prefix=\"2,3\")");
+
+        // Row replaced on conflict is deleted without delete triggers, so its index is dropped before insert.
+        // The trigger fires for ignored insert as well, so rows are never inserted with ignore on conflict
+        aDatabase.execSQL("CREATE TRIGGER IF NOT EXISTS "
+                + UsersDatabaseContract.UsersSearchTable.INSERT_BEFORE_TRIGGER
+                + " BEFORE INSERT ON " + usersTable
+                + " BEGIN " + deleteNewRow + " END");
+
+        aDatabase.execSQL("CREATE TRIGGER IF NOT EXISTS "
+                + UsersDatabaseContract.UsersSearchTable.INSERT_AFTER_TRIGGER
+                + " AFTER INSERT ON " + usersTable
+                + " BEGIN " + insertNewRow + " END");
+
+        aDatabase.execSQL("CREATE TRIGGER IF NOT EXISTS "
+                + UsersDatabaseContract.UsersSearchTable.UPDATE_BEFORE_TRIGGER
+                + " BEFORE UPDATE ON " + usersTable
+                + " BEGIN " + deleteOldRow + " END");
+
+        aDatabase.execSQL("CREATE TRIGGER IF NOT EXISTS "
+                + UsersDatabaseContract.UsersSearchTable.UPDATE_AFTER_TRIGGER
+                + " AFTER UPDATE ON " + usersTable
+                + " BEGIN " + insertNewRow + " END");
+
+        aDatabase.execSQL("CREATE TRIGGER IF NOT EXISTS "
+                + UsersDatabaseContract.UsersSearchTable.DELETE_BEFORE_TRIGGER
+                + " BEFORE DELETE ON " + usersTable
+                + " BEGIN " + deleteOldRow + " END");
+    }
 
     /**
      * Retrieves users DAO,
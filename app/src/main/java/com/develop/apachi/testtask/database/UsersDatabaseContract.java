@@ -34,8 +34,37 @@ public interface UsersDatabaseContract {
         String CITY = "city";
         String STATE = "state";
         String POST_CODE = "post_code";
+        /** Serialized location of database version 3 and older.*/
         String LOCATION_BLOB = "location";
+        String LATITUDE = "latitude";
+        String LONGITUDE = "longitude";
+        String GRID_CELL = "grid_cell";
+        /** Time zone id of database version 4 and older.*/
         String TIME_ZONE = "time_zone";
+        String TIME_ZONE_OFFSET = "time_zone_offset";
         String EMAIL = "email";
+        String PAGE = "page";
+        String PARTIAL = "partial";
+
+        String LIST_INDEX = "users_list_index";
+        String GRID_INDEX = "users_grid_index";
+    }
+
+    /**
+     * Describes {@link UsersSearchTable#TABLE_NAME} full-text search table schema.
+     * It is external content FTS4 table, it stores index only and reads text from
+     * {@link UsersTable#TABLE_NAME}, its docid is user's {@link UsersTable#_ID}.
+     */
+    interface UsersSearchTable {
+
+        String TABLE_NAME = "users_search";
+
+        String DOC_ID = "docid";
+
+        String INSERT_BEFORE_TRIGGER = "users_search_before_insert";
+        String INSERT_AFTER_TRIGGER = "users_search_after_insert";
+        String UPDATE_BEFORE_TRIGGER = "users_search_before_update";
+        String UPDATE_AFTER_TRIGGER = "users_search_after_update";
+        String DELETE_BEFORE_TRIGGER = "users_search_before_delete";
     }
 }
@@ -2,6 +2,7 @@ package com.develop.apachi.testtask.database.converters;
 
 import android.arch.persistence.room.TypeConverter;
 import android.location.Location;
+import android.support.annotation.Nullable;
 
 import com.develop.apachi.testtask.database.UsersDatabaseContract;
 
@@ -17,12 +18,14 @@ import java.io.ObjectOutputStream;
 public class LocationConverter {
 
     /**
-     * Converts from blob to location.
+     * Converts from blob to location. Blobs written before output was flushed
+     * contain stream header only, they can't be decoded.
      *
      * @param aLocation
      *      Location.
-     * @return Location.
+     * @return Location or null if blob can't be decoded.
      */
+    @Nullable
     @TypeConverter
     public static Location fromBlob(byte[] aLocation) {
 
@@ -41,7 +44,7 @@ public class LocationConverter {
             return location;
         } catch (IOException aEx) {
 
-            return new Location(aEx.getMessage());
+            return null;
         }
     }
 
@@ -62,6 +65,7 @@ public class LocationConverter {
 
             objectOutputStream.writeDouble(aLocation.getLatitude());
             objectOutputStream.writeDouble(aLocation.getLongitude());
+            objectOutputStream.flush();
 
             return byteArrayOutputStream.toByteArray();
         } catch (IOException aEx) {
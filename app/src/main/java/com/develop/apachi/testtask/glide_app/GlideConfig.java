@@ -0,0 +1,51 @@
+package com.develop.apachi.testtask.glide_app;
+
+/**
+ * Glide cache settings.
+ */
+public final class GlideConfig {
+
+    /** Settings tuned for list with lots of small circle avatars.*/
+    public static final GlideConfig DEFAULT = new GlideConfig(
+            3f,
+            2f,
+            300L * 1024 * 1024);
+
+    /** Memory cache size in count of screens of ARGB_8888 pixels.*/
+    private final float iMemoryCacheScreens;
+
+    /** Bitmap pool size in count of screens of ARGB_8888 pixels.*/
+    private final float iBitmapPoolScreens;
+
+    /** Disk cache size in bytes, it keeps thousands of small avatars. Glide's default is 250 MB.*/
+    private final long iDiskCacheSize;
+
+    /**
+     * @param aMemoryCacheScreens
+     *      Memory cache size in count of screens.
+     * @param aBitmapPoolScreens
+     *      Bitmap pool size in count of screens.
+     * @param aDiskCacheSize
+     *      Disk cache size in bytes.
+     */
+    public GlideConfig(float aMemoryCacheScreens,
+                       float aBitmapPoolScreens,
+                       long aDiskCacheSize) {
+
+        iMemoryCacheScreens = aMemoryCacheScreens;
+        iBitmapPoolScreens = aBitmapPoolScreens;
+        iDiskCacheSize = aDiskCacheSize;
+    }
+
+    public float getMemoryCacheScreens() {
+        return iMemoryCacheScreens;
+    }
+
+    public float getBitmapPoolScreens() {
+        return iBitmapPoolScreens;
+    }
+
+    public long getDiskCacheSize() {
+        return iDiskCacheSize;
+    }
+}
@@ -1,12 +1,50 @@
 package com.develop.apachi.testtask.glide_app;
 
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+import com.bumptech.glide.GlideBuilder;
 import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruArrayPool;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
 import com.bumptech.glide.module.AppGlideModule;
 
 /**
  * Important to setup, automatically generates glide lib code to use.
+ * Configures caches with {@link GlideConfig#DEFAULT}.
  */
 @GlideModule
 public class RandomGlideModule extends AppGlideModule {
-    //NOP
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void applyOptions(@NonNull Context aContext, @NonNull GlideBuilder aBuilder) {
+
+        final GlideConfig config = GlideConfig.DEFAULT;
+
+        final MemorySizeCalculator calculator = new MemorySizeCalculator.Builder(aContext)
+                .setMemoryCacheScreens(config.getMemoryCacheScreens())
+                .setBitmapPoolScreens(config.getBitmapPoolScreens())
+                .build();
+
+        aBuilder.setMemoryCache(new LruResourceCache(calculator.getMemoryCacheSize()))
+                .setBitmapPool(new LruBitmapPool(calculator.getBitmapPoolSize()))
+                .setArrayPool(new LruArrayPool(calculator.getArrayPoolSizeInBytes()))
+                .setDiskCache(new InternalCacheDiskCacheFactory(aContext, config.getDiskCacheSize()));
+    }
+
+    /**
+     * There are no manifest modules, skips manifest parsing on initialization.
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
 }
@@ -0,0 +1,138 @@
+package com.develop.apachi.testtask.metrics;
+
+import android.support.annotation.AnyThread;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies with fixed exponential buckets. Percentiles are
+ * estimated by upper bounds of buckets, so they are precise enough for tuning and
+ * recording costs a few atomic increments.
+ */
+@AnyThread
+public class LatencyHistogram {
+
+    /** Upper bounds of buckets in milliseconds, the last bucket is unbounded.*/
+    private static final long[] BUCKET_BOUNDS_MILLIS = {
+            1, 2, 5, 10, 20, 50, 100, 200, 500, 1_000, 2_000, 5_000, 10_000, 30_000};
+
+    /** Counts of samples in buckets.*/
+    private final AtomicLongArray iBuckets = new AtomicLongArray(BUCKET_BOUNDS_MILLIS.length + 1);
+
+    /** Total count of samples.*/
+    private final AtomicLong iCount = new AtomicLong();
+
+    /** Sum of all samples in milliseconds.*/
+    private final AtomicLong iSumMillis = new AtomicLong();
+
+    /** The longest sample in milliseconds.*/
+    private final AtomicLong iMaxMillis = new AtomicLong();
+
+    /**
+     * Records sample.
+     *
+     * @param aMillis
+     *      Latency in milliseconds.
+     */
+    public void record(long aMillis) {
+
+        iBuckets.incrementAndGet(getBucket(aMillis));
+        iCount.incrementAndGet();
+        iSumMillis.addAndGet(aMillis);
+
+        long max = iMaxMillis.get();
+
+        while (aMillis > max && !iMaxMillis.compareAndSet(max, aMillis)) {
+            max = iMaxMillis.get();
+        }
+    }
+
+    /**
+     * @return Count of samples.
+     */
+    public long getCount() {
+
+        return iCount.get();
+    }
+
+    /**
+     * @return Mean latency in milliseconds or 0 if there are no samples.
+     */
+    public long getMeanMillis() {
+
+        final long count = iCount.get();
+
+        return count == 0 ? 0 : iSumMillis.get() / count;
+    }
+
+    /**
+     * @return The longest latency in milliseconds.
+     */
+    public long getMaxMillis() {
+
+        return iMaxMillis.get();
+    }
+
+    /**
+     * Estimates percentile of latency.
+     *
+     * @param aPercentile
+     *      Percentile from 0 to 1.
+     * @return Upper bound of bucket with percentile in milliseconds, the longest latency
+     *      for the unbounded bucket or 0 if there are no samples.
+     */
+    public long getPercentileMillis(double aPercentile) {
+
+        final long count = iCount.get();
+
+        if (count == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(aPercentile * count));
+        long seen = 0;
+
+        for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+
+            seen += iBuckets.get(i);
+
+            if (seen >= rank) {
+                return Math.min(BUCKET_BOUNDS_MILLIS[i], iMaxMillis.get());
+            }
+        }
+
+        return iMaxMillis.get();
+    }
+
+    /**
+     * Removes all samples.
+     */
+    public void reset() {
+
+        for (int i = 0; i < iBuckets.length(); i++) {
+            iBuckets.set(i, 0);
+        }
+
+        iCount.set(0);
+        iSumMillis.set(0);
+        iMaxMillis.set(0);
+    }
+
+    /**
+     * @param aMillis
+     *      Latency in milliseconds.
+     * @return Index of bucket.
+     */
+    private static int getBucket(long aMillis) {
+
+        for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+
+            if (aMillis <= BUCKET_BOUNDS_MILLIS[i]) {
+                return i;
+            }
+        }
+
+        return BUCKET_BOUNDS_MILLIS.length;
+    }
+}
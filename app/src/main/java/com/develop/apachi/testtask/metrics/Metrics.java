@@ -0,0 +1,189 @@
+package com.develop.apachi.testtask.metrics;
+
+import android.support.annotation.AnyThread;
+import android.support.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory metrics of data sources: counters of hits, misses and errors, counts of bytes
+ * and latency histograms. Metrics live while process lives, they are read by debug overlay.
+ */
+@AnyThread
+public class Metrics {
+
+    /** Persons served from memory cache.*/
+    public static final String MEMORY_HITS = "memory.hits";
+    /** Memory cache was empty, truncated or stale.*/
+    public static final String MEMORY_MISSES = "memory.misses";
+
+    /** Persons served from database.*/
+    public static final String DATABASE_HITS = "database.hits";
+    /** Database had no persons.*/
+    public static final String DATABASE_MISSES = "database.misses";
+    /** Database reads failed.*/
+    public static final String DATABASE_ERRORS = "database.errors";
+
+    /** Persons served from network.*/
+    public static final String NETWORK_HITS = "network.hits";
+    /** Network fetches failed.*/
+    public static final String NETWORK_ERRORS = "network.errors";
+    /** Refreshes of stale persons failed, while stored persons were shown.*/
+    public static final String REVALIDATION_ERRORS = "network.revalidation_errors";
+
+    /** Responses served from HTTP cache without network.*/
+    public static final String HTTP_CACHE_HITS = "http_cache.hits";
+    /** Responses received from network.*/
+    public static final String HTTP_CACHE_MISSES = "http_cache.misses";
+    /** Bytes of response bodies received from network as they are sent, i.e. compressed.*/
+    public static final String NETWORK_BYTES = "network.bytes";
+
+    /** Time from sending request to receiving response headers.*/
+    public static final String NETWORK_LATENCY = "network";
+    /** Time of reading and parsing response body.*/
+    public static final String PARSE_LATENCY = "parse";
+    /** Time of reading persons from database.*/
+    public static final String DATABASE_READ_LATENCY = "database.read";
+    /** Time of writing persons into database.*/
+    public static final String DATABASE_WRITE_LATENCY = "database.write";
+
+    /** Counters by names.*/
+    @NonNull
+    private final ConcurrentMap<String, AtomicLong> iCounters = new ConcurrentHashMap<>();
+
+    /** Latency histograms by names.*/
+    @NonNull
+    private final ConcurrentMap<String, LatencyHistogram> iHistograms = new ConcurrentHashMap<>();
+
+    /**
+     * Increments counter.
+     *
+     * @param aCounter
+     *      Name of counter.
+     */
+    public void increment(@NonNull String aCounter) {
+
+        add(aCounter, 1);
+    }
+
+    /**
+     * Adds value to counter.
+     *
+     * @param aCounter
+     *      Name of counter.
+     * @param aValue
+     *      Added value.
+     */
+    public void add(@NonNull String aCounter, long aValue) {
+
+        AtomicLong counter = iCounters.get(aCounter);
+
+        if (counter == null) {
+
+            final AtomicLong newCounter = new AtomicLong();
+
+            counter = iCounters.putIfAbsent(aCounter, newCounter);
+            counter = counter == null ? newCounter : counter;
+        }
+
+        counter.addAndGet(aValue);
+    }
+
+    /**
+     * Records latency of stage, which has been started at given time.
+     *
+     * @param aHistogram
+     *      Name of latency histogram.
+     * @param aStartNanos
+     *      Start time of stage by {@link System#nanoTime()}.
+     */
+    public void recordLatency(@NonNull String aHistogram, long aStartNanos) {
+
+        getHistogram(aHistogram).record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - aStartNanos));
+    }
+
+    /**
+     * @param aCounter
+     *      Name of counter.
+     * @return Value of counter, 0 if nothing was counted yet.
+     */
+    public long getCounter(@NonNull String aCounter) {
+
+        final AtomicLong counter = iCounters.get(aCounter);
+
+        return counter == null ? 0 : counter.get();
+    }
+
+    /**
+     * @param aHistogram
+     *      Name of latency histogram.
+     * @return Latency histogram, it is created if nothing was recorded yet.
+     */
+    @NonNull
+    public LatencyHistogram getHistogram(@NonNull String aHistogram) {
+
+        LatencyHistogram histogram = iHistograms.get(aHistogram);
+
+        if (histogram == null) {
+
+            final LatencyHistogram newHistogram = new LatencyHistogram();
+
+            histogram = iHistograms.putIfAbsent(aHistogram, newHistogram);
+            histogram = histogram == null ? newHistogram : histogram;
+        }
+
+        return histogram;
+    }
+
+    /**
+     * Resets all counters and histograms.
+     */
+    public void reset() {
+
+        for (AtomicLong counter : iCounters.values()) {
+            counter.set(0);
+        }
+
+        for (LatencyHistogram histogram : iHistograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * @return Human readable report of all metrics sorted by names, one metric per line.
+     */
+    @NonNull
+    public String describe() {
+
+        final StringBuilder report = new StringBuilder();
+
+        for (Map.Entry<String, AtomicLong> counter : new TreeMap<>(iCounters).entrySet()) {
+
+            report.append(counter.getKey())
+                    .append(": ")
+                    .append(counter.getValue().get())
+                    .append('\n');
+        }
+
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(iHistograms).entrySet()) {
+
+            final LatencyHistogram histogram = entry.getValue();
+
+            report.append(String.format(Locale.US, "%s: n=%d mean=%dms p50=%dms p95=%dms max=%dms\n",
+                    entry.getKey(),
+                    histogram.getCount(),
+                    histogram.getMeanMillis(),
+                    histogram.getPercentileMillis(0.5),
+                    histogram.getPercentileMillis(0.95),
+                    histogram.getMaxMillis()));
+        }
+
+        return report.toString();
+    }
+}
@@ -2,64 +2,78 @@ package com.develop.apachi.testtask.model;
 
 import android.arch.persistence.room.ColumnInfo;
 import android.arch.persistence.room.Entity;
-import android.arch.persistence.room.PrimaryKey;
+import android.arch.persistence.room.Index;
 import android.location.Location;
 import android.support.annotation.AnyThread;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.v4.util.ObjectsCompat;
 
 import com.develop.apachi.testtask.database.UsersDatabaseContract;
-import com.develop.apachi.testtask.model.adapters.UserDeserializer;
+import com.develop.apachi.testtask.model.adapters.UserTypeAdapter;
+import com.develop.apachi.testtask.utils.GeoGrid;
+import com.develop.apachi.testtask.utils.TimeZoneUtils;
 import com.google.gson.annotations.JsonAdapter;
 
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 
+import java.util.UUID;
+
 /**
  * User model with full user data.
  *
+ * List is ordered by last and first name, so there is index by them. Index also covers the rest of
+ * {@link UserListItem} columns, so list is loaded by single index walk without table lookups.
+ * Coordinates are plain columns indexed by {@link GeoGrid} cell, so users in area are found by index.
+ * Dates, time zone and location are kept in primitive fields, rich objects are created on demand.
+ *
  * {@see https://randomuser.me/documentation#format}
  */
-@JsonAdapter(value = UserDeserializer.class)
-@Entity(tableName = UsersDatabaseContract.UsersTable.TABLE_NAME)
+@JsonAdapter(value = UserTypeAdapter.class)
+@Entity(tableName = UsersDatabaseContract.UsersTable.TABLE_NAME,
+        primaryKeys = UsersDatabaseContract.UsersTable._ID,
+        indices = {
+                @Index(name = UsersDatabaseContract.UsersTable.LIST_INDEX,
+                        value = {
+                                UsersDatabaseContract.UsersTable.LAST_NAME,
+                                UsersDatabaseContract.UsersTable.FIRST_NAME,
+                                UsersDatabaseContract.UsersTable.TITLE,
+                                UsersDatabaseContract.UsersTable.USER_NAME,
+                                UsersDatabaseContract.UsersTable.MEDIUM_PICTURE_URL}),
+                @Index(name = UsersDatabaseContract.UsersTable.GRID_INDEX,
+                        value = {
+                                UsersDatabaseContract.UsersTable.GRID_CELL,
+                                UsersDatabaseContract.UsersTable.LATITUDE,
+                                UsersDatabaseContract.UsersTable.LONGITUDE})})
 @AnyThread
-public class User {
+public class User extends UserListItem {
+
+    /** Value of unknown date.*/
+    public static final long NO_DATE = Long.MIN_VALUE;
+
+    /** Page of user is unknown.*/
+    public static final int NO_PAGE = 0;
+
+    /** 64-bit FNV-1a hash parameters.*/
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    /** Separates id number and user name in hash, so their boundary matters.*/
+    private static final char KEY_PARTS_SEPARATOR = '\u0000';
 
-    /** Primary key is random int, because API retrieves nullable values, sometimes.*/
-    @PrimaryKey
-    @ColumnInfo(name = UsersDatabaseContract.UsersTable._ID)
-    private int id;
     /** Id number. Based on user Id data.*/
     @ColumnInfo(name = UsersDatabaseContract.UsersTable.USER_ID)
     @Nullable
     private final String idNumber;
-    /** User's title. Depending on state.*/
-    @Nullable
-    @ColumnInfo(name = UsersDatabaseContract.UsersTable.TITLE)
-    private final String title;
-    /** User's first name.*/
-    @Nullable
-    @ColumnInfo(name = UsersDatabaseContract.UsersTable.FIRST_NAME)
-    private final String firstName;
-    /** User's last name.*/
-    @Nullable
-    @ColumnInfo(name = UsersDatabaseContract.UsersTable.LAST_NAME)
-    private final String lastName;
-    /** User's nick name from user credentials JSON section.*/
-    @Nullable
-    @ColumnInfo(name = UsersDatabaseContract.UsersTable.USER_NAME)
-    private final String userName;
-    /** User's birth date.*/
-    @Nullable
+    /** User's birth date in epoch millis or {@link #NO_DATE}.*/
     @ColumnInfo(name = UsersDatabaseContract.UsersTable.BIRTH_DATE)
-    private final DateTime birthDate;
+    private final long birthDate;
     /** User's age.*/
     @ColumnInfo(name = UsersDatabaseContract.UsersTable.AGE)
     private final int age;
-    /** User's registration date.*/
-    @Nullable
+    /** User's registration date in epoch millis or {@link #NO_DATE}.*/
     @ColumnInfo(name = UsersDatabaseContract.UsersTable.REGISTRATION_DATE)
-    private final DateTime registrationDate;
+    private final long registrationDate;
     /** User's registration age.*/
     @ColumnInfo(name = UsersDatabaseContract.UsersTable.REGISTRATION_AGE)
     private final int registrationAge;
@@ -79,10 +93,6 @@ public class User {
     @Nullable
     @ColumnInfo(name = UsersDatabaseContract.UsersTable.THUMBNAIL_PICTURE_URL)
     private final String thumbnailPictureUrl;
-    /** Url of medium image.*/
-    @Nullable
-    @ColumnInfo(name = UsersDatabaseContract.UsersTable.MEDIUM_PICTURE_URL)
-    private final String mediumPictureUrl;
     /** Url of large image.*/
     @Nullable
     @ColumnInfo(name = UsersDatabaseContract.UsersTable.LARGE_PICTURE_URL)
@@ -102,30 +112,40 @@ public class User {
     /** Storing post code always in Integer values, because post code is always number.*/
     @ColumnInfo(name = UsersDatabaseContract.UsersTable.POST_CODE)
     private final String postCode;
-    /** Using default Android location system instead of two variables.*/
-    @Nullable
-    @ColumnInfo(name = UsersDatabaseContract.UsersTable.LOCATION_BLOB)
-    private final Location location;
-    /** Using DateTimeZone from JodaTime for more functionality.*/
-    @Nullable
-    @ColumnInfo(name = UsersDatabaseContract.UsersTable.TIME_ZONE)
-    private final DateTimeZone userTimeZone;
+    /** User's latitude, meaningless if there is no grid cell.*/
+    @ColumnInfo(name = UsersDatabaseContract.UsersTable.LATITUDE)
+    private final double latitude;
+    /** User's longitude, meaningless if there is no grid cell.*/
+    @ColumnInfo(name = UsersDatabaseContract.UsersTable.LONGITUDE)
+    private final double longitude;
+    /** Cell of {@link GeoGrid} with user's coordinates or {@link GeoGrid#NO_CELL} if location is unknown.*/
+    @ColumnInfo(name = UsersDatabaseContract.UsersTable.GRID_CELL)
+    private final int gridCell;
+    /** Offset of user's time zone in minutes or {@link TimeZoneUtils#NO_OFFSET}.*/
+    @ColumnInfo(name = UsersDatabaseContract.UsersTable.TIME_ZONE_OFFSET)
+    private final int timeZoneOffset;
     /** User email is just data, using simple string.*/
     @Nullable
     @ColumnInfo(name = UsersDatabaseContract.UsersTable.EMAIL)
     private final String email;
+    /** Page of seeded data set user was fetched with or {@link #NO_PAGE}.*/
+    @ColumnInfo(name = UsersDatabaseContract.UsersTable.PAGE)
+    private final int page;
+    /** User was fetched with list sections only, details are fetched on demand.*/
+    @ColumnInfo(name = UsersDatabaseContract.UsersTable.PARTIAL)
+    private final boolean partial;
 
     /**
      * Public constructor for Room.
      */
-    public User(int id, @NonNull String idNumber,
+    public User(long id, @Nullable String idNumber,
                 @Nullable String title,
                 @Nullable String firstName,
                 @Nullable String lastName,
                 @Nullable String userName,
-                @Nullable DateTime birthDate,
+                long birthDate,
                 int age,
-                @Nullable DateTime registrationDate,
+                long registrationDate,
                 int registrationAge,
                 @Nullable String phoneNumber,
                 @Nullable String cellNumber,
@@ -137,15 +157,15 @@ public class User {
                 @Nullable String city,
                 @Nullable String state,
                 @Nullable String postCode,
-                @Nullable Location location,
-                @Nullable DateTimeZone userTimeZone,
-                @Nullable String email) {
-        this.id = id;
+                double latitude,
+                double longitude,
+                int gridCell,
+                int timeZoneOffset,
+                @Nullable String email,
+                int page,
+                boolean partial) {
+        super(id, title, firstName, lastName, userName, mediumPictureUrl);
         this.idNumber = idNumber;
-        this.title = title;
-        this.firstName = firstName;
-        this.lastName = lastName;
-        this.userName = userName;
         this.birthDate = birthDate;
         this.age = age;
         this.registrationDate = registrationDate;
@@ -154,15 +174,18 @@ public class User {
         this.cellNumber = cellNumber;
         this.idType = idType;
         this.thumbnailPictureUrl = thumbnailPictureUrl;
-        this.mediumPictureUrl = mediumPictureUrl;
         this.largePictureUrl = largePictureUrl;
         this.street = street;
         this.city = city;
         this.state = state;
         this.postCode = postCode;
-        this.location = location;
-        this.userTimeZone = userTimeZone;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.gridCell = gridCell;
+        this.timeZoneOffset = timeZoneOffset;
         this.email = email;
+        this.page = page;
+        this.partial = partial;
     }
 
     /**
@@ -172,34 +195,54 @@ public class User {
      *      User builder.
      */
     private User(@NonNull Builder aUserBuilder) {
+        super(createStableId(aUserBuilder),
+                aUserBuilder.iTitle,
+                aUserBuilder.iFirstName,
+                aUserBuilder.iLastName,
+                aUserBuilder.iUserName,
+                aUserBuilder.iMediumPicture);
 
-        id = (int) System.currentTimeMillis();
         idNumber = aUserBuilder.iIdNumber;
         age = aUserBuilder.iAge;
         birthDate = aUserBuilder.iBirthDate;
         cellNumber = aUserBuilder.iCellNumber;
         city = aUserBuilder.iCity;
         email = aUserBuilder.iEmail;
-        firstName = aUserBuilder.iFirstName;
         idType = aUserBuilder.iIdType;
         largePictureUrl = aUserBuilder.iLargePicture;
-        lastName = aUserBuilder.iLastName;
-        location = aUserBuilder.iLocation;
-        mediumPictureUrl = aUserBuilder.iMediumPicture;
+        latitude = aUserBuilder.iLatitude;
+        longitude = aUserBuilder.iLongitude;
+        gridCell = aUserBuilder.iHasLocation
+                ? GeoGrid.getCell(aUserBuilder.iLatitude, aUserBuilder.iLongitude)
+                : GeoGrid.NO_CELL;
         phoneNumber = aUserBuilder.iPhoneNumber;
         postCode = aUserBuilder.iPostCode;
         registrationAge = aUserBuilder.iRegistrationAge;
         registrationDate = aUserBuilder.iRegistrationDate;
         state = aUserBuilder.iState;
-        title = aUserBuilder.iTitle;
-        userName = aUserBuilder.iUserName;
-        userTimeZone = aUserBuilder.iUserTimeZone;
+        timeZoneOffset = aUserBuilder.iTimeZoneOffset;
         thumbnailPictureUrl = aUserBuilder.iThumbnailPicture;
         street = aUserBuilder.iStreet;
+        page = NO_PAGE;
+        partial = false;
     }
 
-    public int getId() {
-        return id;
+    /**
+     * Creates copy of user with its source.
+     *
+     * @param aPage
+     *      Page of seeded data set user was fetched with.
+     * @param aPartial
+     *      true if user was fetched with list sections only.
+     * @return New user.
+     */
+    @NonNull
+    public User withSource(int aPage, boolean aPartial) {
+
+        return new User(getId(), idNumber, getTitle(), getFirstName(), getLastName(), getUserName(),
+                birthDate, age, registrationDate, registrationAge, phoneNumber, cellNumber, idType,
+                thumbnailPictureUrl, getMediumPictureUrl(), largePictureUrl, street, city, state, postCode,
+                latitude, longitude, gridCell, timeZoneOffset, email, aPage, aPartial);
     }
 
     @Nullable
@@ -207,38 +250,32 @@ public class User {
         return idNumber;
     }
 
-    @Nullable
-    public String getTitle() {
-        return title;
-    }
-
-    @Nullable
-    public String getFirstName() {
-        return firstName;
-    }
-
-    @Nullable
-    public String getLastName() {
-        return lastName;
-    }
-
-    @Nullable
-    public String getUserName() {
-        return userName;
+    public long getBirthDateMillis() {
+        return birthDate;
     }
 
+    /**
+     * @return New birth date or null if it is unknown.
+     */
     @Nullable
     public DateTime getBirthDate() {
-        return birthDate;
+        return toDateTime(birthDate);
     }
 
     public int getAge() {
         return age;
     }
 
+    public long getRegistrationDateMillis() {
+        return registrationDate;
+    }
+
+    /**
+     * @return New registration date or null if it is unknown.
+     */
     @Nullable
     public DateTime getRegistrationDate() {
-        return registrationDate;
+        return toDateTime(registrationDate);
     }
 
     public int getRegistrationAge() {
@@ -265,11 +302,6 @@ public class User {
         return thumbnailPictureUrl;
     }
 
-    @Nullable
-    public String getMediumPictureUrl() {
-        return mediumPictureUrl;
-    }
-
     @Nullable
     public String getLargePictureUrl() {
         return largePictureUrl;
@@ -294,14 +326,48 @@ public class User {
         return postCode;
     }
 
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public int getGridCell() {
+        return gridCell;
+    }
+
+    /**
+     * Creates location from stored coordinates. Location is created on demand,
+     * so loading of users doesn't allocate it.
+     *
+     * @return New location or null if location is unknown.
+     */
     @Nullable
     public Location getLocation() {
+
+        if (gridCell == GeoGrid.NO_CELL) {
+            return null;
+        }
+
+        final Location location = new Location(UsersDatabaseContract.DATABASE_NAME);
+        location.setLatitude(latitude);
+        location.setLongitude(longitude);
+
         return location;
     }
 
+    public int getTimeZoneOffset() {
+        return timeZoneOffset;
+    }
+
+    /**
+     * @return Shared time zone instance or null if it is unknown.
+     */
     @Nullable
     public DateTimeZone getUserTimeZone() {
-        return userTimeZone;
+        return TimeZoneUtils.forOffsetMinutes(timeZoneOffset);
     }
 
     @Nullable
@@ -309,12 +375,162 @@ public class User {
         return email;
     }
 
+    public int getPage() {
+        return page;
+    }
+
+    public boolean isPartial() {
+        return partial;
+    }
+
+    /**
+     * Compares data, which partial user has: list data, location and email.
+     *
+     * @param aUser
+     *      Other user.
+     * @return true if both users have the same partial data.
+     */
+    public boolean hasSamePartialData(@NonNull User aUser) {
+
+        return hasSameListData(aUser)
+                && timeZoneOffset == aUser.timeZoneOffset
+                && ObjectsCompat.equals(street, aUser.street)
+                && ObjectsCompat.equals(city, aUser.city)
+                && ObjectsCompat.equals(state, aUser.state)
+                && ObjectsCompat.equals(postCode, aUser.postCode)
+                && gridCell == aUser.gridCell
+                && Double.compare(latitude, aUser.latitude) == 0
+                && Double.compare(longitude, aUser.longitude) == 0
+                && ObjectsCompat.equals(email, aUser.email);
+    }
+
+    /**
+     * Creates date time in default zone.
+     *
+     * @param aMillis
+     *      Epoch millis or {@link #NO_DATE}.
+     * @return New date time or null if there is no date.
+     */
+    @Nullable
+    private static DateTime toDateTime(long aMillis) {
+
+        return aMillis == NO_DATE ? null : new DateTime(aMillis);
+    }
+
+    /**
+     * Creates primary key from login uuid. If there is no valid uuid, key is 64-bit FNV-1a hash
+     * of id number and user name.
+     *
+     * @param aUserBuilder
+     *      User builder.
+     * @return Stable key of user.
+     */
+    private static long createStableId(@NonNull Builder aUserBuilder) {
+
+        if (aUserBuilder.iUuid != null) {
+
+            try {
+                final UUID uuid = UUID.fromString(aUserBuilder.iUuid);
+
+                return uuid.getMostSignificantBits() ^ uuid.getLeastSignificantBits();
+            } catch (IllegalArgumentException aEx) {
+                // Falls back to hash of other data
+            }
+        }
+
+        long hash = FNV_OFFSET_BASIS;
+
+        hash = hashString(hash, aUserBuilder.iIdNumber);
+        hash = (hash ^ KEY_PARTS_SEPARATOR) * FNV_PRIME;
+        hash = hashString(hash, aUserBuilder.iUserName);
+
+        return hash;
+    }
+
+    /**
+     * Continues FNV-1a hash with characters of string.
+     *
+     * @param aHash
+     *      Current hash.
+     * @param aValue
+     *      String, null is hashed as empty string.
+     * @return New hash.
+     */
+    private static long hashString(long aHash, @Nullable String aValue) {
+
+        long hash = aHash;
+
+        if (aValue != null) {
+
+            for (int i = 0; i < aValue.length(); i++) {
+                hash = (hash ^ aValue.charAt(i)) * FNV_PRIME;
+            }
+        }
+
+        return hash;
+    }
+
+    /**
+     * Users are equal, when all their stored fields are equal.
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(@Nullable Object aObject) {
+
+        if (this == aObject) {
+            return true;
+        }
+
+        if (aObject == null || getClass() != aObject.getClass()) {
+            return false;
+        }
+
+        final User user = (User) aObject;
+
+        return hasSameListData(user)
+                && age == user.age
+                && registrationAge == user.registrationAge
+                && ObjectsCompat.equals(idNumber, user.idNumber)
+                && birthDate == user.birthDate
+                && registrationDate == user.registrationDate
+                && timeZoneOffset == user.timeZoneOffset
+                && ObjectsCompat.equals(phoneNumber, user.phoneNumber)
+                && ObjectsCompat.equals(cellNumber, user.cellNumber)
+                && ObjectsCompat.equals(idType, user.idType)
+                && ObjectsCompat.equals(thumbnailPictureUrl, user.thumbnailPictureUrl)
+                && ObjectsCompat.equals(largePictureUrl, user.largePictureUrl)
+                && ObjectsCompat.equals(street, user.street)
+                && ObjectsCompat.equals(city, user.city)
+                && ObjectsCompat.equals(state, user.state)
+                && ObjectsCompat.equals(postCode, user.postCode)
+                && gridCell == user.gridCell
+                && Double.compare(latitude, user.latitude) == 0
+                && Double.compare(longitude, user.longitude) == 0
+                && ObjectsCompat.equals(email, user.email)
+                && page == user.page
+                && partial == user.partial;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+
+        return ObjectsCompat.hash(getId(), idNumber, getFirstName(), getLastName(), getUserName(), email);
+    }
+
     /**
      * Builder class to create users.
      */
     public static class Builder {
 
-        private final String iIdNumber;
+        @Nullable
+        private String iIdNumber;
+
+        @Nullable
+        private String iUuid;
 
         @Nullable
         private String iTitle;
@@ -328,13 +544,11 @@ public class User {
         @Nullable
         private String iUserName;
 
-        @Nullable
-        private DateTime iBirthDate;
+        private long iBirthDate = NO_DATE;
 
         private int iAge;
 
-        @Nullable
-        private DateTime iRegistrationDate;
+        private long iRegistrationDate = NO_DATE;
 
         private int iRegistrationAge;
 
@@ -366,12 +580,15 @@ public class User {
         private String iState;
 
         private String iPostCode;
-        /** Using default Android location system instead of two variables.*/
-        @Nullable
-        private Location iLocation;
-        /** Using DateTimeZone from JodaTime for more functionality.*/
-        @Nullable
-        private DateTimeZone iUserTimeZone;
+
+        private double iLatitude;
+
+        private double iLongitude;
+
+        private boolean iHasLocation;
+
+        private int iTimeZoneOffset = TimeZoneUtils.NO_OFFSET;
+
         /** User email is just data, using simple string.*/
         @Nullable
         private String iEmail;
@@ -387,6 +604,29 @@ public class User {
             iIdNumber = aIdNumber;
         }
 
+        /**
+         * Builder constructor for streaming parsers, which meet id section at any position.
+         */
+        public Builder() {
+            this(null);
+        }
+
+        /**
+         * @param aIdNumber Id number.
+         */
+        public Builder setIdNumber(@Nullable String aIdNumber) {
+            iIdNumber = aIdNumber;
+            return this;
+        }
+
+        /**
+         * @param aUuid User's login uuid, used as stable key.
+         */
+        public Builder setUuid(@Nullable String aUuid) {
+            iUuid = aUuid;
+            return this;
+        }
+
         /**
          * @param aTitle Users's title.
          */
@@ -423,6 +663,13 @@ public class User {
          * @param aBirthDate User's birth date.
          */
         public Builder setBirthDate(@Nullable DateTime aBirthDate) {
+            return setBirthDateMillis(aBirthDate == null ? NO_DATE : aBirthDate.getMillis());
+        }
+
+        /**
+         * @param aBirthDate User's birth date in epoch millis or {@link #NO_DATE}.
+         */
+        public Builder setBirthDateMillis(long aBirthDate) {
             iBirthDate = aBirthDate;
             return this;
         }
@@ -439,6 +686,13 @@ public class User {
          * @param aRegistrationDate User's registration date and time.
          */
         public Builder setRegistrationDate(@Nullable DateTime aRegistrationDate) {
+            return setRegistrationDateMillis(aRegistrationDate == null ? NO_DATE : aRegistrationDate.getMillis());
+        }
+
+        /**
+         * @param aRegistrationDate User's registration date in epoch millis or {@link #NO_DATE}.
+         */
+        public Builder setRegistrationDateMillis(long aRegistrationDate) {
             iRegistrationDate = aRegistrationDate;
             return this;
         }
@@ -535,7 +789,23 @@ public class User {
          * @param aLocation User's location.
          */
         public Builder setLocation(@Nullable Location aLocation) {
-            iLocation = aLocation;
+
+            if (aLocation == null) {
+                iHasLocation = false;
+                return this;
+            }
+
+            return setCoordinates(aLocation.getLatitude(), aLocation.getLongitude());
+        }
+
+        /**
+         * @param aLatitude User's latitude.
+         * @param aLongitude User's longitude.
+         */
+        public Builder setCoordinates(double aLatitude, double aLongitude) {
+            iLatitude = aLatitude;
+            iLongitude = aLongitude;
+            iHasLocation = true;
             return this;
         }
 
@@ -543,7 +813,14 @@ public class User {
          * @param aUserTimeZone User's time zone.
          */
         public Builder setUserTimeZone(@Nullable DateTimeZone aUserTimeZone) {
-            iUserTimeZone = aUserTimeZone;
+            return setTimeZoneOffset(TimeZoneUtils.getOffsetMinutes(aUserTimeZone));
+        }
+
+        /**
+         * @param aTimeZoneOffset Offset of user's time zone in minutes or {@link TimeZoneUtils#NO_OFFSET}.
+         */
+        public Builder setTimeZoneOffset(int aTimeZoneOffset) {
+            iTimeZoneOffset = aTimeZoneOffset;
             return this;
         }
 
@@ -0,0 +1,330 @@
+package com.develop.apachi.testtask.model;
+
+import android.support.annotation.AnyThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded in-memory cache of users. Users loaded from database are list items only,
+ * users loaded from network are full users.
+ *
+ * Readers always get immutable snapshot without any locking, writers build new snapshot
+ * under the lock and publish it at once (copy-on-write). Every snapshot has id index,
+ * so single user lookups don't scan the list. When total weight of users exceeds maximum weight,
+ * the oldest users are evicted and snapshot is marked as truncated.
+ */
+@AnyThread
+public class UserCache {
+
+    /** Every user weights one entry.*/
+    public static final IWeigher ENTRIES_WEIGHER = aUser -> 1;
+
+    /** Every user weights approximate count of bytes it retains in heap.*/
+    public static final IWeigher BYTES_WEIGHER = UserCache::estimateRetainedSize;
+
+    /** Approximate size of user object with its primitive fields.*/
+    private static final int USER_SHALLOW_SIZE = 128;
+    /** Approximate size of list item object with its primitive fields.*/
+    private static final int LIST_ITEM_SHALLOW_SIZE = 40;
+    /** Approximate size of string object without characters.*/
+    private static final int STRING_SHALLOW_SIZE = 40;
+
+    /** Maximum total weight of cached users.*/
+    private final int iMaxWeight;
+
+    /** Weigher of cached users.*/
+    @NonNull
+    private final IWeigher iWeigher;
+
+    /** Guards writers only, readers use published snapshot.*/
+    @NonNull
+    private final Object iWriteLock = new Object();
+
+    /** Current published snapshot.*/
+    @NonNull
+    private volatile Snapshot iSnapshot = Snapshot.EMPTY;
+
+    /**
+     * Creates cache bounded by count of users.
+     *
+     * @param aMaxEntries
+     *      Maximum count of cached users.
+     */
+    public UserCache(int aMaxEntries) {
+
+        this(aMaxEntries, ENTRIES_WEIGHER);
+    }
+
+    /**
+     * Creates cache bounded by custom weight.
+     *
+     * @param aMaxWeight
+     *      Maximum total weight of cached users.
+     * @param aWeigher
+     *      Weigher of users, e.g. {@link #ENTRIES_WEIGHER} or {@link #BYTES_WEIGHER}.
+     */
+    public UserCache(int aMaxWeight, @NonNull IWeigher aWeigher) {
+
+        iMaxWeight = aMaxWeight;
+        iWeigher = aWeigher;
+    }
+
+    /**
+     * @return Immutable snapshot of cached users.
+     */
+    @NonNull
+    public List<UserListItem> getUsers() {
+
+        return iSnapshot.iUsers;
+    }
+
+    /**
+     * Retrieves cached user by id.
+     *
+     * @param aId
+     *      Id of user.
+     * @return User or null if user is not cached or only its list item is cached.
+     */
+    @Nullable
+    public User getUser(long aId) {
+
+        final UserListItem user = iSnapshot.iIndex.get(aId);
+
+        return user instanceof User ? (User) user : null;
+    }
+
+    /**
+     * @return true if there are no cached users.
+     */
+    public boolean isEmpty() {
+
+        return iSnapshot.iUsers.isEmpty();
+    }
+
+    /**
+     * @return true if some users were evicted and cache doesn't contain the whole data set.
+     */
+    public boolean isTruncated() {
+
+        return iSnapshot.iTruncated;
+    }
+
+    /**
+     * Replaces all cached users.
+     *
+     * @param aUsers
+     *      New users.
+     */
+    public void replaceAll(@NonNull List<? extends UserListItem> aUsers) {
+
+        synchronized (iWriteLock) {
+
+            iSnapshot = createSnapshot(aUsers, Collections.emptyList(), false);
+        }
+    }
+
+    /**
+     * Appends users to cache. Users with already cached ids replace cached ones in place.
+     *
+     * @param aUsers
+     *      Users to append.
+     */
+    public void addAll(@NonNull List<? extends UserListItem> aUsers) {
+
+        synchronized (iWriteLock) {
+
+            final Snapshot snapshot = iSnapshot;
+
+            iSnapshot = createSnapshot(snapshot.iUsers, aUsers, snapshot.iTruncated);
+        }
+    }
+
+    /**
+     * Replaces cached users with the same ids, other users are not cached.
+     *
+     * @param aUsers
+     *      Updated users.
+     */
+    public void updateAll(@NonNull List<? extends UserListItem> aUsers) {
+
+        synchronized (iWriteLock) {
+
+            final Snapshot snapshot = iSnapshot;
+            final List<UserListItem> cachedUsers = new ArrayList<>(aUsers.size());
+
+            for (UserListItem user : aUsers) {
+
+                if (snapshot.iIndex.containsKey(user.getId())) {
+                    cachedUsers.add(user);
+                }
+            }
+
+            if (!cachedUsers.isEmpty()) {
+                iSnapshot = createSnapshot(snapshot.iUsers, cachedUsers, snapshot.iTruncated);
+            }
+        }
+    }
+
+    /**
+     * Evicts all users.
+     */
+    public void clear() {
+
+        synchronized (iWriteLock) {
+
+            iSnapshot = Snapshot.EMPTY;
+        }
+    }
+
+    /**
+     * Creates new bounded snapshot.
+     *
+     * @param aUsers
+     *      Users.
+     * @param aAppendedUsers
+     *      Users appended to the end.
+     * @param aTruncated
+     *      true if data was truncated before.
+     * @return New snapshot.
+     */
+    @NonNull
+    private Snapshot createSnapshot(@NonNull List<? extends UserListItem> aUsers,
+                                    @NonNull List<? extends UserListItem> aAppendedUsers,
+                                    boolean aTruncated) {
+
+        final LinkedHashMap<Long, UserListItem> users =
+                new LinkedHashMap<>(aUsers.size() + aAppendedUsers.size());
+
+        for (UserListItem user : aUsers) {
+            users.put(user.getId(), user);
+        }
+
+        for (UserListItem user : aAppendedUsers) {
+            users.put(user.getId(), user);
+        }
+
+        long totalWeight = 0;
+
+        for (UserListItem user : users.values()) {
+            totalWeight += iWeigher.weigh(user);
+        }
+
+        boolean truncated = aTruncated;
+        final Iterator<UserListItem> oldestUsers = users.values().iterator();
+
+        while (totalWeight > iMaxWeight && oldestUsers.hasNext()) {
+
+            totalWeight -= iWeigher.weigh(oldestUsers.next());
+            oldestUsers.remove();
+            truncated = true;
+        }
+
+        return new Snapshot(new ArrayList<>(users.values()), new HashMap<>(users), truncated);
+    }
+
+    /**
+     * Estimates count of bytes retained by user.
+     *
+     * @param aUser
+     *      User.
+     * @return Approximate size in bytes.
+     */
+    private static int estimateRetainedSize(@NonNull UserListItem aUser) {
+
+        final int listItemSize = estimateRetainedSize(aUser.getTitle())
+                + estimateRetainedSize(aUser.getFirstName())
+                + estimateRetainedSize(aUser.getLastName())
+                + estimateRetainedSize(aUser.getUserName())
+                + estimateRetainedSize(aUser.getMediumPictureUrl());
+
+        if (!(aUser instanceof User)) {
+            return LIST_ITEM_SHALLOW_SIZE + listItemSize;
+        }
+
+        final User user = (User) aUser;
+
+        return USER_SHALLOW_SIZE
+                + listItemSize
+                + estimateRetainedSize(user.getIdNumber())
+                + estimateRetainedSize(user.getPhoneNumber())
+                + estimateRetainedSize(user.getCellNumber())
+                + estimateRetainedSize(user.getIdType())
+                + estimateRetainedSize(user.getThumbnailPictureUrl())
+                + estimateRetainedSize(user.getLargePictureUrl())
+                + estimateRetainedSize(user.getStreet())
+                + estimateRetainedSize(user.getCity())
+                + estimateRetainedSize(user.getState())
+                + estimateRetainedSize(user.getPostCode())
+                + estimateRetainedSize(user.getEmail());
+    }
+
+    /**
+     * Estimates count of bytes retained by string.
+     *
+     * @param aValue
+     *      String.
+     * @return Approximate size in bytes.
+     */
+    private static int estimateRetainedSize(@Nullable String aValue) {
+
+        return aValue == null ? 0 : STRING_SHALLOW_SIZE + 2 * aValue.length();
+    }
+
+    /**
+     * Weigher of cached users.
+     */
+    public interface IWeigher {
+
+        /**
+         * @param aUser
+         *      User.
+         * @return Weight of user, never negative.
+         */
+        int weigh(@NonNull UserListItem aUser);
+    }
+
+    /**
+     * Immutable state of cache.
+     */
+    private static final class Snapshot {
+
+        /*package*/ static final Snapshot EMPTY = new Snapshot(
+                Collections.emptyList(), Collections.emptyMap(), false);
+
+        /** Users in order of adding.*/
+        @NonNull
+        /*package*/ final List<UserListItem> iUsers;
+
+        /** Users by id.*/
+        @NonNull
+        /*package*/ final Map<Long, UserListItem> iIndex;
+
+        /** true if some users were evicted.*/
+        /*package*/ final boolean iTruncated;
+
+        /**
+         * @param aUsers
+         *      Users in order of adding.
+         * @param aIndex
+         *      Users by id.
+         * @param aTruncated
+         *      true if some users were evicted.
+         */
+        private Snapshot(@NonNull List<UserListItem> aUsers,
+                         @NonNull Map<Long, UserListItem> aIndex,
+                         boolean aTruncated) {
+
+            iUsers = Collections.unmodifiableList(aUsers);
+            iIndex = Collections.unmodifiableMap(aIndex);
+            iTruncated = aTruncated;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.develop.apachi.testtask.model;
+
+import android.arch.persistence.room.ColumnInfo;
+import android.support.annotation.AnyThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.util.ObjectsCompat;
+
+import com.develop.apachi.testtask.database.UsersDatabaseContract;
+
+/**
+ * Slim projection of user with data displayed in user list only.
+ * List is loaded as list items, full {@link User} is loaded for details only.
+ */
+@AnyThread
+public class UserListItem {
+
+    /** Primary key of user.*/
+    @ColumnInfo(name = UsersDatabaseContract.UsersTable._ID)
+    private final long id;
+    /** User's title. Depending on state.*/
+    @Nullable
+    @ColumnInfo(name = UsersDatabaseContract.UsersTable.TITLE)
+    private final String title;
+    /** User's first name.*/
+    @Nullable
+    @ColumnInfo(name = UsersDatabaseContract.UsersTable.FIRST_NAME)
+    private final String firstName;
+    /** User's last name.*/
+    @Nullable
+    @ColumnInfo(name = UsersDatabaseContract.UsersTable.LAST_NAME)
+    private final String lastName;
+    /** User's nick name from user credentials JSON section.*/
+    @Nullable
+    @ColumnInfo(name = UsersDatabaseContract.UsersTable.USER_NAME)
+    private final String userName;
+    /** Url of medium image.*/
+    @Nullable
+    @ColumnInfo(name = UsersDatabaseContract.UsersTable.MEDIUM_PICTURE_URL)
+    private final String mediumPictureUrl;
+
+    /**
+     * Public constructor for Room.
+     */
+    public UserListItem(long id,
+                        @Nullable String title,
+                        @Nullable String firstName,
+                        @Nullable String lastName,
+                        @Nullable String userName,
+                        @Nullable String mediumPictureUrl) {
+        this.id = id;
+        this.title = title;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.userName = userName;
+        this.mediumPictureUrl = mediumPictureUrl;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    @Nullable
+    public String getTitle() {
+        return title;
+    }
+
+    @Nullable
+    public String getFirstName() {
+        return firstName;
+    }
+
+    @Nullable
+    public String getLastName() {
+        return lastName;
+    }
+
+    @Nullable
+    public String getUserName() {
+        return userName;
+    }
+
+    @Nullable
+    public String getMediumPictureUrl() {
+        return mediumPictureUrl;
+    }
+
+    /**
+     * Compares displayed data only, so list item equals full user with the same displayed data.
+     *
+     * @param aItem
+     *      Other item.
+     * @return true if both items display the same data.
+     */
+    public boolean hasSameListData(@NonNull UserListItem aItem) {
+
+        return id == aItem.id
+                && ObjectsCompat.equals(title, aItem.title)
+                && ObjectsCompat.equals(firstName, aItem.firstName)
+                && ObjectsCompat.equals(lastName, aItem.lastName)
+                && ObjectsCompat.equals(userName, aItem.userName)
+                && ObjectsCompat.equals(mediumPictureUrl, aItem.mediumPictureUrl);
+    }
+}
@@ -0,0 +1,60 @@
+package com.develop.apachi.testtask.model;
+
+import android.arch.persistence.room.ColumnInfo;
+import android.support.annotation.AnyThread;
+import android.support.annotation.Nullable;
+
+import com.develop.apachi.testtask.database.UsersDatabaseContract;
+import com.develop.apachi.testtask.utils.GeoGrid;
+
+/**
+ * Projection of user with list data and coordinates for nearby users.
+ */
+@AnyThread
+public class UserLocationItem extends UserListItem {
+
+    /** User's latitude.*/
+    @ColumnInfo(name = UsersDatabaseContract.UsersTable.LATITUDE)
+    private final double latitude;
+    /** User's longitude.*/
+    @ColumnInfo(name = UsersDatabaseContract.UsersTable.LONGITUDE)
+    private final double longitude;
+
+    /**
+     * Public constructor for Room.
+     */
+    public UserLocationItem(long id,
+                            @Nullable String title,
+                            @Nullable String firstName,
+                            @Nullable String lastName,
+                            @Nullable String userName,
+                            @Nullable String mediumPictureUrl,
+                            double latitude,
+                            double longitude) {
+        super(id, title, firstName, lastName, userName, mediumPictureUrl);
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * Calculates angular distance from user to point.
+     *
+     * @param aLatitude
+     *      Latitude of point.
+     * @param aLongitude
+     *      Longitude of point.
+     * @return Distance in degrees.
+     */
+    public double getDistanceDegrees(double aLatitude, double aLongitude) {
+
+        return GeoGrid.getDistanceDegrees(latitude, longitude, aLatitude, aLongitude);
+    }
+}
@@ -5,36 +5,50 @@ import android.content.SharedPreferences;
 import android.support.annotation.AnyThread;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.v4.util.ObjectsCompat;
+import android.support.v4.util.Pair;
 
 import com.develop.apachi.testtask.database.UserDao;
 import com.develop.apachi.testtask.database.UsersDatabase;
+import com.develop.apachi.testtask.metrics.Metrics;
+import com.develop.apachi.testtask.network.FieldProfile;
 import com.develop.apachi.testtask.network.IRandomUserClient;
 
 import org.joda.time.Duration;
 import org.joda.time.Instant;
 import org.joda.time.Interval;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.UUID;
 
+import io.reactivex.Completable;
 import io.reactivex.Flowable;
 import io.reactivex.Single;
 
 /**
  * Repository class to query persons from specific source depending on data availability.
+ * Lists are fetched with list sections only, details of partial person are fetched,
+ * when the person is requested.
  */
 @AnyThread
 public class UserRepository {
 
     private static final String NETWORK_PREFERENCES = "net_pref";
     private static final String PREVIOUS_NETWORK_FETCH_KEY = "prev_fetch";
-    /** Time without whose data is detected as stale.*/
-    private static final Duration MAXIMUM_STALE_DATA_INTERVAL = new Duration(60 * 60 * 60);
+    private static final String PAGES_SEED_KEY = "pages_seed";
+    private static final String LOADED_PAGES_KEY = "loaded_pages";
+    /** Pages are counted from 1 by service.*/
+    private static final int FIRST_PAGE = 1;
+    /** Time without whose data is detected as stale. Background sync runs more often.*/
+    private static final Duration MAXIMUM_STALE_DATA_INTERVAL = Duration.standardHours(12);
+    /** Maximum count of users kept in memory.*/
+    private static final int MAX_CACHED_USERS = 5000;
 
     /** Cache of users.*/
     @NonNull
-    private final List<User> iCache;
+    private final UserCache iCache;
 
     /** Data access to users in database.*/
     @NonNull
@@ -44,13 +58,32 @@ public class UserRepository {
     @NonNull
     private final IRandomUserClient iNetworkClient;
 
+    /** Hits, misses, errors and latencies of sources.*/
+    @NonNull
+    private final Metrics iMetrics;
+
     /** Shared preferences to handle preferences.*/
     @NonNull
     private final SharedPreferences iSharedPreferences;
 
+    /** Guards replacement of data set and storing of its pages, so page is never stored into newer data set.*/
+    @NonNull
+    private final Object iDataSetLock = new Object();
+
+    /** Network fetch in flight, shared by all concurrent refreshes. Guarded by this.*/
+    @Nullable
+    private Flowable<List<UserListItem>> iNetworkFetch;
+
+    /** Seed of network fetch in flight. Guarded by this.*/
+    @Nullable
+    private String iNetworkFetchSeed;
+
+    /** Network fetch in flight starts a new data set. Guarded by this.*/
+    private boolean iNetworkFetchStartsDataSet;
+
     /** Previous time of fetching data.*/
     @Nullable
-    private Instant iPreviousNetworkFetchTime;
+    private volatile Instant iPreviousNetworkFetchTime;
 
     /**
      * User repository.
@@ -61,14 +94,18 @@ public class UserRepository {
      *      Database to inject.
      * @param aUserService
      *      User service.
+     * @param aMetrics
+     *      Metrics of sources.
      */
     public UserRepository(@NonNull Context aContext,
                           @NonNull UsersDatabase aDatabase,
-                          @NonNull IRandomUserClient aUserService) {
+                          @NonNull IRandomUserClient aUserService,
+                          @NonNull Metrics aMetrics) {
 
-        iCache = new ArrayList<>();
+        iCache = new UserCache(MAX_CACHED_USERS);
         iUserDao = aDatabase.getUserDao();
         iNetworkClient = aUserService;
+        iMetrics = aMetrics;
         iSharedPreferences = aContext
                 .getSharedPreferences(NETWORK_PREFERENCES, Context.MODE_PRIVATE);
 
@@ -78,85 +115,439 @@ public class UserRepository {
     /**
      * @return Stream with persons. If there are no source specified returns previously cached values.
      */
-    public Single<List<User>> getPersons(boolean aForceNetwork) {
+    public Single<List<UserListItem>> getPersons(boolean aForceNetwork) {
 
         return Single
                 .defer(() -> {
 
-                    final Flowable<List<User>> memorySource = getPersonsFromCache();
-                    final Flowable<List<User>> databaseSource = loadPersonsFromDatabase();
-                    final Flowable<List<User>> networkSource = fetchPersonsFromNetwork();
+                    final Flowable<List<UserListItem>> memorySource = getPersonsFromCache();
+                    final Flowable<List<UserListItem>> databaseSource = loadPersonsFromDatabase();
+                    final Flowable<List<UserListItem>> networkSource = fetchPersonsFromNetwork(aForceNetwork);
 
                     if (aForceNetwork) {
 
                         return networkSource
                                 .onErrorResumeNext(memorySource)
                                 .onErrorResumeNext(databaseSource)
-                                .first(iCache);
+                                .first(iCache.getUsers());
                     } else {
 
                         return memorySource
                                 .onErrorResumeNext(databaseSource)
                                 .onErrorResumeNext(networkSource)
-                                .first(iCache);
+                                .first(iCache.getUsers());
                     }
 
                 });
     }
 
     /**
-     * Retrieves user from database.
+     * Observes persons with stale-while-revalidate policy. Cached or stored persons are emitted at once,
+     * then, if they are stale, persons are refreshed from network in background and emitted again.
+     * Network is awaited only when there is nothing stored yet. Failed refresh of stale persons
+     * completes the stream, since persons are already shown, it is counted as revalidation error.
+     *
+     * @return Stream with one or two lists of persons.
+     */
+    public Flowable<List<UserListItem>> observePersons() {
+
+        return loadLocalPersons()
+                .toFlowable()
+                .concatMap(localUsers -> {
+
+                    if (localUsers.isEmpty()) {
+
+                        return fetchPersonsFromNetwork(false);
+                    } else if (isDataStale()) {
+
+                        return Flowable.just(localUsers)
+                                .concatWith(fetchPersonsFromNetwork(false)
+                                        .doOnError(throwable -> iMetrics.increment(Metrics.REVALIDATION_ERRORS))
+                                        .onErrorResumeNext(Flowable.empty()));
+                    } else {
+
+                        return Flowable.just(localUsers);
+                    }
+                });
+    }
+
+    /**
+     * Loads next page of the current data set from network, stores it and appends it to cache.
+     * If there is no data set yet, the first page of a new one is loaded. If data set is replaced
+     * while page is loaded, page is neither stored nor emitted.
+     *
+     * @return Stream with users of the next page only, empty list if data set was replaced.
+     */
+    public Single<List<UserListItem>> getNextPersonsPage() {
+
+        return Single.defer(() -> {
+
+            final String seed = getPagesSeed();
+
+            if (seed == null) {
+                return fetchPersonsFromNetwork(false).firstOrError();
+            }
+
+            final int page = getLoadedPagesCount() + 1;
+
+            return iNetworkClient.getUsers(page, seed, FieldProfile.LIST)
+                    .map(users -> storePage(seed, page, users)
+                            ? Collections.<UserListItem>unmodifiableList(users)
+                            : Collections.<UserListItem>emptyList())
+                    .firstOrError();
+        });
+    }
+
+    /**
+     * Fetches first page of the current data set from network and stores it ahead of time,
+     * so the next launch is served from database.
+     *
+     * @return Stream completed when persons are stored.
+     */
+    public Completable syncFromNetwork() {
+
+        return fetchPersonsFromNetwork(false).ignoreElements();
+    }
+
+    /**
+     * Stores pages of the current data set ahead of time, until it has given count of pages stored.
+     * Stored pages are kept on refresh of the same data set, so they aren't fetched again.
+     * Pages are fetched and parsed concurrently and written in page order one by one,
+     * so database has a single writer. If there is no data set yet, a new one is fetched first.
+     *
+     * @param aPageCount
+     *      Count of pages of data set to store, including the first one.
+     * @param aMaxConcurrency
+     *      Maximum count of pages fetched at once.
+     * @return Stream completed when pages are stored.
+     */
+    public Completable warmUp(int aPageCount, int aMaxConcurrency) {
+
+        return Completable.defer(() -> {
+
+            final String seed = getPagesSeed();
+
+            if (seed == null) {
+                return aPageCount <= 0
+                        ? Completable.complete()
+                        : syncFromNetwork().andThen(warmUp(aPageCount, aMaxConcurrency));
+            }
+
+            final int firstPage = getLoadedPagesCount() + 1;
+            final int pageCount = FIRST_PAGE + aPageCount - firstPage;
+
+            if (pageCount <= 0) {
+                return Completable.complete();
+            }
+
+            return iNetworkClient.getUsers(firstPage, pageCount, seed, aMaxConcurrency, FieldProfile.LIST)
+                    .zipWith(Flowable.range(firstPage, pageCount), (users, page) -> Pair.create(page, users))
+                    .doOnNext(page -> storePage(seed, page.first, page.second))
+                    .ignoreElements();
+        });
+    }
+
+    /**
+     * Searches stored persons by prefixes of words in their names, user name, email, city or state.
+     *
+     * @param aQuery
+     *      Query typed by user.
+     * @return Stream with found persons.
+     */
+    public Single<List<UserListItem>> searchPersons(@NonNull String aQuery) {
+
+        return Single.fromCallable(() -> iUserDao.search(aQuery));
+    }
+
+    /**
+     * Retrieves stored persons nearest to point.
+     *
+     * @param aLatitude
+     *      Latitude of point.
+     * @param aLongitude
+     *      Longitude of point.
+     * @param aCount
+     *      Maximum count of persons.
+     * @return Stream with persons ordered by distance.
+     */
+    public Single<List<UserLocationItem>> getNearbyPersons(double aLatitude, double aLongitude, int aCount) {
+
+        return Single.fromCallable(() -> iUserDao.getNearestUsers(aLatitude, aLongitude, aCount));
+    }
+
+    /**
+     * Retrieves full user from cache or database. List keeps list items only,
+     * so full user is loaded from database unless it was just fetched from network.
+     * Partial user is completed from network.
      *
      * @param aId
      *      Id of user.
      * @return Stream with single user.
      */
-    public Single<User> getUser(int aId) {
+    public Single<User> getUser(long aId) {
+
+        return Single
+                .defer(() -> {
+
+                    final User cachedUser = iCache.getUser(aId);
+
+                    // Database may have already completed user cached as partial
+                    return cachedUser != null && !cachedUser.isPartial()
+                            ? Single.just(cachedUser)
+                            : iUserDao.getUser(aId);
+                })
+                .flatMap(user -> user.isPartial() ? completeUser(user) : Single.just(user));
+    }
+
+    /**
+     * Fetches page of partial user with all sections and stores it, so the whole page is completed
+     * at once. Seeded page always has the same users. If page can't be fetched, partial user is returned.
+     *
+     * @param aUser
+     *      Partial user.
+     * @return Stream with complete user or partial one.
+     */
+    @NonNull
+    private Single<User> completeUser(@NonNull User aUser) {
+
+        final String seed = getPagesSeed();
+
+        if (seed == null || aUser.getPage() == User.NO_PAGE) {
+            return Single.just(aUser);
+        }
+
+        return iNetworkClient.getUsers(aUser.getPage(), seed, FieldProfile.FULL)
+                .doOnNext(users -> writeDatabase(() -> iUserDao.saveUsers(users)))
+                .doOnNext(iCache::updateAll)
+                .firstOrError()
+                .map(users -> {
+
+                    for (User user : users) {
 
-        return iUserDao.getUser(aId);
+                        if (user.getId() == aUser.getId()) {
+                            return user;
+                        }
+                    }
+
+                    return aUser;
+                })
+                .onErrorReturnItem(aUser);
+    }
+
+    /**
+     * Stores fetched page and appends it to cache, unless data set was replaced meanwhile.
+     *
+     * @param aSeed
+     *      Seed of data set of page.
+     * @param aPage
+     *      Page number.
+     * @param aUsers
+     *      Users of page.
+     * @return true if page was stored, false if data set was replaced.
+     */
+    private boolean storePage(@NonNull String aSeed, int aPage, @NonNull List<User> aUsers) {
+
+        synchronized (iDataSetLock) {
+
+            if (!aSeed.equals(getPagesSeed())) {
+                return false;
+            }
+
+            writeDatabase(() -> iUserDao.saveNewUsers(aUsers));
+            iCache.addAll(aUsers);
+            setLoadedPagesCount(aPage);
+
+            return true;
+        }
+    }
+
+    /**
+     * Stores the first page of fetched data set, unless data set was replaced meanwhile. Fetched data set
+     * replaces stored one. Refetched first page of the same data set replaces stored first page only,
+     * next stored pages and their count are kept, since seeded pages are the same on every fetch.
+     *
+     * @param aPreviousSeed
+     *      Seed of data set stored when fetch started or null if there was no data set.
+     * @param aSeed
+     *      Seed of fetched data set.
+     * @param aUsers
+     *      Users of the first page.
+     * @return Users of data set: fetched ones, all stored ones of refetched data set or ones of the data set,
+     *      which replaced stored one meanwhile.
+     */
+    @NonNull
+    private List<UserListItem> replaceDataSet(@Nullable String aPreviousSeed,
+                                              @NonNull String aSeed,
+                                              @NonNull List<User> aUsers) {
+
+        synchronized (iDataSetLock) {
+
+            if (!ObjectsCompat.equals(aPreviousSeed, getPagesSeed())) {
+                return iCache.getUsers();
+            }
+
+            if (aSeed.equals(aPreviousSeed)) {
+
+                writeDatabase(() -> iUserDao.syncPage(FIRST_PAGE, aUsers));
+
+                return Collections.unmodifiableList(readDatabase().blockingGet());
+            }
+
+            writeDatabase(() -> iUserDao.syncUsers(aUsers));
+            iCache.replaceAll(aUsers);
+            setPages(aSeed, FIRST_PAGE);
+
+            return Collections.unmodifiableList(aUsers);
+        }
+    }
+
+    /**
+     * @return Stream with cached persons or persons from database regardless of their staleness.
+     *      Empty list if there are no persons stored.
+     */
+    @NonNull
+    private Single<List<UserListItem>> loadLocalPersons() {
+
+        return Single.defer(() -> {
+
+            if (iCache.isEmpty() || iCache.isTruncated()) {
+
+                iMetrics.increment(Metrics.MEMORY_MISSES);
+                return readDatabase();
+            } else {
+
+                iMetrics.increment(Metrics.MEMORY_HITS);
+                return Single.just(iCache.getUsers());
+            }
+        });
     }
 
     /**
      * @return Stream with data from database.
      */
     @NonNull
-    private Flowable<List<User>> loadPersonsFromDatabase() {
+    private Flowable<List<UserListItem>> loadPersonsFromDatabase() {
+
+        return Flowable.defer(() -> readDatabase().toFlowable());
+    }
+
+    /**
+     * Reads persons from database into cache and records metrics of read.
+     *
+     * @return Stream with stored persons.
+     */
+    @NonNull
+    private Single<List<UserListItem>> readDatabase() {
+
+        final long startNanos = System.nanoTime();
+
+        return iUserDao
+                .getUsers()
+                .doOnSuccess(users -> {
+
+                    iMetrics.recordLatency(Metrics.DATABASE_READ_LATENCY, startNanos);
+                    iMetrics.increment(users.isEmpty() ? Metrics.DATABASE_MISSES : Metrics.DATABASE_HITS);
+                })
+                .doOnError(throwable -> iMetrics.increment(Metrics.DATABASE_ERRORS))
+                .doOnSuccess(iCache::replaceAll);
+    }
+
+    /**
+     * Writes into database and records latency of write.
+     *
+     * @param aWrite
+     *      Database write.
+     */
+    private void writeDatabase(@NonNull Runnable aWrite) {
 
-        return Flowable.defer(() -> iUserDao
-                    .getUsers()
-                    .doOnSuccess(iCache::addAll)
-                    .toFlowable());
+        final long startNanos = System.nanoTime();
+
+        aWrite.run();
+
+        iMetrics.recordLatency(Metrics.DATABASE_WRITE_LATENCY, startNanos);
     }
 
     /**
+     * Fetches first page of seeded data set. A new data set replaces everything stored before. Stored seed
+     * is kept, so refreshed page replaces stored first page only, a new seed is used on explicit refresh only.
+     * Concurrent refreshes share the fetch in flight, so data is downloaded and stored once.
+     *
+     * @param aNewDataSet
+     *      true to fetch a new data set instead of the stored one.
      * @return Stream with data from network service.
      */
     @NonNull
-    private Flowable<List<User>> fetchPersonsFromNetwork() {
+    private Flowable<List<UserListItem>> fetchPersonsFromNetwork(boolean aNewDataSet) {
+
+        return Flowable.defer(() -> getNetworkFetch(aNewDataSet));
+    }
+
+    /**
+     * Retrieves network fetch in flight or starts a new one. Fetch is completed and stored
+     * even if all its subscribers are gone, then it is forgotten. Fetch of stored data set
+     * isn't shared with request of a new one. Shared fetch of stored data set replaces
+     * its first page only, so refreshes during rotation or background sync keep next pages.
+     *
+     * @param aNewDataSet
+     *      true to fetch a new data set instead of the stored one.
+     * @return Shared network fetch.
+     */
+    @NonNull
+    private synchronized Flowable<List<UserListItem>> getNetworkFetch(boolean aNewDataSet) {
+
+        if (iNetworkFetch == null || aNewDataSet && !iNetworkFetchStartsDataSet) {
+
+            final String previousSeed = getPagesSeed();
+            final String seed = aNewDataSet || previousSeed == null ? UUID.randomUUID().toString() : previousSeed;
+
+            iNetworkFetchSeed = seed;
+            iNetworkFetchStartsDataSet = !seed.equals(previousSeed);
+            iNetworkFetch = iNetworkClient.getUsers(FIRST_PAGE, seed, FieldProfile.LIST)
+                    .doOnNext(users -> iMetrics.increment(Metrics.NETWORK_HITS))
+                    .doOnError(throwable -> iMetrics.increment(Metrics.NETWORK_ERRORS))
+                    .map(users -> replaceDataSet(previousSeed, seed, users))
+                    .doOnNext(data -> setPreviousNetworkFetchTime(new Instant()))
+                    .doAfterTerminate(() -> clearNetworkFetch(seed))
+                    .cache();
+        }
 
-        return iNetworkClient.getUsers()
-                .doOnNext(users -> iUserDao.deleteAll())
-                .doOnNext(iUserDao::saveUsers)
-                .doOnNext(iCache::addAll)
-                .doOnNext(data -> setPreviousNetworkFetchTime(new Instant()));
+        return iNetworkFetch;
+    }
+
+    /**
+     * Forgets finished network fetch, the next refresh starts a new one.
+     *
+     * @param aSeed
+     *      Seed of finished fetch, newer fetch in flight is kept.
+     */
+    private synchronized void clearNetworkFetch(@NonNull String aSeed) {
+
+        if (aSeed.equals(iNetworkFetchSeed)) {
+
+            iNetworkFetch = null;
+            iNetworkFetchSeed = null;
+        }
     }
 
     /**
      * @return Stream with persons data from cache.
      */
     @NonNull
-    private Flowable<List<User>> getPersonsFromCache() {
+    private Flowable<List<UserListItem>> getPersonsFromCache() {
 
         return Flowable.defer(() -> {
 
             if (iCache.isEmpty()
+                    || iCache.isTruncated()
                     || isDataStale()) {
 
+                iMetrics.increment(Metrics.MEMORY_MISSES);
                 iCache.clear();
                 return Flowable.error(new NoSuchElementException("Data is stale"));
             } else {
 
-                return Flowable.just(iCache);
+                iMetrics.increment(Metrics.MEMORY_HITS);
+                return Flowable.just(iCache.getUsers());
             }
         });
     }
@@ -196,9 +587,55 @@ public class UserRepository {
      */
     private void setPreviousNetworkFetchTime(Instant aPreviousNetworkFetchTime) {
 
+        iPreviousNetworkFetchTime = aPreviousNetworkFetchTime;
+
         iSharedPreferences.edit()
                 .putLong(PREVIOUS_NETWORK_FETCH_KEY,
                         aPreviousNetworkFetchTime.getMillis())
                 .apply();
     }
+
+    /**
+     * @return Seed of the current paged data set or null if nothing was loaded yet.
+     */
+    @Nullable
+    private String getPagesSeed() {
+
+        return iSharedPreferences.getString(PAGES_SEED_KEY, null);
+    }
+
+    /**
+     * @return Count of pages of the current data set stored in database.
+     */
+    private int getLoadedPagesCount() {
+
+        return iSharedPreferences.getInt(LOADED_PAGES_KEY, 0);
+    }
+
+    /**
+     * @param aLoadedPagesCount
+     *      Count of pages of the current data set stored in database.
+     */
+    private void setLoadedPagesCount(int aLoadedPagesCount) {
+
+        iSharedPreferences.edit()
+                .putInt(LOADED_PAGES_KEY, aLoadedPagesCount)
+                .apply();
+    }
+
+    /**
+     * Starts new paged data set.
+     *
+     * @param aSeed
+     *      Seed of the data set.
+     * @param aLoadedPagesCount
+     *      Count of pages stored in database.
+     */
+    private void setPages(@NonNull String aSeed, int aLoadedPagesCount) {
+
+        iSharedPreferences.edit()
+                .putString(PAGES_SEED_KEY, aSeed)
+                .putInt(LOADED_PAGES_KEY, aLoadedPagesCount)
+                .apply();
+    }
 }
@@ -1,27 +1,30 @@
 package com.develop.apachi.testtask.model.adapters;
 
-import android.location.Location;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import com.develop.apachi.testtask.model.User;
+import com.develop.apachi.testtask.utils.TimeZoneUtils;
 import com.google.gson.JsonDeserializationContext;
 import com.google.gson.JsonDeserializer;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
 
-import org.joda.time.DateTime;
-import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
 
 import java.lang.reflect.Type;
-import java.util.TimeZone;
 
 /**
- * Deserializer for users.
+ * Tree model deserializer for users. Service client uses streaming {@link UserTypeAdapter},
+ * values are converted in the same way by both of them.
  */
 public class UserDeserializer implements JsonDeserializer<User> {
 
+    /** The same parser is used by {@link UserTypeAdapter}.*/
+    private static final DateTimeFormatter DATE_TIME_PARSER = ISODateTimeFormat.dateTimeParser();
+
     interface UserResponseContact {
 
         // name:
@@ -35,6 +38,8 @@ public class UserDeserializer implements JsonDeserializer<User> {
         String LOCATION_SECTION = "location";
 
         String STREET = "street";
+        String STREET_NUMBER = "number";
+        String STREET_NAME = "name";
         String CITY = "city";
         String STATE = "state";
         String POST_CODE = "postcode";
@@ -79,11 +84,14 @@ public class UserDeserializer implements JsonDeserializer<User> {
         String LOGIN_SECTION = "login";
 
         String USER_NAME = "username";
+        String UUID = "uuid";
 
         String EMAIL = "email";
     }
 
     /**
+     * Sections excluded from request are missing, fields of missing sections stay unset.
+     *
      * {@inheritDoc}
      */
     @Override
@@ -93,71 +101,150 @@ public class UserDeserializer implements JsonDeserializer<User> {
 
         final JsonObject jsonObject = aJson.getAsJsonObject();
 
-        final JsonObject idSection = jsonObject.getAsJsonObject(UserResponseContact.ID_SECTION);
-
-        final JsonObject nameSection = jsonObject.getAsJsonObject(UserResponseContact.NAME_SECTION);
-
-        final JsonObject locationSection = jsonObject.getAsJsonObject(UserResponseContact.LOCATION_SECTION);
-
-        final JsonObject timeZoneSection = locationSection.getAsJsonObject(UserResponseContact.TIME_ZONE_SECTION);
-
-        final DateTimeZone timeZone = DateTimeZone.forTimeZone(
-                TimeZone.getTimeZone("GMT" + timeZoneSection.get(UserResponseContact.TIME_ZONE).getAsString()));
-
-        final JsonObject geoLocationSection = locationSection.getAsJsonObject(UserResponseContact.GEOLOCATION_SECTION);
-
-        final Location location = new Location(this.getClass().getName());
-        location.setLongitude(geoLocationSection.get(UserResponseContact.LONGITUDE).getAsDouble());
-        location.setLatitude(geoLocationSection.get(UserResponseContact.LATITUDE).getAsDouble());
+        final JsonObject idSection = getSection(jsonObject, UserResponseContact.ID_SECTION);
 
-        final JsonObject loginSection = jsonObject.getAsJsonObject(UserResponseContact.LOGIN_SECTION);
+        final JsonObject nameSection = getSection(jsonObject, UserResponseContact.NAME_SECTION);
 
-        final JsonObject dateOfBirthSection = jsonObject.getAsJsonObject(UserResponseContact.DOB_SECTION);
+        final JsonObject locationSection = getSection(jsonObject, UserResponseContact.LOCATION_SECTION);
 
-        final DateTime dateOfBirth = DateTime.parse(dateOfBirthSection.get(UserResponseContact.BIRTH_DATE).getAsString());
+        final JsonObject loginSection = getSection(jsonObject, UserResponseContact.LOGIN_SECTION);
 
-        final JsonObject registrationSection = jsonObject.getAsJsonObject(UserResponseContact.REGISTRATION_SECTION);
+        final JsonObject dateOfBirthSection = getSection(jsonObject, UserResponseContact.DOB_SECTION);
 
-        final DateTime registrationTime = DateTime.parse(registrationSection.get(UserResponseContact.REGISTRATION_DATE).getAsString());
+        final JsonObject registrationSection = getSection(jsonObject, UserResponseContact.REGISTRATION_SECTION);
 
-        final JsonObject pictureSection = jsonObject.getAsJsonObject(UserResponseContact.PICTURE_SECTION);
+        final JsonObject pictureSection = getSection(jsonObject, UserResponseContact.PICTURE_SECTION);
 
-        return new User.Builder(extractValue(idSection, UserResponseContact.USER_ID))
+        final User.Builder builder = new User.Builder(extractValue(idSection, UserResponseContact.USER_ID))
                 .setIdType(extractValue(idSection, UserResponseContact.ID_TYPE))
                 .setTitle(extractValue(nameSection, UserResponseContact.TITLE))
                 .setFirstName(extractValue(nameSection,UserResponseContact.FIRST_NAME))
                 .setLastName(extractValue(nameSection, UserResponseContact.LAST_NAME))
-                .setStreet(extractValue(locationSection, UserResponseContact.STREET))
+                .setStreet(extractStreet(locationSection))
                 .setState(extractValue(locationSection, UserResponseContact.STATE))
                 .setCity(extractValue(locationSection, UserResponseContact.CITY))
                 .setPostCode(extractValue(locationSection, UserResponseContact.POST_CODE))
-                .setUserTimeZone(timeZone)
-                .setLocation(location)
                 .setEmail(extractValue(jsonObject, UserResponseContact.EMAIL))
                 .setUserName(extractValue(loginSection, UserResponseContact.USER_NAME))
-                .setBirthDate(dateOfBirth)
-                .setAge(dateOfBirthSection.get(UserResponseContact.AGE).getAsInt())
-                .setRegistrationDate(registrationTime)
-                .setRegistrationAge(registrationSection.get(UserResponseContact.REGISTRATION_AGE).getAsInt())
-                .setPhoneNumber(jsonObject.get(UserResponseContact.PHONE_NUMBER).getAsString())
-                .setCellNumber(jsonObject.get(UserResponseContact.CELL_NUMBER).getAsString())
+                .setUuid(extractValue(loginSection, UserResponseContact.UUID))
+                .setPhoneNumber(extractValue(jsonObject, UserResponseContact.PHONE_NUMBER))
+                .setCellNumber(extractValue(jsonObject, UserResponseContact.CELL_NUMBER))
                 .setLargePicture(extractValue(pictureSection, UserResponseContact.LARGE_PICTURE_URL))
                 .setMediumPicture(extractValue(pictureSection, UserResponseContact.MEDIUM_PICTURE_URL))
-                .setThumbnailPicture(extractValue(pictureSection, UserResponseContact.THUMBNAIL_PICTURE_URL))
-                .build();
+                .setThumbnailPicture(extractValue(pictureSection, UserResponseContact.THUMBNAIL_PICTURE_URL));
+
+        final String timeZoneOffset = extractValue(
+                getSection(locationSection, UserResponseContact.TIME_ZONE_SECTION), UserResponseContact.TIME_ZONE);
+
+        if (timeZoneOffset != null) {
+            builder.setTimeZoneOffset(TimeZoneUtils.parseOffsetMinutes(timeZoneOffset));
+        }
+
+        final JsonObject geoLocationSection = getSection(locationSection, UserResponseContact.GEOLOCATION_SECTION);
+
+        final JsonElement latitude = geoLocationSection == null
+                ? null
+                : geoLocationSection.get(UserResponseContact.LATITUDE);
+        final JsonElement longitude = geoLocationSection == null
+                ? null
+                : geoLocationSection.get(UserResponseContact.LONGITUDE);
+
+        // User without either coordinate is left without location
+        if (checkJsonValid(latitude) && checkJsonValid(longitude)) {
+            builder.setCoordinates(latitude.getAsDouble(), longitude.getAsDouble());
+        }
+
+        if (dateOfBirthSection != null) {
+
+            final JsonElement age = dateOfBirthSection.get(UserResponseContact.AGE);
+
+            builder.setBirthDateMillis(extractDateMillis(dateOfBirthSection, UserResponseContact.BIRTH_DATE));
+
+            if (checkJsonValid(age)) {
+                builder.setAge(age.getAsInt());
+            }
+        }
+
+        if (registrationSection != null) {
+
+            final JsonElement registrationAge = registrationSection.get(UserResponseContact.REGISTRATION_AGE);
+
+            builder.setRegistrationDateMillis(
+                    extractDateMillis(registrationSection, UserResponseContact.REGISTRATION_DATE));
+
+            if (checkJsonValid(registrationAge)) {
+                builder.setRegistrationAge(registrationAge.getAsInt());
+            }
+        }
+
+        return builder.build();
     }
 
     /**
-     * Retrieves user's id.
+     * Retrieves nested section.
+     *
+     * @param aParent
+     *      Parent section or null if it is missing.
+     * @param aSectionName
+     *      Name of section.
+     * @return Section or null if it is missing.
+     */
+    @Nullable
+    private JsonObject getSection(@Nullable JsonObject aParent,
+                                  @NonNull String aSectionName) {
+
+        if (aParent == null) {
+            return null;
+        }
+
+        final JsonElement section = aParent.get(aSectionName);
+
+        return checkJsonValid(section) && section.isJsonObject() ? section.getAsJsonObject() : null;
+    }
+
+    /**
+     * Retrieves street, which is plain string in older API versions and object with number and name in newer.
+     *
+     * @param aLocationSection
+     *      Location section or null if it is missing.
+     * @return Street or null if it is missing.
+     */
+    @Nullable
+    private String extractStreet(@Nullable JsonObject aLocationSection) {
+
+        final JsonObject streetSection = getSection(aLocationSection, UserResponseContact.STREET);
+
+        if (streetSection == null) {
+            return extractValue(aLocationSection, UserResponseContact.STREET);
+        }
+
+        final String number = extractValue(streetSection, UserResponseContact.STREET_NUMBER);
+        final String name = extractValue(streetSection, UserResponseContact.STREET_NAME);
+
+        if (number == null) {
+            return name;
+        } else if (name == null) {
+            return number;
+        } else {
+            return number + " " + name;
+        }
+    }
+
+    /**
+     * Retrieves string value of section.
      *
      * @param aSection
-     *      Section.
-     * @return String with current id value.
+     *      Section or null if it is missing.
+     * @return String value or null if value or section is missing.
      */
     @Nullable
-    private String extractValue(@NonNull JsonObject aSection,
+    private String extractValue(@Nullable JsonObject aSection,
                                 @NonNull String aSectionName) {
 
+        if (aSection == null) {
+            return null;
+        }
+
         final JsonElement object = aSection.get(aSectionName);
 
         if (checkJsonValid(object)) {
@@ -168,15 +255,30 @@ public class UserDeserializer implements JsonDeserializer<User> {
         }
     }
 
+    /**
+     * Retrieves date value of section.
+     *
+     * @param aSection
+     *      Section.
+     * @return Epoch millis or {@link User#NO_DATE} if value is missing.
+     */
+    private long extractDateMillis(@NonNull JsonObject aSection,
+                                   @NonNull String aSectionName) {
+
+        final String value = extractValue(aSection, aSectionName);
+
+        return value == null ? User.NO_DATE : DATE_TIME_PARSER.parseMillis(value);
+    }
+
     /**
      * Checks is json is valid.
      *
      * @param aJsonElement
      *      Json object.
-     * @return true if json object is valid.
+     * @return true if json object is present and not null.
      */
-    private boolean checkJsonValid(JsonElement aJsonElement) {
+    private boolean checkJsonValid(@Nullable JsonElement aJsonElement) {
 
-        return !aJsonElement.isJsonNull();
+        return aJsonElement != null && !aJsonElement.isJsonNull();
     }
 }
@@ -0,0 +1,611 @@
+package com.develop.apachi.testtask.model.adapters;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.develop.apachi.testtask.model.User;
+import com.develop.apachi.testtask.model.adapters.UserDeserializer.UserResponseContact;
+import com.develop.apachi.testtask.utils.GeoGrid;
+import com.develop.apachi.testtask.utils.TimeZoneUtils;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Streaming type adapter for users. Reads fields straight from {@link JsonReader} into
+ * {@link User.Builder} without building intermediate JSON tree. Users are written in the same
+ * format, so written user is read back equal to itself except of its page and partial flag.
+ */
+public class UserTypeAdapter extends TypeAdapter<User> {
+
+    /** The same parser is used by {@link DateTime#parse(String)}.*/
+    private static final DateTimeFormatter DATE_TIME_PARSER = ISODateTimeFormat.dateTimeParser();
+
+    /** Format of dates in service responses.*/
+    private static final DateTimeFormatter DATE_TIME_PRINTER = ISODateTimeFormat.dateTime().withZoneUTC();
+
+    /**
+     * Writes user in format of service. Uuid isn't kept by user, so uuid, which is read back
+     * into the same id, is written instead.
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(@NonNull JsonWriter aWriter, @Nullable User aUser) throws IOException {
+
+        if (aUser == null) {
+
+            aWriter.nullValue();
+            return;
+        }
+
+        aWriter.beginObject();
+
+        aWriter.name(UserResponseContact.ID_SECTION).beginObject()
+                .name(UserResponseContact.ID_TYPE).value(aUser.getIdType())
+                .name(UserResponseContact.USER_ID).value(aUser.getIdNumber())
+                .endObject();
+
+        aWriter.name(UserResponseContact.NAME_SECTION).beginObject()
+                .name(UserResponseContact.TITLE).value(aUser.getTitle())
+                .name(UserResponseContact.FIRST_NAME).value(aUser.getFirstName())
+                .name(UserResponseContact.LAST_NAME).value(aUser.getLastName())
+                .endObject();
+
+        writeLocationSection(aWriter, aUser);
+
+        aWriter.name(UserResponseContact.LOGIN_SECTION).beginObject()
+                .name(UserResponseContact.UUID).value(new UUID(aUser.getId(), 0).toString())
+                .name(UserResponseContact.USER_NAME).value(aUser.getUserName())
+                .endObject();
+
+        aWriter.name(UserResponseContact.DOB_SECTION).beginObject();
+        writeDateMillis(aWriter.name(UserResponseContact.BIRTH_DATE), aUser.getBirthDateMillis());
+        aWriter.name(UserResponseContact.AGE).value(aUser.getAge())
+                .endObject();
+
+        aWriter.name(UserResponseContact.REGISTRATION_SECTION).beginObject();
+        writeDateMillis(aWriter.name(UserResponseContact.REGISTRATION_DATE), aUser.getRegistrationDateMillis());
+        aWriter.name(UserResponseContact.REGISTRATION_AGE).value(aUser.getRegistrationAge())
+                .endObject();
+
+        aWriter.name(UserResponseContact.PICTURE_SECTION).beginObject()
+                .name(UserResponseContact.LARGE_PICTURE_URL).value(aUser.getLargePictureUrl())
+                .name(UserResponseContact.MEDIUM_PICTURE_URL).value(aUser.getMediumPictureUrl())
+                .name(UserResponseContact.THUMBNAIL_PICTURE_URL).value(aUser.getThumbnailPictureUrl())
+                .endObject();
+
+        aWriter.name(UserResponseContact.EMAIL).value(aUser.getEmail())
+                .name(UserResponseContact.PHONE_NUMBER).value(aUser.getPhoneNumber())
+                .name(UserResponseContact.CELL_NUMBER).value(aUser.getCellNumber());
+
+        aWriter.endObject();
+    }
+
+    /**
+     * Writes location section with nested coordinates and time zone sections.
+     */
+    private void writeLocationSection(@NonNull JsonWriter aWriter,
+                                      @NonNull User aUser) throws IOException {
+
+        aWriter.name(UserResponseContact.LOCATION_SECTION).beginObject()
+                .name(UserResponseContact.STREET).value(aUser.getStreet())
+                .name(UserResponseContact.CITY).value(aUser.getCity())
+                .name(UserResponseContact.STATE).value(aUser.getState())
+                .name(UserResponseContact.POST_CODE).value(aUser.getPostCode());
+
+        if (aUser.getGridCell() != GeoGrid.NO_CELL) {
+
+            aWriter.name(UserResponseContact.GEOLOCATION_SECTION).beginObject()
+                    .name(UserResponseContact.LATITUDE).value(aUser.getLatitude())
+                    .name(UserResponseContact.LONGITUDE).value(aUser.getLongitude())
+                    .endObject();
+        }
+
+        if (aUser.getTimeZoneOffset() != TimeZoneUtils.NO_OFFSET) {
+
+            aWriter.name(UserResponseContact.TIME_ZONE_SECTION).beginObject()
+                    .name(UserResponseContact.TIME_ZONE).value(TimeZoneUtils.formatOffset(aUser.getTimeZoneOffset()))
+                    .endObject();
+        }
+
+        aWriter.endObject();
+    }
+
+    /**
+     * Writes date time value.
+     *
+     * @param aWriter
+     *      Writer with name of value.
+     * @param aMillis
+     *      Epoch millis or {@link User#NO_DATE}.
+     */
+    private void writeDateMillis(@NonNull JsonWriter aWriter, long aMillis) throws IOException {
+
+        if (aMillis == User.NO_DATE) {
+            aWriter.nullValue();
+        } else {
+            aWriter.value(DATE_TIME_PRINTER.print(aMillis));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nullable
+    @Override
+    public User read(@NonNull JsonReader aReader) throws IOException {
+
+        if (skipNull(aReader)) {
+            return null;
+        }
+
+        final User.Builder builder = new User.Builder();
+
+        aReader.beginObject();
+
+        while (aReader.hasNext()) {
+
+            switch (aReader.nextName()) {
+
+                case UserResponseContact.ID_SECTION:
+                    readIdSection(aReader, builder);
+                    break;
+                case UserResponseContact.NAME_SECTION:
+                    readNameSection(aReader, builder);
+                    break;
+                case UserResponseContact.LOCATION_SECTION:
+                    readLocationSection(aReader, builder);
+                    break;
+                case UserResponseContact.LOGIN_SECTION:
+                    readLoginSection(aReader, builder);
+                    break;
+                case UserResponseContact.DOB_SECTION:
+                    readDateOfBirthSection(aReader, builder);
+                    break;
+                case UserResponseContact.REGISTRATION_SECTION:
+                    readRegistrationSection(aReader, builder);
+                    break;
+                case UserResponseContact.PICTURE_SECTION:
+                    readPictureSection(aReader, builder);
+                    break;
+                case UserResponseContact.EMAIL:
+                    builder.setEmail(nextString(aReader));
+                    break;
+                case UserResponseContact.PHONE_NUMBER:
+                    builder.setPhoneNumber(nextString(aReader));
+                    break;
+                case UserResponseContact.CELL_NUMBER:
+                    builder.setCellNumber(nextString(aReader));
+                    break;
+                default:
+                    aReader.skipValue();
+                    break;
+            }
+        }
+
+        aReader.endObject();
+
+        return builder.build();
+    }
+
+    /**
+     * Reads id section.
+     */
+    private void readIdSection(@NonNull JsonReader aReader,
+                               @NonNull User.Builder aBuilder) throws IOException {
+
+        if (skipNull(aReader)) {
+            return;
+        }
+
+        aReader.beginObject();
+
+        while (aReader.hasNext()) {
+
+            switch (aReader.nextName()) {
+
+                case UserResponseContact.USER_ID:
+                    aBuilder.setIdNumber(nextString(aReader));
+                    break;
+                case UserResponseContact.ID_TYPE:
+                    aBuilder.setIdType(nextString(aReader));
+                    break;
+                default:
+                    aReader.skipValue();
+                    break;
+            }
+        }
+
+        aReader.endObject();
+    }
+
+    /**
+     * Reads name section.
+     */
+    private void readNameSection(@NonNull JsonReader aReader,
+                                 @NonNull User.Builder aBuilder) throws IOException {
+
+        if (skipNull(aReader)) {
+            return;
+        }
+
+        aReader.beginObject();
+
+        while (aReader.hasNext()) {
+
+            switch (aReader.nextName()) {
+
+                case UserResponseContact.TITLE:
+                    aBuilder.setTitle(nextString(aReader));
+                    break;
+                case UserResponseContact.FIRST_NAME:
+                    aBuilder.setFirstName(nextString(aReader));
+                    break;
+                case UserResponseContact.LAST_NAME:
+                    aBuilder.setLastName(nextString(aReader));
+                    break;
+                default:
+                    aReader.skipValue();
+                    break;
+            }
+        }
+
+        aReader.endObject();
+    }
+
+    /**
+     * Reads location section with nested coordinates and time zone sections.
+     */
+    private void readLocationSection(@NonNull JsonReader aReader,
+                                     @NonNull User.Builder aBuilder) throws IOException {
+
+        if (skipNull(aReader)) {
+            return;
+        }
+
+        aReader.beginObject();
+
+        while (aReader.hasNext()) {
+
+            switch (aReader.nextName()) {
+
+                case UserResponseContact.STREET:
+                    aBuilder.setStreet(readStreet(aReader));
+                    break;
+                case UserResponseContact.CITY:
+                    aBuilder.setCity(nextString(aReader));
+                    break;
+                case UserResponseContact.STATE:
+                    aBuilder.setState(nextString(aReader));
+                    break;
+                case UserResponseContact.POST_CODE:
+                    aBuilder.setPostCode(nextString(aReader));
+                    break;
+                case UserResponseContact.GEOLOCATION_SECTION:
+                    readGeolocationSection(aReader, aBuilder);
+                    break;
+                case UserResponseContact.TIME_ZONE_SECTION:
+                    readTimeZoneSection(aReader, aBuilder);
+                    break;
+                default:
+                    aReader.skipValue();
+                    break;
+            }
+        }
+
+        aReader.endObject();
+    }
+
+    /**
+     * Reads street, which is plain string in older API versions and object with number and name in newer.
+     */
+    @Nullable
+    private String readStreet(@NonNull JsonReader aReader) throws IOException {
+
+        if (aReader.peek() != JsonToken.BEGIN_OBJECT) {
+            return nextString(aReader);
+        }
+
+        String number = null;
+        String name = null;
+
+        aReader.beginObject();
+
+        while (aReader.hasNext()) {
+
+            switch (aReader.nextName()) {
+
+                case UserResponseContact.STREET_NUMBER:
+                    number = nextString(aReader);
+                    break;
+                case UserResponseContact.STREET_NAME:
+                    name = nextString(aReader);
+                    break;
+                default:
+                    aReader.skipValue();
+                    break;
+            }
+        }
+
+        aReader.endObject();
+
+        if (number == null) {
+            return name;
+        } else if (name == null) {
+            return number;
+        } else {
+            return number + " " + name;
+        }
+    }
+
+    /**
+     * Reads coordinates section.
+     */
+    private void readGeolocationSection(@NonNull JsonReader aReader,
+                                        @NonNull User.Builder aBuilder) throws IOException {
+
+        if (skipNull(aReader)) {
+            return;
+        }
+
+        double latitude = 0;
+        double longitude = 0;
+        boolean hasLatitude = false;
+        boolean hasLongitude = false;
+
+        aReader.beginObject();
+
+        while (aReader.hasNext()) {
+
+            switch (aReader.nextName()) {
+
+                case UserResponseContact.LATITUDE:
+
+                    if (!skipNull(aReader)) {
+
+                        latitude = aReader.nextDouble();
+                        hasLatitude = true;
+                    }
+                    break;
+                case UserResponseContact.LONGITUDE:
+
+                    if (!skipNull(aReader)) {
+
+                        longitude = aReader.nextDouble();
+                        hasLongitude = true;
+                    }
+                    break;
+                default:
+                    aReader.skipValue();
+                    break;
+            }
+        }
+
+        aReader.endObject();
+
+        // User without either coordinate is left without location
+        if (hasLatitude && hasLongitude) {
+            aBuilder.setCoordinates(latitude, longitude);
+        }
+    }
+
+    /**
+     * Reads time zone section.
+     */
+    private void readTimeZoneSection(@NonNull JsonReader aReader,
+                                     @NonNull User.Builder aBuilder) throws IOException {
+
+        if (skipNull(aReader)) {
+            return;
+        }
+
+        aReader.beginObject();
+
+        while (aReader.hasNext()) {
+
+            if (UserResponseContact.TIME_ZONE.equals(aReader.nextName())) {
+
+                final String offset = nextString(aReader);
+
+                if (offset != null) {
+                    aBuilder.setTimeZoneOffset(TimeZoneUtils.parseOffsetMinutes(offset));
+                }
+            } else {
+                aReader.skipValue();
+            }
+        }
+
+        aReader.endObject();
+    }
+
+    /**
+     * Reads login section.
+     */
+    private void readLoginSection(@NonNull JsonReader aReader,
+                                  @NonNull User.Builder aBuilder) throws IOException {
+
+        if (skipNull(aReader)) {
+            return;
+        }
+
+        aReader.beginObject();
+
+        while (aReader.hasNext()) {
+
+            switch (aReader.nextName()) {
+
+                case UserResponseContact.USER_NAME:
+                    aBuilder.setUserName(nextString(aReader));
+                    break;
+                case UserResponseContact.UUID:
+                    aBuilder.setUuid(nextString(aReader));
+                    break;
+                default:
+                    aReader.skipValue();
+                    break;
+            }
+        }
+
+        aReader.endObject();
+    }
+
+    /**
+     * Reads date of birth section.
+     */
+    private void readDateOfBirthSection(@NonNull JsonReader aReader,
+                                        @NonNull User.Builder aBuilder) throws IOException {
+
+        if (skipNull(aReader)) {
+            return;
+        }
+
+        aReader.beginObject();
+
+        while (aReader.hasNext()) {
+
+            switch (aReader.nextName()) {
+
+                case UserResponseContact.BIRTH_DATE:
+                    aBuilder.setBirthDateMillis(nextDateMillis(aReader));
+                    break;
+                case UserResponseContact.AGE:
+
+                    if (!skipNull(aReader)) {
+                        aBuilder.setAge(aReader.nextInt());
+                    }
+                    break;
+                default:
+                    aReader.skipValue();
+                    break;
+            }
+        }
+
+        aReader.endObject();
+    }
+
+    /**
+     * Reads registration section.
+     */
+    private void readRegistrationSection(@NonNull JsonReader aReader,
+                                         @NonNull User.Builder aBuilder) throws IOException {
+
+        if (skipNull(aReader)) {
+            return;
+        }
+
+        aReader.beginObject();
+
+        while (aReader.hasNext()) {
+
+            switch (aReader.nextName()) {
+
+                case UserResponseContact.REGISTRATION_DATE:
+                    aBuilder.setRegistrationDateMillis(nextDateMillis(aReader));
+                    break;
+                case UserResponseContact.REGISTRATION_AGE:
+
+                    if (!skipNull(aReader)) {
+                        aBuilder.setRegistrationAge(aReader.nextInt());
+                    }
+                    break;
+                default:
+                    aReader.skipValue();
+                    break;
+            }
+        }
+
+        aReader.endObject();
+    }
+
+    /**
+     * Reads picture section.
+     */
+    private void readPictureSection(@NonNull JsonReader aReader,
+                                    @NonNull User.Builder aBuilder) throws IOException {
+
+        if (skipNull(aReader)) {
+            return;
+        }
+
+        aReader.beginObject();
+
+        while (aReader.hasNext()) {
+
+            switch (aReader.nextName()) {
+
+                case UserResponseContact.THUMBNAIL_PICTURE_URL:
+                    aBuilder.setThumbnailPicture(nextString(aReader));
+                    break;
+                case UserResponseContact.MEDIUM_PICTURE_URL:
+                    aBuilder.setMediumPicture(nextString(aReader));
+                    break;
+                case UserResponseContact.LARGE_PICTURE_URL:
+                    aBuilder.setLargePicture(nextString(aReader));
+                    break;
+                default:
+                    aReader.skipValue();
+                    break;
+            }
+        }
+
+        aReader.endObject();
+    }
+
+    /**
+     * Reads date time value without creation of date time object.
+     *
+     * @param aReader
+     *      Reader.
+     * @return Epoch millis or {@link User#NO_DATE} if value is null.
+     */
+    private long nextDateMillis(@NonNull JsonReader aReader) throws IOException {
+
+        final String value = nextString(aReader);
+
+        return value == null ? User.NO_DATE : DATE_TIME_PARSER.parseMillis(value);
+    }
+
+    /**
+     * Reads string value. Numbers are returned in their string form.
+     *
+     * @param aReader
+     *      Reader.
+     * @return String value or null if value is null.
+     */
+    @Nullable
+    private String nextString(@NonNull JsonReader aReader) throws IOException {
+
+        if (skipNull(aReader)) {
+            return null;
+        }
+
+        return aReader.nextString();
+    }
+
+    /**
+     * Consumes null value.
+     *
+     * @param aReader
+     *      Reader.
+     * @return true if null value was consumed, otherwise false.
+     */
+    private boolean skipNull(@NonNull JsonReader aReader) throws IOException {
+
+        if (aReader.peek() == JsonToken.NULL) {
+
+            aReader.nextNull();
+            return true;
+        }
+
+        return false;
+    }
+}
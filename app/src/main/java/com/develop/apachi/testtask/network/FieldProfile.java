@@ -0,0 +1,51 @@
+package com.develop.apachi.testtask.network;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Set of user sections requested from service. Service sends only included sections,
+ * so every consumer downloads and parses only what it displays.
+ *
+ * {@see https://randomuser.me/documentation#incexc}
+ */
+public final class FieldProfile {
+
+    /**
+     * Sections of user list: names, picture and login with user name and uuid, which is primary key.
+     * Login is the smallest section with user name, service can't include its single field.
+     * Location and email are included as well, so listed users are found by search and nearby queries.
+     */
+    public static final FieldProfile LIST = new FieldProfile("id,name,location,login,picture,email", true);
+
+    /** Sections of user details, everything stored except gender and nationality.*/
+    public static final FieldProfile FULL = new FieldProfile(
+            "id,name,location,login,dob,registered,picture,email,phone,cell", false);
+
+    /** Value of inc query parameter.*/
+    @NonNull
+    private final String iIncludedSections;
+
+    /** Users are missing stored sections.*/
+    private final boolean iPartial;
+
+    /**
+     * @param aIncludedSections
+     *      Comma separated names of included sections.
+     * @param aPartial
+     *      true if users are missing some of stored sections.
+     */
+    private FieldProfile(@NonNull String aIncludedSections, boolean aPartial) {
+
+        iIncludedSections = aIncludedSections;
+        iPartial = aPartial;
+    }
+
+    @NonNull
+    public String getIncludedSections() {
+        return iIncludedSections;
+    }
+
+    public boolean isPartial() {
+        return iPartial;
+    }
+}
@@ -0,0 +1,113 @@
+package com.develop.apachi.testtask.network;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.develop.apachi.testtask.model.User;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Streaming type adapter for {@link GeneralResponse} envelope. Skips everything except results,
+ * only results are written. Results are null if envelope has no results array, e.g. error response,
+ * so it is never taken for an empty page.
+ */
+/*package*/ class GeneralResponseTypeAdapter extends TypeAdapter<GeneralResponse> {
+
+    private static final String RESULTS = "results";
+
+    /** Adapter for every single user in results.*/
+    @NonNull
+    private final TypeAdapter<User> iUserAdapter;
+
+    /**
+     * @param aUserAdapter
+     *      Adapter for users in results.
+     */
+    /*package*/ GeneralResponseTypeAdapter(@NonNull TypeAdapter<User> aUserAdapter) {
+
+        iUserAdapter = aUserAdapter;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(@NonNull JsonWriter aWriter, @Nullable GeneralResponse aResponse) throws IOException {
+
+        if (aResponse == null) {
+
+            aWriter.nullValue();
+            return;
+        }
+
+        aWriter.beginObject();
+        aWriter.name(RESULTS);
+
+        if (aResponse.results == null) {
+            aWriter.nullValue();
+        } else {
+
+            aWriter.beginArray();
+
+            for (User user : aResponse.results) {
+                iUserAdapter.write(aWriter, user);
+            }
+
+            aWriter.endArray();
+        }
+
+        aWriter.endObject();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nullable
+    @Override
+    public GeneralResponse read(@NonNull JsonReader aReader) throws IOException {
+
+        if (aReader.peek() == JsonToken.NULL) {
+
+            aReader.nextNull();
+            return null;
+        }
+
+        final GeneralResponse response = new GeneralResponse();
+
+        aReader.beginObject();
+
+        while (aReader.hasNext()) {
+
+            if (RESULTS.equals(aReader.nextName())
+                    && aReader.peek() == JsonToken.BEGIN_ARRAY) {
+
+                response.results = new ArrayList<>();
+                aReader.beginArray();
+
+                while (aReader.hasNext()) {
+
+                    final User user = iUserAdapter.read(aReader);
+
+                    if (user != null) {
+                        response.results.add(user);
+                    }
+                }
+
+                aReader.endArray();
+            } else {
+
+                aReader.skipValue();
+            }
+        }
+
+        aReader.endObject();
+
+        return response;
+    }
+}
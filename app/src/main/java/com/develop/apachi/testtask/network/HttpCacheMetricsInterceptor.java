@@ -0,0 +1,44 @@
+package com.develop.apachi.testtask.network;
+
+import android.support.annotation.NonNull;
+
+import com.develop.apachi.testtask.metrics.Metrics;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * Application interceptor, which counts responses served from HTTP cache without network.
+ * Revalidated responses are counted as misses, since they need network exchange.
+ */
+/*package*/ class HttpCacheMetricsInterceptor implements Interceptor {
+
+    @NonNull
+    private final Metrics iMetrics;
+
+    /**
+     * @param aMetrics
+     *      Metrics of client.
+     */
+    /*package*/ HttpCacheMetricsInterceptor(@NonNull Metrics aMetrics) {
+
+        iMetrics = aMetrics;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Response intercept(@NonNull Chain aChain) throws IOException {
+
+        final Response response = aChain.proceed(aChain.request());
+
+        iMetrics.increment(response.networkResponse() == null && response.cacheResponse() != null
+                ? Metrics.HTTP_CACHE_HITS
+                : Metrics.HTTP_CACHE_MISSES);
+
+        return response;
+    }
+}
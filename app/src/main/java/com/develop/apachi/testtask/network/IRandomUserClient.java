@@ -1,5 +1,7 @@
 package com.develop.apachi.testtask.network;
 
+import android.support.annotation.NonNull;
+
 import com.develop.apachi.testtask.model.User;
 
 import java.util.List;
@@ -24,4 +26,39 @@ public interface IRandomUserClient {
      * @return Reactive streams with users.
      */
     Flowable<List<User>> getUsers(int aPageNumber);
+
+    /**
+     * Retrieves page of seeded users data set from service.
+     *
+     * @param aPageNumber
+     *      Page number, starting from 1.
+     * @param aSeed
+     *      Seed of data set, pages with same seed are consistent with each other.
+     * @param aProfile
+     *      Sections of users.
+     * @return Reactive streams with users, they know their page and whether they are partial.
+     */
+    Flowable<List<User>> getUsers(int aPageNumber, @NonNull String aSeed, @NonNull FieldProfile aProfile);
+
+    /**
+     * Retrieves several pages of seeded users data set. Pages are requested and parsed concurrently,
+     * but emitted in page order.
+     *
+     * @param aFirstPageNumber
+     *      Number of the first page, starting from 1.
+     * @param aPageCount
+     *      Count of pages.
+     * @param aSeed
+     *      Seed of data set.
+     * @param aMaxConcurrency
+     *      Maximum count of pages requested at once.
+     * @param aProfile
+     *      Sections of users.
+     * @return Reactive streams with users of every page.
+     */
+    Flowable<List<User>> getUsers(int aFirstPageNumber,
+                                  int aPageCount,
+                                  @NonNull String aSeed,
+                                  int aMaxConcurrency,
+                                  @NonNull FieldProfile aProfile);
 }
@@ -30,4 +30,24 @@ public interface IUserService {
      */
     @GET("api/")
     Flowable<GeneralResponse> getUsers(@Query("results") int aMaxCount, @Query("page") int aPage);
+
+    /**
+     * Retrieves list of users on page of seeded data set. Same seed always generates same users,
+     * so pages stay consistent with each other.
+     *
+     * @param aMaxCount
+     *      Max count.
+     * @param aPage
+     *      Page.
+     * @param aSeed
+     *      Seed of data set.
+     * @param aIncludedSections
+     *      Comma separated sections of users, {@link FieldProfile#getIncludedSections()}.
+     * @return Reactive stream with users.
+     */
+    @GET("api/")
+    Flowable<GeneralResponse> getUsers(@Query("results") int aMaxCount,
+                                       @Query("page") int aPage,
+                                       @Query("seed") String aSeed,
+                                       @Query("inc") String aIncludedSections);
 }
@@ -0,0 +1,140 @@
+package com.develop.apachi.testtask.network;
+
+/**
+ * Timeouts, retries and hedging of service requests.
+ */
+public final class LatencyPolicy {
+
+    /** Settings for small pages of users, whole call including retries fits into call timeout.*/
+    public static final LatencyPolicy DEFAULT = new LatencyPolicy(
+            10_000,
+            10_000,
+            10_000,
+            30_000,
+            2,
+            500,
+            4_000,
+            true,
+            300);
+
+    /** Timeout of connection establishing in milliseconds.*/
+    private final long iConnectTimeoutMillis;
+
+    /** Timeout of single read in milliseconds.*/
+    private final long iReadTimeoutMillis;
+
+    /** Timeout of single write in milliseconds.*/
+    private final long iWriteTimeoutMillis;
+
+    /** Deadline of whole call including retries in milliseconds.*/
+    private final long iCallTimeoutMillis;
+
+    /** Count of retries of failed idempotent request.*/
+    private final int iMaxRetries;
+
+    /** Delay before the first retry in milliseconds, it is doubled for every next retry.*/
+    private final long iInitialBackoffMillis;
+
+    /** Upper bound of delay between retries in milliseconds.*/
+    private final long iMaxBackoffMillis;
+
+    /** Duplicate page request, when it takes longer than usual.*/
+    private final boolean iHedgingEnabled;
+
+    /** Duplicate request is never sent earlier than this delay in milliseconds.*/
+    private final long iMinHedgeDelayMillis;
+
+    /**
+     * @param aConnectTimeoutMillis
+     *      Timeout of connection establishing in milliseconds.
+     * @param aReadTimeoutMillis
+     *      Timeout of single read in milliseconds.
+     * @param aWriteTimeoutMillis
+     *      Timeout of single write in milliseconds.
+     * @param aCallTimeoutMillis
+     *      Deadline of whole call including retries in milliseconds.
+     * @param aMaxRetries
+     *      Count of retries of failed idempotent request.
+     * @param aInitialBackoffMillis
+     *      Delay before the first retry in milliseconds.
+     * @param aMaxBackoffMillis
+     *      Upper bound of delay between retries in milliseconds.
+     * @param aHedgingEnabled
+     *      true to duplicate slow page requests.
+     * @param aMinHedgeDelayMillis
+     *      Minimal delay of duplicate request in milliseconds.
+     */
+    public LatencyPolicy(long aConnectTimeoutMillis,
+                         long aReadTimeoutMillis,
+                         long aWriteTimeoutMillis,
+                         long aCallTimeoutMillis,
+                         int aMaxRetries,
+                         long aInitialBackoffMillis,
+                         long aMaxBackoffMillis,
+                         boolean aHedgingEnabled,
+                         long aMinHedgeDelayMillis) {
+
+        iConnectTimeoutMillis = aConnectTimeoutMillis;
+        iReadTimeoutMillis = aReadTimeoutMillis;
+        iWriteTimeoutMillis = aWriteTimeoutMillis;
+        iCallTimeoutMillis = aCallTimeoutMillis;
+        iMaxRetries = aMaxRetries;
+        iInitialBackoffMillis = aInitialBackoffMillis;
+        iMaxBackoffMillis = aMaxBackoffMillis;
+        iHedgingEnabled = aHedgingEnabled;
+        iMinHedgeDelayMillis = aMinHedgeDelayMillis;
+    }
+
+    public long getConnectTimeoutMillis() {
+        return iConnectTimeoutMillis;
+    }
+
+    public long getReadTimeoutMillis() {
+        return iReadTimeoutMillis;
+    }
+
+    public long getWriteTimeoutMillis() {
+        return iWriteTimeoutMillis;
+    }
+
+    public long getCallTimeoutMillis() {
+        return iCallTimeoutMillis;
+    }
+
+    public int getMaxRetries() {
+        return iMaxRetries;
+    }
+
+    public long getInitialBackoffMillis() {
+        return iInitialBackoffMillis;
+    }
+
+    public long getMaxBackoffMillis() {
+        return iMaxBackoffMillis;
+    }
+
+    public boolean isHedgingEnabled() {
+        return iHedgingEnabled;
+    }
+
+    public long getMinHedgeDelayMillis() {
+        return iMinHedgeDelayMillis;
+    }
+
+    /**
+     * Calculates delay before retry. Delay grows exponentially up to max backoff,
+     * half of it is random, so clients failed together do not retry together.
+     *
+     * @param aRetry
+     *      Number of retry, starting from 0.
+     * @param aRandom
+     *      Random value from 0 to 1.
+     * @return Delay in milliseconds.
+     */
+    public long getBackoffMillis(int aRetry, double aRandom) {
+
+        final long backoff = Math.min(iMaxBackoffMillis, iInitialBackoffMillis << Math.min(aRetry, 30));
+
+        return backoff / 2 + (long) (backoff / 2 * aRandom);
+    }
+}
@@ -0,0 +1,87 @@
+package com.develop.apachi.testtask.network;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * Network interceptor, which tracks latencies of recent network exchanges. Cached responses
+ * do not reach network interceptors, so only real network latency is tracked.
+ */
+/*package*/ class LatencyTracker implements Interceptor {
+
+    /** Returned while there are too few samples to estimate latency.*/
+    /*package*/ static final long NO_ESTIMATE = -1;
+
+    /** Count of recent samples kept.*/
+    private static final int MAX_SAMPLES = 64;
+
+    /** Count of samples needed to estimate percentile.*/
+    private static final int MIN_SAMPLES = 10;
+
+    /** Ring buffer of latencies in milliseconds. Guarded by this.*/
+    @NonNull
+    private final long[] iSamples = new long[MAX_SAMPLES];
+
+    /** Count of recorded samples, not more than size of buffer.*/
+    private int iSampleCount;
+
+    /** Position of the next sample in buffer.*/
+    private int iNextSample;
+
+    /**
+     * Measures time from sending request to receiving response headers.
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public Response intercept(@NonNull Chain aChain) throws IOException {
+
+        final long startNanos = System.nanoTime();
+        final Response response = aChain.proceed(aChain.request());
+
+        record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+
+        return response;
+    }
+
+    /**
+     * Records latency sample.
+     *
+     * @param aLatencyMillis
+     *      Latency in milliseconds.
+     */
+    /*package*/ synchronized void record(long aLatencyMillis) {
+
+        iSamples[iNextSample] = aLatencyMillis;
+        iNextSample = (iNextSample + 1) % MAX_SAMPLES;
+        iSampleCount = Math.min(iSampleCount + 1, MAX_SAMPLES);
+    }
+
+    /**
+     * Estimates latency percentile over recent samples.
+     *
+     * @param aPercentile
+     *      Percentile from 0 to 1.
+     * @return Latency in milliseconds or {@link #NO_ESTIMATE} if there are too few samples.
+     */
+    /*package*/ synchronized long getPercentile(double aPercentile) {
+
+        if (iSampleCount < MIN_SAMPLES) {
+            return NO_ESTIMATE;
+        }
+
+        final long[] samples = Arrays.copyOf(iSamples, iSampleCount);
+
+        Arrays.sort(samples);
+
+        final int index = (int) Math.ceil(aPercentile * iSampleCount) - 1;
+
+        return samples[Math.max(0, Math.min(iSampleCount - 1, index))];
+    }
+}
@@ -0,0 +1,108 @@
+package com.develop.apachi.testtask.network;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.develop.apachi.testtask.metrics.Metrics;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+/**
+ * Network interceptor, which records latency of network exchanges and counts bytes
+ * of response bodies as they are received, before decompression.
+ */
+/*package*/ class NetworkMetricsInterceptor implements Interceptor {
+
+    @NonNull
+    private final Metrics iMetrics;
+
+    /**
+     * @param aMetrics
+     *      Metrics of client.
+     */
+    /*package*/ NetworkMetricsInterceptor(@NonNull Metrics aMetrics) {
+
+        iMetrics = aMetrics;
+    }
+
+    /**
+     * Measures time from sending request to receiving response headers.
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public Response intercept(@NonNull Chain aChain) throws IOException {
+
+        final long startNanos = System.nanoTime();
+        final Response response = aChain.proceed(aChain.request());
+
+        iMetrics.recordLatency(Metrics.NETWORK_LATENCY, startNanos);
+
+        final ResponseBody body = response.body();
+
+        if (body == null) {
+            return response;
+        }
+
+        return response.newBuilder()
+                .body(new CountingResponseBody(body, iMetrics))
+                .build();
+    }
+
+    /**
+     * Response body, which adds count of read bytes to {@link Metrics#NETWORK_BYTES}.
+     */
+    private static final class CountingResponseBody extends ResponseBody {
+
+        @NonNull
+        private final ResponseBody iBody;
+
+        @NonNull
+        private final BufferedSource iSource;
+
+        /*package*/ CountingResponseBody(@NonNull ResponseBody aBody, @NonNull Metrics aMetrics) {
+
+            iBody = aBody;
+            iSource = Okio.buffer(new ForwardingSource(aBody.source()) {
+
+                @Override
+                public long read(@NonNull Buffer aSink, long aByteCount) throws IOException {
+
+                    final long read = super.read(aSink, aByteCount);
+
+                    if (read > 0) {
+                        aMetrics.add(Metrics.NETWORK_BYTES, read);
+                    }
+
+                    return read;
+                }
+            });
+        }
+
+        @Nullable
+        @Override
+        public MediaType contentType() {
+            return iBody.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return iBody.contentLength();
+        }
+
+        @NonNull
+        @Override
+        public BufferedSource source() {
+            return iSource;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.develop.apachi.testtask.network;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.develop.apachi.testtask.metrics.Metrics;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * Converter factory, which records time of response conversion into {@link Metrics#PARSE_LATENCY}.
+ * Body is parsed while it is streamed, so time includes reading of body, which is not
+ * received yet.
+ */
+/*package*/ class ParseMetricsConverterFactory extends Converter.Factory {
+
+    /** Converter factory, which does real conversion.*/
+    @NonNull
+    private final Converter.Factory iFactory;
+
+    @NonNull
+    private final Metrics iMetrics;
+
+    /**
+     * @param aFactory
+     *      Converter factory, which does real conversion.
+     * @param aMetrics
+     *      Metrics of client.
+     */
+    /*package*/ ParseMetricsConverterFactory(@NonNull Converter.Factory aFactory, @NonNull Metrics aMetrics) {
+
+        iFactory = aFactory;
+        iMetrics = aMetrics;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nullable
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(@NonNull Type aType,
+                                                            @NonNull Annotation[] aAnnotations,
+                                                            @NonNull Retrofit aRetrofit) {
+
+        final Converter<ResponseBody, ?> converter = iFactory.responseBodyConverter(aType, aAnnotations, aRetrofit);
+
+        if (converter == null) {
+            return null;
+        }
+
+        return body -> {
+
+            final long startNanos = System.nanoTime();
+
+            try {
+                return converter.convert(body);
+            } finally {
+                iMetrics.recordLatency(Metrics.PARSE_LATENCY, startNanos);
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nullable
+    @Override
+    public Converter<?, RequestBody> requestBodyConverter(@NonNull Type aType,
+                                                          @NonNull Annotation[] aParameterAnnotations,
+                                                          @NonNull Annotation[] aMethodAnnotations,
+                                                          @NonNull Retrofit aRetrofit) {
+
+        return iFactory.requestBodyConverter(aType, aParameterAnnotations, aMethodAnnotations, aRetrofit);
+    }
+}
@@ -1,19 +1,23 @@
 package com.develop.apachi.testtask.network;
 
-import android.content.Context;
 import android.support.annotation.NonNull;
 
+import com.develop.apachi.testtask.metrics.Metrics;
 import com.develop.apachi.testtask.model.User;
-import com.develop.apachi.testtask.model.adapters.UserDeserializer;
+import com.develop.apachi.testtask.model.adapters.UserTypeAdapter;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.TypeAdapter;
 
-import java.io.IOException;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 import io.reactivex.Flowable;
+import io.reactivex.schedulers.Schedulers;
+import okhttp3.Cache;
 import okhttp3.OkHttpClient;
 import retrofit2.Retrofit;
 import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
@@ -25,29 +29,67 @@ import retrofit2.converter.gson.GsonConverterFactory;
 public class RandomUsersClientImpl implements IRandomUserClient {
 
     private static final int MAX_USER_COUNT = 100;
-    private static final int MAX_USER_PAGE_COUNT = 10;
+    private static final int MAX_USER_PAGE_COUNT = 25;
+
+    /** Seeded pages never change, they are fresh for a day and revalidated after.*/
+    private static final int SEEDED_PAGE_MAX_AGE_SECONDS = 24 * 60 * 60;
+    /** Stale seeded pages are used when network fails for a week.*/
+    private static final int SEEDED_PAGE_MAX_STALE_SECONDS = 7 * 24 * 60 * 60;
+
+    /** Page request is duplicated, when it takes longer than this percentile of recent latencies.*/
+    private static final double HEDGE_PERCENTILE = 0.95;
 
     /** Instance of user service.*/
     private IUserService iUserService;
 
+    /** Timeouts, retries and hedging of requests.*/
+    @NonNull
+    private final LatencyPolicy iLatencyPolicy;
+
+    /** Metrics of network exchanges, parsing and HTTP cache.*/
+    @NonNull
+    private final Metrics iMetrics;
+
+    /** Latencies of recent network exchanges, they define hedging delay.*/
+    @NonNull
+    private final LatencyTracker iLatencyTracker = new LatencyTracker();
+
     /**
      * Creates new instance
      *
      * @param iServiceUrl
      *      Service url.
+     * @param aCacheDirectory
+     *      Directory of HTTP cache.
+     * @param aCacheSize
+     *      Maximum size of HTTP cache in bytes.
+     * @param aLatencyPolicy
+     *      Timeouts, retries and hedging of requests.
+     * @param aMetrics
+     *      Metrics of network exchanges, parsing and HTTP cache.
      */
-    public RandomUsersClientImpl(@NonNull String iServiceUrl) {
+    public RandomUsersClientImpl(@NonNull String iServiceUrl,
+                                 @NonNull File aCacheDirectory,
+                                 long aCacheSize,
+                                 @NonNull LatencyPolicy aLatencyPolicy,
+                                 @NonNull Metrics aMetrics) {
+
+        iLatencyPolicy = aLatencyPolicy;
+        iMetrics = aMetrics;
+
+        final TypeAdapter<User> userAdapter = new UserTypeAdapter();
 
         final Gson gson = new GsonBuilder()
-                .registerTypeAdapter(new TypeToken<User>(){}.getType(), new UserDeserializer())
+                .registerTypeAdapter(User.class, userAdapter)
+                .registerTypeAdapter(GeneralResponse.class, new GeneralResponseTypeAdapter(userAdapter))
                 .setLenient()
                 .create();
 
         iUserService = new Retrofit.Builder()
                 .baseUrl(iServiceUrl)
-                .client(configureClient())
+                .client(configureClient(new Cache(aCacheDirectory, aCacheSize)))
                 .addCallAdapterFactory(RxJava2CallAdapterFactory.create())
-                .addConverterFactory(GsonConverterFactory.create(gson))
+                .addConverterFactory(new ParseMetricsConverterFactory(GsonConverterFactory.create(gson), iMetrics))
                 .build()
                 .create(IUserService.class);
     }
@@ -66,16 +108,117 @@ public class RandomUsersClientImpl implements IRandomUserClient {
      */
     @Override
     public Flowable<List<User>> getUsers(int aPageNumber) {
-        return iUserService.getUsers(MAX_USER_PAGE_COUNT, aPageNumber)
+        return hedge(() -> iUserService.getUsers(MAX_USER_PAGE_COUNT, aPageNumber))
                 .map(response -> response.results);
     }
 
     /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Flowable<List<User>> getUsers(int aPageNumber, @NonNull String aSeed, @NonNull FieldProfile aProfile) {
+        return hedge(() -> iUserService.getUsers(MAX_USER_PAGE_COUNT,
+                        aPageNumber,
+                        aSeed,
+                        aProfile.getIncludedSections()))
+                .map(response -> withSource(response.results, aPageNumber, aProfile));
+    }
+
+    /**
+     * Every page is requested and parsed on its own io thread, eager concat keeps page order.
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public Flowable<List<User>> getUsers(int aFirstPageNumber,
+                                         int aPageCount,
+                                         @NonNull String aSeed,
+                                         int aMaxConcurrency,
+                                         @NonNull FieldProfile aProfile) {
+
+        return Flowable
+                .range(aFirstPageNumber, aPageCount)
+                .concatMapEager(page -> getUsers(page, aSeed, aProfile).subscribeOn(Schedulers.io()),
+                        aMaxConcurrency,
+                        1);
+    }
+
+    /**
+     * Marks users with their page and profile, so partial users can be completed later.
+     *
+     * @param aUsers
+     *      Parsed users.
+     * @param aPageNumber
+     *      Page of users.
+     * @param aProfile
+     *      Sections of users.
+     * @return Marked users.
+     */
+    @NonNull
+    private List<User> withSource(@NonNull List<User> aUsers, int aPageNumber, @NonNull FieldProfile aProfile) {
+
+        final List<User> users = new ArrayList<>(aUsers.size());
+
+        for (User user : aUsers) {
+            users.add(user.withSource(aPageNumber, aProfile.isPartial()));
+        }
+
+        return users;
+    }
+
+    /**
+     * Hedges page request. If request takes longer than usual, duplicate request is sent
+     * and the first answer wins, the other request is cancelled. Page requests are idempotent,
+     * so duplicate is safe.
+     *
+     * @param aRequest
+     *      Creates request.
+     * @return Stream with response of the first answered request.
+     */
+    @NonNull
+    private <T> Flowable<T> hedge(@NonNull Callable<Flowable<T>> aRequest) {
+
+        if (!iLatencyPolicy.isHedgingEnabled()) {
+            return Flowable.defer(aRequest);
+        }
+
+        return Flowable.defer(() -> {
+
+            final long latencyMillis = iLatencyTracker.getPercentile(HEDGE_PERCENTILE);
+
+            if (latencyMillis == LatencyTracker.NO_ESTIMATE) {
+                return aRequest.call();
+            }
+
+            // Requests are executed synchronously, so both run on io threads to race each other
+            return Flowable.ambArray(
+                    aRequest.call().subscribeOn(Schedulers.io()),
+                    Flowable.timer(Math.max(latencyMillis, iLatencyPolicy.getMinHedgeDelayMillis()),
+                                    TimeUnit.MILLISECONDS,
+                                    Schedulers.io())
+                            .flatMap(tick -> aRequest.call()));
+        });
+    }
+
+    /**
+     * @param aCache
+     *      HTTP cache.
      * @return configured {@link OkHttpClient} instance.
      */
-    private OkHttpClient configureClient() {
+    private OkHttpClient configureClient(@NonNull Cache aCache) {
 
         return new OkHttpClient.Builder()
+                .cache(aCache)
+                .connectTimeout(iLatencyPolicy.getConnectTimeoutMillis(), TimeUnit.MILLISECONDS)
+                .readTimeout(iLatencyPolicy.getReadTimeoutMillis(), TimeUnit.MILLISECONDS)
+                .writeTimeout(iLatencyPolicy.getWriteTimeoutMillis(), TimeUnit.MILLISECONDS)
+                .callTimeout(iLatencyPolicy.getCallTimeoutMillis(), TimeUnit.MILLISECONDS)
+                .addInterceptor(new HttpCacheMetricsInterceptor(iMetrics))
+                .addInterceptor(new StaleIfErrorInterceptor(SEEDED_PAGE_MAX_STALE_SECONDS))
+                .addInterceptor(new RetryInterceptor(iLatencyPolicy))
+                .addNetworkInterceptor(iLatencyTracker)
+                .addNetworkInterceptor(new NetworkMetricsInterceptor(iMetrics))
+                .addNetworkInterceptor(new SeededPageCacheInterceptor(SEEDED_PAGE_MAX_AGE_SECONDS))
                 .build();
     }
 }
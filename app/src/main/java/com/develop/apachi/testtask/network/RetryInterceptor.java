@@ -0,0 +1,130 @@
+package com.develop.apachi.testtask.network;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Application interceptor, which retries failed idempotent requests with exponential backoff.
+ * Requests are retried on IO errors and on server errors received from network, until retries
+ * are exhausted or the next attempt can not fit into call deadline. Stale cached page is
+ * served by {@link StaleIfErrorInterceptor} then, so this interceptor goes after it.
+ */
+/*package*/ class RetryInterceptor implements Interceptor {
+
+    private static final String GET_METHOD = "GET";
+    private static final String HEAD_METHOD = "HEAD";
+
+    @NonNull
+    private final LatencyPolicy iLatencyPolicy;
+
+    @NonNull
+    private final Random iRandom = new Random();
+
+    /**
+     * @param aLatencyPolicy
+     *      Retries and call deadline.
+     */
+    /*package*/ RetryInterceptor(@NonNull LatencyPolicy aLatencyPolicy) {
+
+        iLatencyPolicy = aLatencyPolicy;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Response intercept(@NonNull Chain aChain) throws IOException {
+
+        final Request request = aChain.request();
+
+        if (!GET_METHOD.equals(request.method()) && !HEAD_METHOD.equals(request.method())) {
+            return aChain.proceed(request);
+        }
+
+        final long startNanos = System.nanoTime();
+
+        for (int retry = 0; ; retry++) {
+
+            final Response response;
+
+            try {
+                response = aChain.proceed(request);
+            } catch (IOException aEx) {
+
+                if (!waitForRetry(aChain, retry, startNanos)) {
+                    throw aEx;
+                }
+
+                continue;
+            }
+
+            if (!isRetryable(response) || !waitForRetry(aChain, retry, startNanos)) {
+                return response;
+            }
+
+            response.close();
+        }
+    }
+
+    /**
+     * Server errors are retried, errors synthesized by cache are not.
+     *
+     * @param aResponse
+     *      Response.
+     * @return true if request may succeed on retry.
+     */
+    private boolean isRetryable(@NonNull Response aResponse) {
+
+        return aResponse.code() >= 500 && aResponse.networkResponse() != null;
+    }
+
+    /**
+     * Waits before retry, if retry is allowed.
+     *
+     * @param aChain
+     *      Interceptor chain.
+     * @param aRetry
+     *      Number of retry, starting from 0.
+     * @param aStartNanos
+     *      Start of the first attempt.
+     * @return true if request should be retried.
+     */
+    private boolean waitForRetry(@NonNull Chain aChain, int aRetry, long aStartNanos) throws IOException {
+
+        if (aRetry >= iLatencyPolicy.getMaxRetries() || aChain.call().isCanceled()) {
+            return false;
+        }
+
+        final long backoffMillis;
+
+        synchronized (iRandom) {
+            backoffMillis = iLatencyPolicy.getBackoffMillis(aRetry, iRandom.nextDouble());
+        }
+
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - aStartNanos);
+
+        // Attempt started too close to deadline would be cancelled by call timeout
+        if (elapsedMillis + backoffMillis + iLatencyPolicy.getReadTimeoutMillis()
+                > iLatencyPolicy.getCallTimeoutMillis()) {
+            return false;
+        }
+
+        try {
+            Thread.sleep(backoffMillis);
+        } catch (InterruptedException aEx) {
+
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Retry is interrupted");
+        }
+
+        return !aChain.call().isCanceled();
+    }
+}
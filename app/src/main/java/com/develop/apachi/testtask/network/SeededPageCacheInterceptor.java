@@ -0,0 +1,77 @@
+package com.develop.apachi.testtask.network;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.CacheControl;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Network interceptor, which makes responses with seeded pages cacheable. Same seed and page always
+ * produce same users, so such responses are fresh for max age. Validators of response (ETag and
+ * Last-Modified) are kept, so cache revalidates stale pages with conditional requests.
+ */
+/*package*/ class SeededPageCacheInterceptor implements Interceptor {
+
+    private static final String SEED_PARAMETER = "seed";
+    private static final String PAGE_PARAMETER = "page";
+
+    private static final String CACHE_CONTROL_HEADER = "Cache-Control";
+    private static final String PRAGMA_HEADER = "Pragma";
+
+    /** Cache control applied to seeded pages.*/
+    @NonNull
+    private final String iCacheControl;
+
+    /**
+     * @param aMaxAgeSeconds
+     *      Max age of seeded pages in seconds.
+     */
+    /*package*/ SeededPageCacheInterceptor(int aMaxAgeSeconds) {
+
+        iCacheControl = new CacheControl.Builder()
+                .maxAge(aMaxAgeSeconds, TimeUnit.SECONDS)
+                .build()
+                .toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Response intercept(@NonNull Chain aChain) throws IOException {
+
+        final Request request = aChain.request();
+        final Response response = aChain.proceed(request);
+
+        if (!isSeededPage(request) || !response.isSuccessful()) {
+            return response;
+        }
+
+        return response.newBuilder()
+                .removeHeader(PRAGMA_HEADER)
+                .header(CACHE_CONTROL_HEADER, iCacheControl)
+                .build();
+    }
+
+    /**
+     * Checks whether request retrieves page of seeded data set.
+     *
+     * @param aRequest
+     *      Request.
+     * @return true if request is GET with seed and page.
+     */
+    /*package*/ static boolean isSeededPage(@NonNull Request aRequest) {
+
+        final HttpUrl url = aRequest.url();
+
+        return "GET".equals(aRequest.method())
+                && url.queryParameter(SEED_PARAMETER) != null
+                && url.queryParameter(PAGE_PARAMETER) != null;
+    }
+}
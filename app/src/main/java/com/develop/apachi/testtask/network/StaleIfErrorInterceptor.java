@@ -0,0 +1,100 @@
+package com.develop.apachi.testtask.network;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.CacheControl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Application interceptor, which falls back to stale cached seeded page,
+ * when network is unavailable or server fails.
+ */
+/*package*/ class StaleIfErrorInterceptor implements Interceptor {
+
+    /** Cache control to take any cached response not older than max stale.*/
+    @NonNull
+    private final CacheControl iStaleCacheControl;
+
+    /**
+     * @param aMaxStaleSeconds
+     *      How long after expiration cached page still can be used in seconds.
+     */
+    /*package*/ StaleIfErrorInterceptor(int aMaxStaleSeconds) {
+
+        iStaleCacheControl = new CacheControl.Builder()
+                .onlyIfCached()
+                .maxStale(aMaxStaleSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Response intercept(@NonNull Chain aChain) throws IOException {
+
+        final Request request = aChain.request();
+
+        if (!SeededPageCacheInterceptor.isSeededPage(request)) {
+            return aChain.proceed(request);
+        }
+
+        final Response response;
+
+        try {
+            response = aChain.proceed(request);
+        } catch (IOException aEx) {
+
+            final Response cachedResponse = proceedWithCache(aChain, request);
+
+            if (cachedResponse == null) {
+                throw aEx;
+            }
+
+            return cachedResponse;
+        }
+
+        if (response.code() < 500) {
+            return response;
+        }
+
+        final Response cachedResponse = proceedWithCache(aChain, request);
+
+        if (cachedResponse == null) {
+            return response;
+        }
+
+        response.close();
+
+        return cachedResponse;
+    }
+
+    /**
+     * Retrieves stale response from cache.
+     *
+     * @param aChain
+     *      Interceptor chain.
+     * @param aRequest
+     *      Original request.
+     * @return Cached response or null if there is no usable cached response.
+     */
+    private Response proceedWithCache(@NonNull Chain aChain, @NonNull Request aRequest) throws IOException {
+
+        final Response cachedResponse = aChain.proceed(aRequest.newBuilder()
+                .cacheControl(iStaleCacheControl)
+                .build());
+
+        if (cachedResponse.isSuccessful()) {
+            return cachedResponse;
+        }
+
+        cachedResponse.close();
+
+        return null;
+    }
+}
@@ -0,0 +1,93 @@
+package com.develop.apachi.testtask.sync;
+
+import android.content.Context;
+import android.os.Build;
+import android.support.annotation.NonNull;
+
+import com.develop.apachi.testtask.MainApplication;
+import com.develop.apachi.testtask.model.UserRepository;
+
+import java.util.concurrent.TimeUnit;
+
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.RxWorker;
+import androidx.work.WorkManager;
+import androidx.work.WorkerParameters;
+
+import io.reactivex.Single;
+
+/**
+ * Refreshes stored users from network in background, so app launches are served from database
+ * instead of waiting for network. Runs periodically on unmetered network while device
+ * is charging and idle.
+ */
+public class UserSyncWorker extends RxWorker {
+
+    /** Unique name of periodic sync, only one sync is scheduled.*/
+    private static final String UNIQUE_WORK_NAME = "user_sync";
+
+    /** Sync runs twice per stale data interval, so launches find data fresh.*/
+    private static final long REPEAT_INTERVAL_HOURS = 6;
+
+    /** Pages of data set kept stored, network is unmetered, so they are fetched ahead of time.*/
+    private static final int WARM_UP_PAGE_COUNT = 40;
+
+    /** Maximum count of pages fetched at once.*/
+    private static final int WARM_UP_MAX_CONCURRENCY = 4;
+
+    /**
+     * Constructor for work manager.
+     *
+     * @param aContext
+     *      Application context.
+     * @param aWorkerParameters
+     *      Parameters of work.
+     */
+    public UserSyncWorker(@NonNull Context aContext, @NonNull WorkerParameters aWorkerParameters) {
+        super(aContext, aWorkerParameters);
+    }
+
+    /**
+     * Schedules periodic sync. Already scheduled sync is kept.
+     */
+    public static void schedule() {
+
+        final Constraints.Builder constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.UNMETERED)
+                .setRequiresCharging(true);
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            constraints.setRequiresDeviceIdle(true);
+        }
+
+        final PeriodicWorkRequest request = new PeriodicWorkRequest
+                .Builder(UserSyncWorker.class, REPEAT_INTERVAL_HOURS, TimeUnit.HOURS)
+                .setConstraints(constraints.build())
+                .build();
+
+        WorkManager.getInstance()
+                .enqueueUniquePeriodicWork(UNIQUE_WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    /**
+     * Refreshes the first page of stored users from network and stores next pages, which aren't stored yet.
+     * Failed sync is retried with backoff.
+     *
+     * {@inheritDoc}
+     */
+    @NonNull
+    @Override
+    public Single<Result> createWork() {
+
+        return ((MainApplication) getApplicationContext())
+                .getUserRepository()
+                .flatMapCompletable(repository -> repository
+                        .syncFromNetwork()
+                        .andThen(repository.warmUp(WARM_UP_PAGE_COUNT, WARM_UP_MAX_CONCURRENCY)))
+                .toSingleDefault(Result.success())
+                .onErrorReturnItem(Result.retry());
+    }
+}
@@ -0,0 +1,241 @@
+package com.develop.apachi.testtask.utils;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Utils class for spatial lookups. The globe is split into fixed cells of
+ * {@link #CELL_SIZE_DEGREES} degrees, cells are numbered row by row from south-west corner.
+ * Cells of one row inside of bounding box have consecutive numbers, so the box is covered by
+ * one range of cells per row and can be looked up by index on cell number.
+ */
+public class GeoGrid {
+
+    /** Cell number of users without location.*/
+    public static final int NO_CELL = -1;
+
+    /** Size of cell side.*/
+    public static final double CELL_SIZE_DEGREES = 1;
+
+    /** Maximum angular distance between two points of the globe.*/
+    public static final double MAX_DISTANCE_DEGREES = 180;
+
+    private static final double MIN_LATITUDE = -90;
+    private static final double MAX_LATITUDE = 90;
+    private static final double MIN_LONGITUDE = -180;
+    private static final double MAX_LONGITUDE = 180;
+
+    private static final int ROW_COUNT = (int) Math.ceil((MAX_LATITUDE - MIN_LATITUDE) / CELL_SIZE_DEGREES);
+    private static final int COLUMN_COUNT = (int) Math.ceil((MAX_LONGITUDE - MIN_LONGITUDE) / CELL_SIZE_DEGREES);
+
+    /** Tall boxes are covered by one range per longitude span instead of one range per row.*/
+    private static final int MAX_CELL_RANGES = 32;
+
+    /**
+     * Calculates cell of point.
+     *
+     * @param aLatitude
+     *      Latitude.
+     * @param aLongitude
+     *      Longitude.
+     * @return Cell number.
+     */
+    public static int getCell(double aLatitude, double aLongitude) {
+
+        return getRow(aLatitude) * COLUMN_COUNT + getColumn(aLongitude);
+    }
+
+    /**
+     * Calculates ranges of cells covering bounding box.
+     *
+     * @param aBox
+     *      Bounding box.
+     * @return Pairs of first and last cells of ranges, ranges may cover cells outside of the box.
+     */
+    @NonNull
+    public static List<int[]> getCellRanges(@NonNull BoundingBox aBox) {
+
+        final int southRow = getRow(aBox.getSouth());
+        final int northRow = getRow(aBox.getNorth());
+        final int westColumn = getColumn(aBox.getWest());
+        final int eastColumn = getColumn(aBox.getEast());
+
+        final List<int[]> columnRanges = new ArrayList<>(2);
+
+        if (aBox.crossesAntimeridian()) {
+
+            columnRanges.add(new int[] {westColumn, COLUMN_COUNT - 1});
+            columnRanges.add(new int[] {0, eastColumn});
+        } else {
+
+            columnRanges.add(new int[] {westColumn, eastColumn});
+        }
+
+        final List<int[]> cellRanges = new ArrayList<>();
+        final int rowCount = northRow - southRow + 1;
+
+        if (rowCount * columnRanges.size() > MAX_CELL_RANGES) {
+
+            for (int[] columnRange : columnRanges) {
+
+                cellRanges.add(new int[] {
+                        southRow * COLUMN_COUNT + columnRange[0],
+                        northRow * COLUMN_COUNT + columnRange[1]});
+            }
+
+            return cellRanges;
+        }
+
+        for (int row = southRow; row <= northRow; row++) {
+
+            for (int[] columnRange : columnRanges) {
+
+                cellRanges.add(new int[] {
+                        row * COLUMN_COUNT + columnRange[0],
+                        row * COLUMN_COUNT + columnRange[1]});
+            }
+        }
+
+        return cellRanges;
+    }
+
+    /**
+     * Calculates bounding box of all points within distance from center.
+     *
+     * @param aLatitude
+     *      Latitude of center.
+     * @param aLongitude
+     *      Longitude of center.
+     * @param aRadiusDegrees
+     *      Angular distance from center.
+     * @return Bounding box.
+     */
+    @NonNull
+    public static BoundingBox getBoundingBox(double aLatitude, double aLongitude, double aRadiusDegrees) {
+
+        final double south = aLatitude - aRadiusDegrees;
+        final double north = aLatitude + aRadiusDegrees;
+
+        if (south <= MIN_LATITUDE || north >= MAX_LATITUDE) {
+
+            // Circle contains pole, so it contains all longitudes
+            return new BoundingBox(Math.max(south, MIN_LATITUDE),
+                    MIN_LONGITUDE,
+                    Math.min(north, MAX_LATITUDE),
+                    MAX_LONGITUDE);
+        }
+
+        final double longitudeSpan = Math.toDegrees(Math.asin(
+                Math.sin(Math.toRadians(aRadiusDegrees)) / Math.cos(Math.toRadians(aLatitude))));
+
+        if (Double.isNaN(longitudeSpan) || longitudeSpan >= MAX_LONGITUDE) {
+            return new BoundingBox(south, MIN_LONGITUDE, north, MAX_LONGITUDE);
+        }
+
+        return new BoundingBox(south,
+                normalizeLongitude(aLongitude - longitudeSpan),
+                north,
+                normalizeLongitude(aLongitude + longitudeSpan));
+    }
+
+    /**
+     * Calculates angular distance between two points of the globe.
+     *
+     * @return Distance in degrees.
+     */
+    public static double getDistanceDegrees(double aLatitude,
+                                            double aLongitude,
+                                            double aOtherLatitude,
+                                            double aOtherLongitude) {
+
+        final double latitudeDelta = Math.toRadians(aOtherLatitude - aLatitude);
+        final double longitudeDelta = Math.toRadians(aOtherLongitude - aLongitude);
+
+        final double haversine = Math.sin(latitudeDelta / 2) * Math.sin(latitudeDelta / 2)
+                + Math.cos(Math.toRadians(aLatitude)) * Math.cos(Math.toRadians(aOtherLatitude))
+                * Math.sin(longitudeDelta / 2) * Math.sin(longitudeDelta / 2);
+
+        return Math.toDegrees(2 * Math.asin(Math.min(1, Math.sqrt(haversine))));
+    }
+
+    private static int getRow(double aLatitude) {
+
+        final int row = (int) Math.floor((aLatitude - MIN_LATITUDE) / CELL_SIZE_DEGREES);
+
+        return Math.max(0, Math.min(row, ROW_COUNT - 1));
+    }
+
+    private static int getColumn(double aLongitude) {
+
+        final int column = (int) Math.floor((aLongitude - MIN_LONGITUDE) / CELL_SIZE_DEGREES);
+
+        return Math.max(0, Math.min(column, COLUMN_COUNT - 1));
+    }
+
+    private static double normalizeLongitude(double aLongitude) {
+
+        if (aLongitude < MIN_LONGITUDE) {
+            return aLongitude + 2 * MAX_LONGITUDE;
+        } else if (aLongitude > MAX_LONGITUDE) {
+            return aLongitude - 2 * MAX_LONGITUDE;
+        } else {
+            return aLongitude;
+        }
+    }
+
+    /**
+     * Area between two parallels and two meridians. West longitude is greater than east one,
+     * if box crosses antimeridian.
+     */
+    public static final class BoundingBox {
+
+        private final double iSouth;
+        private final double iWest;
+        private final double iNorth;
+        private final double iEast;
+
+        /**
+         * @param aSouth
+         *      Minimum latitude.
+         * @param aWest
+         *      Western longitude.
+         * @param aNorth
+         *      Maximum latitude.
+         * @param aEast
+         *      Eastern longitude.
+         */
+        public BoundingBox(double aSouth, double aWest, double aNorth, double aEast) {
+
+            iSouth = aSouth;
+            iWest = aWest;
+            iNorth = aNorth;
+            iEast = aEast;
+        }
+
+        public double getSouth() {
+            return iSouth;
+        }
+
+        public double getWest() {
+            return iWest;
+        }
+
+        public double getNorth() {
+            return iNorth;
+        }
+
+        public double getEast() {
+            return iEast;
+        }
+
+        /**
+         * @return true if box crosses 180th meridian.
+         */
+        public boolean crossesAntimeridian() {
+
+            return iWest > iEast;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.develop.apachi.testtask.utils;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.joda.time.DateTimeZone;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Utils class for fixed offset time zones. Users keep offsets in minutes,
+ * zones are created once per offset and shared by all users.
+ */
+public class TimeZoneUtils {
+
+    /** Offset of users without time zone.*/
+    public static final int NO_OFFSET = Integer.MIN_VALUE;
+
+    private static final int MINUTES_PER_HOUR = 60;
+    private static final int MILLIS_PER_MINUTE = 60 * 1000;
+
+    /** Interned zones by offset in minutes.*/
+    private static final ConcurrentMap<Integer, DateTimeZone> ZONES = new ConcurrentHashMap<>();
+
+    /**
+     * Retrieves shared zone for offset.
+     *
+     * @param aOffsetMinutes
+     *      Offset from UTC in minutes.
+     * @return Zone or null if there is no offset.
+     */
+    @Nullable
+    public static DateTimeZone forOffsetMinutes(int aOffsetMinutes) {
+
+        if (aOffsetMinutes == NO_OFFSET) {
+            return null;
+        }
+
+        final DateTimeZone zone = ZONES.get(aOffsetMinutes);
+
+        if (zone != null) {
+            return zone;
+        }
+
+        final DateTimeZone newZone = DateTimeZone.forOffsetMillis(aOffsetMinutes * MILLIS_PER_MINUTE);
+        final DateTimeZone previousZone = ZONES.putIfAbsent(aOffsetMinutes, newZone);
+
+        return previousZone != null ? previousZone : newZone;
+    }
+
+    /**
+     * Calculates offset of zone.
+     *
+     * @param aZone
+     *      Fixed offset zone.
+     * @return Offset in minutes or {@link #NO_OFFSET} if there is no zone.
+     */
+    public static int getOffsetMinutes(@Nullable DateTimeZone aZone) {
+
+        return aZone == null ? NO_OFFSET : aZone.getOffset(0L) / MILLIS_PER_MINUTE;
+    }
+
+    /**
+     * Parses offset in [+|-]h:mm format.
+     *
+     * @param aOffset
+     *      Offset string.
+     * @return Offset in minutes or {@link #NO_OFFSET} if string is not valid offset.
+     */
+    public static int parseOffsetMinutes(@NonNull String aOffset) {
+
+        final String offset = aOffset.trim();
+        final int separatorIndex = offset.indexOf(':');
+
+        if (offset.isEmpty()) {
+            return NO_OFFSET;
+        }
+
+        final boolean negative = offset.charAt(0) == '-';
+        final int hoursStart = negative || offset.charAt(0) == '+' ? 1 : 0;
+
+        try {
+            final int hours;
+            final int minutes;
+
+            if (separatorIndex < 0) {
+
+                hours = Integer.parseInt(offset.substring(hoursStart));
+                minutes = 0;
+            } else {
+
+                hours = Integer.parseInt(offset.substring(hoursStart, separatorIndex));
+                minutes = Integer.parseInt(offset.substring(separatorIndex + 1));
+            }
+
+            final int offsetMinutes = hours * MINUTES_PER_HOUR + minutes;
+
+            return negative ? -offsetMinutes : offsetMinutes;
+        } catch (NumberFormatException aEx) {
+
+            return NO_OFFSET;
+        }
+    }
+
+    /**
+     * Formats offset in [+|-]h:mm format of service.
+     *
+     * @param aOffsetMinutes
+     *      Offset from UTC in minutes.
+     * @return Offset string, e.g. +5:30, -3:00 or 0:00.
+     */
+    @NonNull
+    public static String formatOffset(int aOffsetMinutes) {
+
+        final int offsetMinutes = Math.abs(aOffsetMinutes);
+        final String sign = aOffsetMinutes > 0 ? "+" : aOffsetMinutes < 0 ? "-" : "";
+        final int minutes = offsetMinutes % MINUTES_PER_HOUR;
+
+        return sign + offsetMinutes / MINUTES_PER_HOUR + (minutes < 10 ? ":0" : ":") + minutes;
+    }
+}
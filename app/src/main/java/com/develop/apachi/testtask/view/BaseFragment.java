@@ -14,10 +14,9 @@ import com.develop.apachi.testtask.IRepositoryProvider;
 import com.develop.apachi.testtask.model.UserRepository;
 import com.develop.apachi.testtask.view_model.RandomUserViewModel;
 
-import java.util.Objects;
-
 import butterknife.ButterKnife;
 import butterknife.Unbinder;
+import io.reactivex.Single;
 
 /**
  * Base fragment with butterknife bindable interface.
@@ -39,8 +38,7 @@ public class BaseFragment extends Fragment {
 
         if (aContext instanceof IRepositoryProvider) {
 
-            iRandomUserViewModel = attachViewModel(Objects
-                    .requireNonNull(((IRepositoryProvider) aContext).getCurrentRepository()));
+            iRandomUserViewModel = attachViewModel(((IRepositoryProvider) aContext).getCurrentRepository());
         } else {
 
             throw new IllegalArgumentException(String.format("%s must implement %s",
@@ -74,9 +72,9 @@ public class BaseFragment extends Fragment {
      * Attaches view model to a view.
      *
      * @param aUserRepository
-     *      Model that be attached to the viewModel.
+     *      Stream with model that be attached to the viewModel.
      */
-    protected RandomUserViewModel attachViewModel(@NonNull UserRepository aUserRepository) {
+    protected RandomUserViewModel attachViewModel(@NonNull Single<UserRepository> aUserRepository) {
 
         return ViewModelProviders
                 .of(this, new ViewModelProvider.Factory() {
@@ -1,28 +1,37 @@
 package com.develop.apachi.testtask.view;
 
 import android.content.Context;
+import android.os.Build;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.v4.app.FragmentActivity;
 import android.support.v4.widget.SwipeRefreshLayout;
 import android.support.v7.widget.DividerItemDecoration;
+import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.SearchView;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.widget.Toast;
 
 import com.develop.apachi.testtask.R;
 import com.develop.apachi.testtask.adapters.UsersAdapter;
-import com.develop.apachi.testtask.model.User;
+import com.develop.apachi.testtask.model.UserListItem;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import butterknife.BindView;
+import io.reactivex.Observable;
 import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.Disposable;
 import io.reactivex.disposables.Disposables;
 import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.PublishSubject;
 
 /**
  * Fragment for displaying list of persons.
@@ -37,13 +46,72 @@ public class PersonListFragment extends BaseFragment implements SwipeRefreshLayo
     @BindView(R.id.users_list)
     protected RecyclerView iUsersList;
 
+    @BindView(R.id.search_view)
+    protected SearchView iSearchView;
+
     private UsersAdapter iUsersAdapter;
 
     private Disposable iUsersSubscription = Disposables.empty();
 
+    private Disposable iNextPageSubscription = Disposables.empty();
+
+    private Disposable iSearchSubscription = Disposables.empty();
+
+    /** Queries typed into search view.*/
+    private final PublishSubject<String> iSearchQueries = PublishSubject.create();
+
+    /** List displays search results, while search is active. Paging and refreshing are off then.*/
+    private boolean iIsSearchActive;
+
+    /** Count of rows left until the end of list, when the next page is requested.*/
+    private int iPrefetchDistance;
+
+    /** Prevents requesting of the same page twice.*/
+    private boolean iIsNextPageLoading;
+
     @Nullable
     private OnUserSelectedListener iUserSelectedListener;
 
+    /** Requests next page, when list is scrolled close to its end.*/
+    private final RecyclerView.OnScrollListener iPagingScrollListener = new RecyclerView.OnScrollListener() {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onScrolled(@NonNull RecyclerView aRecyclerView, int aDx, int aDy) {
+
+            requestNextPageIfNeeded();
+        }
+    };
+
+    /**
+     * Reports activity fully drawn, when the first frame with users is drawn.
+     * Time from launch to the first list render is logged by system then.
+     */
+    private final ViewTreeObserver.OnPreDrawListener iFirstRenderListener = new ViewTreeObserver.OnPreDrawListener() {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean onPreDraw() {
+
+            if (iUsersList.getChildCount() > 0) {
+
+                iUsersList.getViewTreeObserver().removeOnPreDrawListener(this);
+
+                final FragmentActivity activity = getActivity();
+
+                if (activity != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+                    activity.reportFullyDrawn();
+                }
+            }
+
+            return true;
+        }
+    };
+
     /**
      * Creates new instance of fragment.
      *
@@ -139,9 +207,119 @@ public class PersonListFragment extends BaseFragment implements SwipeRefreshLayo
 
         iUsersList.setAdapter(iUsersAdapter);
 
+        iPrefetchDistance = getResources().getInteger(R.integer.user_list_prefetch_distance);
+        iUsersList.addOnScrollListener(iPagingScrollListener);
+        iUsersList.getViewTreeObserver().addOnPreDrawListener(iFirstRenderListener);
+
         iSwipeRefreshLayout.setOnRefreshListener(this);
 
-        requestAllUsers(false);
+        setupSearch();
+        observeUsers();
+    }
+
+    /**
+     * Setups search. Queries are debounced, the stale search is cancelled by the new one
+     * and search runs in background.
+     */
+    private void setupSearch() {
+
+        iSearchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public boolean onQueryTextSubmit(String aQuery) {
+
+                iSearchView.clearFocus();
+                return true;
+            }
+
+            /**
+             * {@inheritDoc}
+             */
+            @Override
+            public boolean onQueryTextChange(String aText) {
+
+                onSearchQueryChanged(aText.trim());
+                return true;
+            }
+        });
+
+        final long debounceMillis = getResources().getInteger(R.integer.user_search_debounce_millis);
+
+        iSearchSubscription = iSearchQueries
+                .debounce(debounceMillis, TimeUnit.MILLISECONDS)
+                .switchMap(this::searchUsers)
+                .subscribe(iUsersAdapter::updateData);
+    }
+
+    /**
+     * Searches users.
+     *
+     * @param aQuery
+     *      Query typed by user.
+     * @return Stream with found users observed on main thread, empty stream if search is not active.
+     */
+    @NonNull
+    private Observable<List<UserListItem>> searchUsers(@NonNull String aQuery) {
+
+        if (aQuery.isEmpty()) {
+            return Observable.empty();
+        }
+
+        return iRandomUserViewModel.searchUsers(aQuery)
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .filter(result -> iIsSearchActive)
+                .doOnError(this::handleException)
+                .onErrorComplete()
+                .toObservable();
+    }
+
+    /**
+     * Switches list between users and search results.
+     *
+     * @param aQuery
+     *      Query typed by user, empty if there is no search.
+     */
+    private void onSearchQueryChanged(@NonNull String aQuery) {
+
+        final boolean wasSearchActive = iIsSearchActive;
+        iIsSearchActive = !aQuery.isEmpty();
+
+        if (iIsSearchActive && !wasSearchActive) {
+
+            iUsersSubscription.dispose();
+            iNextPageSubscription.dispose();
+            iIsNextPageLoading = false;
+            hideLoading();
+        } else if (!iIsSearchActive && wasSearchActive) {
+
+            observeUsers();
+        }
+
+        iSwipeRefreshLayout.setEnabled(!iIsSearchActive);
+        iSearchQueries.onNext(aQuery);
+    }
+
+    /**
+     * Observes users. Stored users are displayed at once and replaced with refreshed ones
+     * when those are loaded in background.
+     */
+    private void observeUsers() {
+
+        iNextPageSubscription.dispose();
+        iIsNextPageLoading = false;
+
+        iUsersSubscription.dispose();
+        iUsersSubscription = iRandomUserViewModel.observeUsers()
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .doOnSubscribe(subscription -> displayLoading())
+                .doOnNext(result -> hideLoading())
+                .doOnError(throwable -> hideLoading())
+                .subscribe(iUsersAdapter::updateData, this::handleException);
     }
 
     /**
@@ -152,6 +330,10 @@ public class PersonListFragment extends BaseFragment implements SwipeRefreshLayo
      */
     private void requestAllUsers(boolean aForceNetwork) {
 
+        iNextPageSubscription.dispose();
+        iIsNextPageLoading = false;
+
+        iUsersSubscription.dispose();
         iUsersSubscription = iRandomUserViewModel.getUsers(aForceNetwork)
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
@@ -161,11 +343,55 @@ public class PersonListFragment extends BaseFragment implements SwipeRefreshLayo
                 .subscribe(iUsersAdapter::updateData, this::handleException);
     }
 
+    /**
+     * Requests next page, if list is scrolled within prefetch distance of its end.
+     */
+    private void requestNextPageIfNeeded() {
+
+        final LinearLayoutManager layoutManager = (LinearLayoutManager) iUsersList.getLayoutManager();
+        final int itemCount = iUsersAdapter.getItemCount();
+
+        if (layoutManager == null
+                || itemCount == 0
+                || iIsNextPageLoading
+                || iIsSearchActive
+                || iSwipeRefreshLayout.isRefreshing()) {
+            return;
+        }
+
+        if (layoutManager.findLastVisibleItemPosition() + iPrefetchDistance >= itemCount) {
+
+            requestNextPage();
+        }
+    }
+
+    /**
+     * Requests next page of users and appends it to the list.
+     */
+    private void requestNextPage() {
+
+        iIsNextPageLoading = true;
+
+        iNextPageSubscription = iRandomUserViewModel.getNextUsersPage()
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .doOnSuccess(result -> iIsNextPageLoading = false)
+                .doOnError(throwable -> iIsNextPageLoading = false)
+                .subscribe(iUsersAdapter::appendData, this::handleException);
+    }
+
     /**
      * Disposes all the subscriptions.
      */
     private void disposeAllSubscriptions() {
         iUsersSubscription.dispose();
+        iNextPageSubscription.dispose();
+        iSearchSubscription.dispose();
+        iSearchView.setOnQueryTextListener(null);
+        iUsersList.removeOnScrollListener(iPagingScrollListener);
+        iUsersList.getViewTreeObserver().removeOnPreDrawListener(iFirstRenderListener);
+        // Detached adapter cancels building of row texts
+        iUsersList.setAdapter(null);
     }
 
     /**
@@ -223,6 +449,6 @@ public class PersonListFragment extends BaseFragment implements SwipeRefreshLayo
          * @param aUser
          *      User.
          */
-        void onUserSelected(User aUser);
+        void onUserSelected(UserListItem aUser);
     }
 }
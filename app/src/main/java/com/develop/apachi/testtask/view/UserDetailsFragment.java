@@ -65,14 +65,14 @@ public class UserDetailsFragment extends BaseFragment {
      *      User id.
      * @return Instance of user details fragment.
      */
-    public static UserDetailsFragment newInstance(int aUserId) {
+    public static UserDetailsFragment newInstance(long aUserId) {
 
         final Bundle args = new Bundle();
 
         UserDetailsFragment fragment = new UserDetailsFragment();
         fragment.setArguments(args);
 
-        args.putInt(USER_ARG_KEY, aUserId);
+        args.putLong(USER_ARG_KEY, aUserId);
 
         return fragment;
     }
@@ -136,7 +136,7 @@ public class UserDetailsFragment extends BaseFragment {
 
         if (aArgs != null && aArgs.containsKey(USER_ARG_KEY)) {
 
-            final int userId = aArgs.getInt(USER_ARG_KEY);
+            final long userId = aArgs.getLong(USER_ARG_KEY);
 
             iUserSubscription = iRandomUserViewModel
                     .getUser(userId)
@@ -167,7 +167,7 @@ public class UserDetailsFragment extends BaseFragment {
     private void saveArgs(@NonNull Bundle aArgs) {
 
         if (iUser != null) {
-            aArgs.putInt(USER_ARG_KEY, iUser.getId());
+            aArgs.putLong(USER_ARG_KEY, iUser.getId());
         }
     }
 
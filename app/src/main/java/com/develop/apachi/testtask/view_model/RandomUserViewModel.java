@@ -4,30 +4,33 @@ import android.arch.lifecycle.ViewModel;
 import android.support.annotation.NonNull;
 
 import com.develop.apachi.testtask.model.User;
+import com.develop.apachi.testtask.model.UserListItem;
 import com.develop.apachi.testtask.model.UserRepository;
 
 import java.util.List;
 
+import io.reactivex.Flowable;
 import io.reactivex.Single;
 import io.reactivex.disposables.CompositeDisposable;
+import io.reactivex.disposables.Disposables;
 
 /**
  * View model for storing the data.
  */
 public class RandomUserViewModel extends ViewModel {
 
-    /** Repository with users.*/
+    /** Repository with users, it is created in background.*/
     @NonNull
-    private final UserRepository iUserRepository;
+    private final Single<UserRepository> iUserRepository;
     /** Defensive disposable.*/
     @NonNull
     private final CompositeDisposable iCompositeDisposable;
 
     /**
      * @param aUserRepository
-     *          User repository.
+     *          Stream with user repository.
      */
-    public RandomUserViewModel(@NonNull UserRepository aUserRepository) {
+    public RandomUserViewModel(@NonNull Single<UserRepository> aUserRepository) {
 
         iUserRepository = aUserRepository;
         iCompositeDisposable = new CompositeDisposable();
@@ -42,13 +45,55 @@ public class RandomUserViewModel extends ViewModel {
      *      Stream with users.
      */
     @NonNull
-    public Single<List<User>> getUsers(boolean aForceNetwork) {
+    public Single<List<UserListItem>> getUsers(boolean aForceNetwork) {
 
         return iUserRepository
-                .getPersons(aForceNetwork)
+                .flatMap(repository -> repository.getPersons(aForceNetwork))
                 .doOnSubscribe(iCompositeDisposable::add); // Def hint ;)
     }
 
+    /**
+     * Observes users. Stored users are emitted at once, refreshed ones are emitted when they are loaded.
+     *
+     * @return Stream with users.
+     */
+    @NonNull
+    public Flowable<List<UserListItem>> observeUsers() {
+
+        return iUserRepository
+                .flatMapPublisher(repository -> repository.observePersons())
+                .doOnSubscribe(subscription -> iCompositeDisposable.add(
+                        Disposables.fromSubscription(subscription)));
+    }
+
+    /**
+     * Retrieves reactive stream with the next page of users.
+     *
+     * @return Stream with users of the next page.
+     */
+    @NonNull
+    public Single<List<UserListItem>> getNextUsersPage() {
+
+        return iUserRepository
+                .flatMap(repository -> repository.getNextPersonsPage())
+                .doOnSubscribe(iCompositeDisposable::add);
+    }
+
+    /**
+     * Searches stored users.
+     *
+     * @param aQuery
+     *      Query typed by user.
+     * @return Stream with found users.
+     */
+    @NonNull
+    public Single<List<UserListItem>> searchUsers(@NonNull String aQuery) {
+
+        return iUserRepository
+                .flatMap(repository -> repository.searchPersons(aQuery))
+                .doOnSubscribe(iCompositeDisposable::add);
+    }
+
     /**
      * Retrieves user from database.
      *
@@ -57,10 +102,10 @@ public class RandomUserViewModel extends ViewModel {
      * @return User from database.
      */
     @NonNull
-    public Single<User> getUser(int aId) {
+    public Single<User> getUser(long aId) {
 
         return iUserRepository
-                .getUser(aId)
+                .flatMap(repository -> repository.getUser(aId))
                 .doOnSubscribe(iCompositeDisposable::add);
     }
 
@@ -0,0 +1,199 @@
+package com.develop.apachi.testtask.benchmark;
+
+import android.support.annotation.NonNull;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Measures latency and allocation of benchmark stages and writes them as JSON report
+ * into {@code build/reports/benchmarks}.
+ */
+public class BenchmarkReport {
+
+    /** Value of allocation, when JVM can't measure it.*/
+    public static final long NO_ALLOCATION = -1;
+
+    /** Name of report file without extension.*/
+    @NonNull
+    private final String iName;
+
+    /** Measured stages in order of measurement.*/
+    @NonNull
+    private final List<Measurement> iMeasurements = new ArrayList<>();
+
+    /**
+     * @param aName
+     *      Name of report file without extension.
+     */
+    public BenchmarkReport(@NonNull String aName) {
+
+        iName = aName;
+    }
+
+    /**
+     * Runs stage and records its latency and bytes allocated by all threads meanwhile.
+     *
+     * @param aStage
+     *      Name of stage.
+     * @param aSize
+     *      Count of users processed by stage.
+     * @param aStageBody
+     *      Stage.
+     * @return Result of stage.
+     */
+    public <T> T measure(@NonNull String aStage, int aSize, @NonNull Callable<T> aStageBody) throws Exception {
+
+        return measure(aStage, aSize, aSize, aStageBody);
+    }
+
+    /**
+     * Runs stage of several operations and records its latency and bytes allocated by all threads meanwhile.
+     *
+     * @param aStage
+     *      Name of stage.
+     * @param aSize
+     *      Count of users in data set.
+     * @param aOperations
+     *      Count of operations done by stage, e.g. stored users or lookups.
+     * @param aStageBody
+     *      Stage.
+     * @return Result of stage.
+     */
+    public <T> T measure(@NonNull String aStage,
+                         int aSize,
+                         int aOperations,
+                         @NonNull Callable<T> aStageBody) throws Exception {
+
+        final long allocatedBefore = getAllocatedBytes();
+        final long startNanos = System.nanoTime();
+
+        final T result = aStageBody.call();
+
+        final long elapsedNanos = System.nanoTime() - startNanos;
+        final long allocatedAfter = getAllocatedBytes();
+
+        final Measurement measurement = new Measurement(aStage, aSize, aOperations, elapsedNanos,
+                allocatedBefore == NO_ALLOCATION || allocatedAfter == NO_ALLOCATION
+                        ? NO_ALLOCATION
+                        : allocatedAfter - allocatedBefore);
+
+        iMeasurements.add(measurement);
+
+        return result;
+    }
+
+    /**
+     * Writes all measurements.
+     *
+     * @return Report file.
+     */
+    @NonNull
+    public File write() throws IOException {
+
+        final File directory = new File("build/reports/benchmarks");
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create " + directory);
+        }
+
+        final File file = new File(directory, iName + ".json");
+
+        try (JsonWriter writer = new JsonWriter(new FileWriter(file))) {
+
+            writer.setIndent("  ");
+            writer.beginObject();
+            writer.name("benchmark").value(iName);
+            writer.name("jvm").value(System.getProperty("java.vm.name") + " " + System.getProperty("java.version"));
+            writer.name("measurements").beginArray();
+
+            for (Measurement measurement : iMeasurements) {
+
+                writer.beginObject()
+                        .name("stage").value(measurement.iStage)
+                        .name("size").value(measurement.iSize)
+                        .name("operations").value(measurement.iOperations)
+                        .name("millis").value(measurement.iElapsedNanos / 1_000_000.0)
+                        .name("operationsPerSecond").value(measurement.getOperationsPerSecond())
+                        .name("allocatedBytes").value(measurement.iAllocatedBytes)
+                        .endObject();
+            }
+
+            writer.endArray();
+            writer.endObject();
+        }
+
+        return file;
+    }
+
+    /**
+     * Sums bytes allocated by all live threads, so work of io and computation threads is counted too.
+     * Bytes of threads terminated during stage are lost, schedulers keep their threads alive.
+     *
+     * @return Allocated bytes or {@link #NO_ALLOCATION} if JVM doesn't support measurement.
+     */
+    private static long getAllocatedBytes() {
+
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return NO_ALLOCATION;
+        }
+
+        final com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+
+        if (!allocations.isThreadAllocatedMemorySupported() || !allocations.isThreadAllocatedMemoryEnabled()) {
+            return NO_ALLOCATION;
+        }
+
+        long allocatedBytes = 0;
+
+        for (long allocated : allocations.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+
+            if (allocated > 0) {
+                allocatedBytes += allocated;
+            }
+        }
+
+        return allocatedBytes;
+    }
+
+    /**
+     * Single measurement of stage.
+     */
+    private static final class Measurement {
+
+        @NonNull
+        /*package*/ final String iStage;
+        /*package*/ final int iSize;
+        /*package*/ final int iOperations;
+        /*package*/ final long iElapsedNanos;
+        /*package*/ final long iAllocatedBytes;
+
+        /*package*/ Measurement(@NonNull String aStage,
+                                int aSize,
+                                int aOperations,
+                                long aElapsedNanos,
+                                long aAllocatedBytes) {
+
+            iStage = aStage;
+            iSize = aSize;
+            iOperations = aOperations;
+            iElapsedNanos = aElapsedNanos;
+            iAllocatedBytes = aAllocatedBytes;
+        }
+
+        /*package*/ double getOperationsPerSecond() {
+
+            return iElapsedNanos == 0 ? 0 : iOperations * 1_000_000_000.0 / iElapsedNanos;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.develop.apachi.testtask.benchmark;
+
+import android.app.Application;
+import android.arch.persistence.room.Room;
+
+import com.develop.apachi.testtask.database.UserDao;
+import com.develop.apachi.testtask.database.UsersDatabase;
+import com.develop.apachi.testtask.model.User;
+import com.develop.apachi.testtask.model.UserListItem;
+
+import net.danlew.android.joda.JodaTimeAndroid;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Throughput of {@link UserDao} as users table grows: insert, full list query, point lookups,
+ * refreshes and deletion. Reports every stage into {@code build/reports/benchmarks/dao.json}.
+ *
+ * Disabled by default, run with:
+ * {@code ./gradlew testDebugUnitTest --tests '*DaoBenchmarkTest' -Dbenchmark.dao=true}
+ *
+ * Optional properties:
+ * {@code benchmark.dao.sizes} - comma separated counts of users, 1000,10000,100000 by default.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class DaoBenchmarkTest {
+
+    /** Count of single user lookups.*/
+    private static final int LOOKUP_COUNT = 1000;
+
+    @Before
+    public void setUp() {
+
+        Assume.assumeTrue("DAO benchmark is disabled", Boolean.getBoolean("benchmark.dao"));
+
+        JodaTimeAndroid.init(RuntimeEnvironment.application);
+    }
+
+    @Test
+    public void dao() throws Exception {
+
+        final BenchmarkReport report = new BenchmarkReport("dao");
+
+        // Warms up JIT and SQLite, result is not reported
+        runStages(new BenchmarkReport("dao-warm-up"), 1000);
+
+        for (String size : System.getProperty("benchmark.dao.sizes", "1000,10000,100000").split(",")) {
+            runStages(report, Integer.parseInt(size.trim()));
+        }
+
+        report.write();
+    }
+
+    /**
+     * Runs all stages on empty database for data set of given size.
+     */
+    private void runStages(BenchmarkReport aReport, int aSize) throws Exception {
+
+        final List<User> users = SyntheticUsers.create("dao", aSize);
+
+        // Refreshed data set keeps the first half of users and replaces the second one
+        final List<User> refreshedUsers = new ArrayList<>(users.subList(0, aSize / 2));
+        refreshedUsers.addAll(SyntheticUsers.create("dao-refresh", aSize - aSize / 2));
+
+        final UsersDatabase database = Room
+                .inMemoryDatabaseBuilder(RuntimeEnvironment.application, UsersDatabase.class)
+                .addCallback(UsersDatabase.CALLBACK)
+                .allowMainThreadQueries()
+                .build();
+
+        try {
+
+            final UserDao dao = database.getUserDao();
+
+            aReport.measure("insert", aSize, () -> {
+
+                dao.saveUsers(users);
+                return null;
+            });
+
+            final List<UserListItem> storedUsers = aReport.measure("query_list", aSize,
+                    () -> dao.getUsers().blockingGet());
+
+            assertEquals(aSize, storedUsers.size());
+
+            final Random random = new Random(aSize);
+
+            aReport.measure("point_lookup", aSize, LOOKUP_COUNT, () -> {
+
+                for (int i = 0; i < LOOKUP_COUNT; i++) {
+                    dao.getUser(storedUsers.get(random.nextInt(aSize)).getId()).blockingGet();
+                }
+
+                return null;
+            });
+
+            aReport.measure("refresh_unchanged", aSize, () -> {
+
+                dao.syncUsers(users);
+                return null;
+            });
+
+            aReport.measure("refresh_half_changed", aSize, () -> {
+
+                dao.syncUsers(refreshedUsers);
+                return null;
+            });
+
+            assertEquals(aSize, dao.getStoredUsers().size());
+
+            aReport.measure("delete_all", aSize, () -> {
+
+                dao.deleteAll();
+                return null;
+            });
+
+        } finally {
+            database.close();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.develop.apachi.testtask.benchmark;
+
+import android.app.Application;
+import android.arch.persistence.room.Room;
+import android.content.Context;
+
+import com.develop.apachi.testtask.database.UserDao;
+import com.develop.apachi.testtask.database.UsersDatabase;
+import com.develop.apachi.testtask.metrics.Metrics;
+import com.develop.apachi.testtask.model.User;
+import com.develop.apachi.testtask.model.UserListItem;
+import com.develop.apachi.testtask.model.UserRepository;
+import com.develop.apachi.testtask.network.FieldProfile;
+import com.develop.apachi.testtask.network.LatencyPolicy;
+import com.develop.apachi.testtask.network.RandomUsersClientImpl;
+
+import net.danlew.android.joda.JodaTimeAndroid;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * End-to-end benchmark of users pipeline against local stand-in of randomuser.me:
+ * fetch and parse, persist, load and refresh through repository. Reports latency and allocation
+ * of every stage into {@code build/reports/benchmarks/pipeline.json}.
+ *
+ * Disabled by default, run with:
+ * {@code ./gradlew testDebugUnitTest --tests '*PipelineBenchmarkTest' -Dbenchmark.pipeline=true}
+ *
+ * Optional properties:
+ * {@code benchmark.pipeline.sizes} - comma separated counts of users, 100,5000,50000 by default;
+ * {@code benchmark.pipeline.latencyMillis} - latency of every response, 0 by default;
+ * {@code benchmark.pipeline.bytesPerSecond} - bandwidth of every response, 0 is unlimited.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class PipelineBenchmarkTest {
+
+    /** Users per page, the same as client requests.*/
+    private static final int PAGE_SIZE = 25;
+    /** Pages fetched at once.*/
+    private static final int MAX_CONCURRENCY = 4;
+    /** Count of single user lookups.*/
+    private static final int USER_LOOKUP_COUNT = 100;
+    /** Seed of fetched data sets.*/
+    private static final String SEED = "benchmark";
+
+    /** Latencies are measured as they are, so requests are neither retried nor hedged.*/
+    private static final LatencyPolicy POLICY = new LatencyPolicy(
+            10_000,
+            60_000,
+            60_000,
+            0,
+            0,
+            0,
+            0,
+            false,
+            0);
+
+    @Rule
+    public final TemporaryFolder iTemporaryFolder = new TemporaryFolder();
+
+    private RandomUserStandInServer iServer;
+    private Context iContext;
+
+    @Before
+    public void setUp() throws Exception {
+
+        Assume.assumeTrue("Pipeline benchmark is disabled", Boolean.getBoolean("benchmark.pipeline"));
+
+        iContext = RuntimeEnvironment.application;
+        JodaTimeAndroid.init(iContext);
+
+        iServer = new RandomUserStandInServer(
+                Long.getLong("benchmark.pipeline.latencyMillis", 0),
+                Long.getLong("benchmark.pipeline.bytesPerSecond", 0));
+        iServer.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+
+        if (iServer != null) {
+            iServer.shutdown();
+        }
+    }
+
+    @Test
+    public void pipeline() throws Exception {
+
+        final BenchmarkReport report = new BenchmarkReport("pipeline");
+
+        // Warms up JIT, Room and connection pool, result is not reported
+        runPipeline(new BenchmarkReport("pipeline-warm-up"), PAGE_SIZE);
+
+        for (String size : System.getProperty("benchmark.pipeline.sizes", "100,5000,50000").split(",")) {
+            runPipeline(report, Integer.parseInt(size.trim()));
+        }
+
+        report.write();
+    }
+
+    /**
+     * Runs all stages for data set of given size.
+     */
+    private void runPipeline(BenchmarkReport aReport, int aSize) throws Exception {
+
+        final int pageCount = (aSize + PAGE_SIZE - 1) / PAGE_SIZE;
+        final RandomUsersClientImpl client = createClient();
+
+        final List<User> users = aReport.measure("fetch_parse", aSize, () -> {
+
+            final List<User> fetchedUsers = new ArrayList<>(pageCount * PAGE_SIZE);
+
+            for (List<User> page : client.getUsers(1, pageCount, SEED, MAX_CONCURRENCY, FieldProfile.FULL)
+                    .toList()
+                    .blockingGet()) {
+                fetchedUsers.addAll(page);
+            }
+
+            return fetchedUsers;
+        });
+
+        final UsersDatabase database = createDatabase();
+
+        try {
+
+            final UserDao dao = database.getUserDao();
+
+            aReport.measure("persist", aSize, () -> {
+
+                dao.syncUsers(users);
+                return null;
+            });
+
+            final List<UserListItem> storedUsers = aReport.measure("load_list", aSize,
+                    () -> dao.getUsers().blockingGet());
+
+            assertEquals(users.size(), storedUsers.size());
+
+            final Random random = new Random(aSize);
+
+            aReport.measure("load_user", USER_LOOKUP_COUNT, () -> {
+
+                for (int i = 0; i < USER_LOOKUP_COUNT; i++) {
+                    dao.getUser(storedUsers.get(random.nextInt(storedUsers.size())).getId()).blockingGet();
+                }
+
+                return null;
+            });
+
+        } finally {
+            database.close();
+        }
+
+        final UsersDatabase repositoryDatabase = createDatabase();
+
+        try {
+
+            final UserRepository repository = new UserRepository(iContext,
+                    repositoryDatabase,
+                    createClient(),
+                    new Metrics());
+
+            aReport.measure("repository_refresh", aSize, () -> {
+
+                repository.getPersons(true).blockingGet();
+                repository.warmUp(pageCount, MAX_CONCURRENCY).blockingAwait();
+                return null;
+            });
+
+        } finally {
+            repositoryDatabase.close();
+        }
+    }
+
+    /**
+     * @return Client of stand-in server with empty HTTP cache.
+     */
+    private RandomUsersClientImpl createClient() throws Exception {
+
+        return new RandomUsersClientImpl(iServer.getUrl(),
+                iTemporaryFolder.newFolder(),
+                100 * 1024 * 1024,
+                POLICY,
+                new Metrics());
+    }
+
+    /**
+     * @return Empty in-memory database.
+     */
+    private UsersDatabase createDatabase() {
+
+        return Room.inMemoryDatabaseBuilder(iContext, UsersDatabase.class)
+                .addCallback(UsersDatabase.CALLBACK)
+                .allowMainThreadQueries()
+                .build();
+    }
+}
@@ -0,0 +1,383 @@
+package com.develop.apachi.testtask.benchmark;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * Local stand-in of randomuser.me service. Generates randomuser-shaped pages with results, page, seed,
+ * inc and exc semantics: the same seed and page always produce the same users. Responses are delayed
+ * and throttled to simulate network.
+ *
+ * {@see https://randomuser.me/documentation}
+ */
+public class RandomUserStandInServer {
+
+    /** All sections of user in order of service.*/
+    private static final String[] SECTIONS = {
+            "gender", "name", "location", "email", "login", "dob", "registered",
+            "phone", "cell", "id", "picture", "nat"};
+
+    private static final String[] TITLES = {"Mr", "Ms", "Mrs", "Miss", "Monsieur", "Madame"};
+    private static final String[] FIRST_NAMES = {
+            "Oliver", "Emma", "Liam", "Ava", "Noah", "Mia", "Elias", "Sofia", "Lucas", "Ida",
+            "Mateo", "Aino", "Hugo", "L\u00e9a", "Arjun", "Yuki", "Zo\u00eb", "Bj\u00f6rn", "Chlo\u00e9", "Tom\u00e1s"};
+    private static final String[] LAST_NAMES = {
+            "Smith", "Garc\u00eda", "M\u00fcller", "Rossi", "Nieminen", "Dubois", "Jansen", "Novak", "Silva",
+            "Kowalski", "Andersen", "Ivanova", "O'Brien", "Nakamura", "Patel", "Moreau", "Lopez", "Kim"};
+    private static final String[] CITIES = {
+            "Helsinki", "Lyon", "Utrecht", "Austin", "Porto", "Graz", "Cork", "Oslo", "Perth", "Quebec"};
+    private static final String[] STATES = {
+            "Uusimaa", "Rh\u00f4ne", "Utrecht", "Texas", "Porto", "Steiermark", "Cork", "Oslo", "Victoria"};
+    private static final String[] STREETS = {
+            "Main Street", "Rue de la Paix", "Kerkstraat", "Elm Avenue", "Rua Augusta", "Hauptstra\u00dfe"};
+    private static final String[] TIME_ZONE_OFFSETS = {
+            "-12:00", "-8:00", "-5:00", "-3:30", "0:00", "+1:00", "+3:00", "+5:30", "+9:00", "+10:00"};
+
+    @NonNull
+    private final MockWebServer iServer = new MockWebServer();
+
+    /** Delay of response headers in milliseconds.*/
+    private final long iLatencyMillis;
+
+    /** Bandwidth in bytes per second, 0 is unlimited.*/
+    private final long iBytesPerSecond;
+
+    /**
+     * @param aLatencyMillis
+     *      Delay of response headers in milliseconds.
+     * @param aBytesPerSecond
+     *      Bandwidth in bytes per second, 0 is unlimited.
+     */
+    public RandomUserStandInServer(long aLatencyMillis, long aBytesPerSecond) {
+
+        iLatencyMillis = aLatencyMillis;
+        iBytesPerSecond = aBytesPerSecond;
+
+        iServer.setDispatcher(new Dispatcher() {
+
+            @Override
+            public MockResponse dispatch(@NonNull RecordedRequest aRequest) {
+
+                return createResponse(aRequest);
+            }
+        });
+    }
+
+    /**
+     * Starts server on local port.
+     */
+    public void start() throws IOException {
+
+        iServer.start();
+    }
+
+    /**
+     * Stops server.
+     */
+    public void shutdown() throws IOException {
+
+        iServer.shutdown();
+    }
+
+    /**
+     * @return Base url of service, the same as {@code BuildConfig.SERVER_URL}.
+     */
+    @NonNull
+    public String getUrl() {
+
+        return iServer.url("/").toString();
+    }
+
+    /**
+     * @return Count of received requests.
+     */
+    public int getRequestCount() {
+
+        return iServer.getRequestCount();
+    }
+
+    /**
+     * Creates delayed and throttled response on request of users.
+     *
+     * @param aRequest
+     *      Received request.
+     * @return Response.
+     */
+    @NonNull
+    private MockResponse createResponse(@NonNull RecordedRequest aRequest) {
+
+        final HttpUrl url = aRequest.getRequestUrl();
+
+        if (url == null || !url.encodedPath().startsWith("/api")) {
+            return new MockResponse().setResponseCode(404);
+        }
+
+        final int results = parseInt(url.queryParameter("results"), 1);
+        final int page = parseInt(url.queryParameter("page"), 1);
+        final String seed = url.queryParameter("seed") != null
+                ? url.queryParameter("seed")
+                : Long.toHexString(System.nanoTime());
+
+        final MockResponse response = new MockResponse()
+                .setHeader("Content-Type", "application/json; charset=utf-8")
+                .setBody(createPage(seed, page, results, getSections(url)))
+                .setHeadersDelay(iLatencyMillis, TimeUnit.MILLISECONDS);
+
+        if (iBytesPerSecond > 0) {
+            response.throttleBody(iBytesPerSecond, 1, TimeUnit.SECONDS);
+        }
+
+        return response;
+    }
+
+    /**
+     * Creates page of users.
+     *
+     * @param aSeed
+     *      Seed of data set.
+     * @param aPage
+     *      Page, starting from 1.
+     * @param aResults
+     *      Count of users on page.
+     * @param aSections
+     *      Included sections.
+     * @return JSON of page.
+     */
+    @NonNull
+    public static String createPage(@NonNull String aSeed, int aPage, int aResults, @NonNull Set<String> aSections) {
+
+        final StringWriter page = new StringWriter(aResults * 1024);
+
+        try (JsonWriter writer = new JsonWriter(page)) {
+
+            writer.beginObject();
+            writer.name("results").beginArray();
+
+            for (int i = 0; i < aResults; i++) {
+
+                // Every user has its own generator, so users don't depend on page size
+                final long userNumber = (long) (aPage - 1) * aResults + i;
+
+                writeUser(writer, new Random(aSeed.hashCode() * 1_000_003L + userNumber), aSections);
+            }
+
+            writer.endArray();
+            writer.name("info").beginObject()
+                    .name("seed").value(aSeed)
+                    .name("results").value(aResults)
+                    .name("page").value(aPage)
+                    .name("version").value("1.3")
+                    .endObject();
+            writer.endObject();
+
+        } catch (IOException aEx) {
+            throw new IllegalStateException(aEx);
+        }
+
+        return page.toString();
+    }
+
+    /**
+     * @return All sections of user.
+     */
+    @NonNull
+    public static Set<String> getAllSections() {
+
+        return new HashSet<>(Arrays.asList(SECTIONS));
+    }
+
+    /**
+     * Writes single user.
+     */
+    private static void writeUser(@NonNull JsonWriter aWriter,
+                                  @NonNull Random aRandom,
+                                  @NonNull Set<String> aSections) throws IOException {
+
+        final String firstName = pick(aRandom, FIRST_NAMES);
+        final String lastName = pick(aRandom, LAST_NAMES);
+        final String userName = (firstName + lastName).toLowerCase(Locale.US) + aRandom.nextInt(1000);
+        final int pictureNumber = aRandom.nextInt(100);
+        final int age = 18 + aRandom.nextInt(60);
+
+        // Excluded sections are generated too, so every user is the same whatever sections are included
+        final JsonWriter discard = new JsonWriter(new StringWriter());
+        discard.setLenient(true);
+
+        aWriter.beginObject();
+
+        section(aWriter, discard, aSections, "gender").value(aRandom.nextBoolean() ? "male" : "female");
+
+        section(aWriter, discard, aSections, "name").beginObject()
+                .name("title").value(pick(aRandom, TITLES))
+                .name("first").value(firstName)
+                .name("last").value(lastName)
+                .endObject();
+
+        final JsonWriter location = section(aWriter, discard, aSections, "location");
+
+        location.beginObject();
+        location.name("street").beginObject()
+                .name("number").value(1 + aRandom.nextInt(9999))
+                .name("name").value(pick(aRandom, STREETS))
+                .endObject();
+        location.name("city").value(pick(aRandom, CITIES))
+                .name("state").value(pick(aRandom, STATES))
+                .name("country").value("Stand-in")
+                .name("postcode").value(10000 + aRandom.nextInt(89999));
+        location.name("coordinates").beginObject()
+                .name("latitude").value(String.format(Locale.US, "%.4f", aRandom.nextDouble() * 180 - 90))
+                .name("longitude").value(String.format(Locale.US, "%.4f", aRandom.nextDouble() * 360 - 180))
+                .endObject();
+        location.name("timezone").beginObject()
+                .name("offset").value(pick(aRandom, TIME_ZONE_OFFSETS))
+                .name("description").value("Stand-in time zone")
+                .endObject();
+        location.endObject();
+
+        section(aWriter, discard, aSections, "email").value(userName + "@example.com");
+
+        section(aWriter, discard, aSections, "login").beginObject()
+                .name("uuid").value(new UUID(aRandom.nextLong(), aRandom.nextLong()).toString())
+                .name("username").value(userName)
+                .name("password").value(Long.toHexString(aRandom.nextLong()))
+                .name("salt").value(Long.toHexString(aRandom.nextLong()))
+                .name("md5").value(hex(aRandom, 2))
+                .name("sha1").value(hex(aRandom, 3))
+                .name("sha256").value(hex(aRandom, 4))
+                .endObject();
+
+        section(aWriter, discard, aSections, "dob").beginObject()
+                .name("date").value(createDate(aRandom, 1950, 2000))
+                .name("age").value(age)
+                .endObject();
+
+        section(aWriter, discard, aSections, "registered").beginObject()
+                .name("date").value(createDate(aRandom, 2002, 2019))
+                .name("age").value(1 + aRandom.nextInt(17))
+                .endObject();
+
+        section(aWriter, discard, aSections, "phone").value(String.format(Locale.US, "(%03d)-%03d-%04d",
+                aRandom.nextInt(1000), aRandom.nextInt(1000), aRandom.nextInt(10000)));
+
+        section(aWriter, discard, aSections, "cell").value(String.format(Locale.US, "(%03d)-%03d-%04d",
+                aRandom.nextInt(1000), aRandom.nextInt(1000), aRandom.nextInt(10000)));
+
+        section(aWriter, discard, aSections, "id").beginObject()
+                .name("name").value("SSN")
+                .name("value").value(String.format(Locale.US, "%03d-%02d-%04d",
+                        aRandom.nextInt(1000), aRandom.nextInt(100), aRandom.nextInt(10000)))
+                .endObject();
+
+        final String gender = pictureNumber % 2 == 0 ? "men" : "women";
+
+        section(aWriter, discard, aSections, "picture").beginObject()
+                .name("large").value("https://randomuser.me/api/portraits/" + gender + "/" + pictureNumber + ".jpg")
+                .name("medium").value("https://randomuser.me/api/portraits/med/" + gender + "/" + pictureNumber + ".jpg")
+                .name("thumbnail").value("https://randomuser.me/api/portraits/thumb/" + gender + "/" + pictureNumber + ".jpg")
+                .endObject();
+
+        section(aWriter, discard, aSections, "nat").value("SI");
+
+        aWriter.endObject();
+    }
+
+    /**
+     * Starts value of section.
+     *
+     * @param aWriter
+     *      Writer of user.
+     * @param aDiscard
+     *      Writer of excluded sections.
+     * @param aSections
+     *      Included sections.
+     * @param aSection
+     *      Section.
+     * @return Writer of section value.
+     */
+    @NonNull
+    private static JsonWriter section(@NonNull JsonWriter aWriter,
+                                      @NonNull JsonWriter aDiscard,
+                                      @NonNull Set<String> aSections,
+                                      @NonNull String aSection) throws IOException {
+
+        return aSections.contains(aSection) ? aWriter.name(aSection) : aDiscard;
+    }
+
+    /**
+     * Resolves sections by inc and exc parameters.
+     */
+    @NonNull
+    private static Set<String> getSections(@NonNull HttpUrl aUrl) {
+
+        final String included = aUrl.queryParameter("inc");
+        final String excluded = aUrl.queryParameter("exc");
+
+        final Set<String> sections = included != null
+                ? new HashSet<>(Arrays.asList(included.split(",")))
+                : getAllSections();
+
+        if (excluded != null) {
+            sections.removeAll(Arrays.asList(excluded.split(",")));
+        }
+
+        return sections;
+    }
+
+    @NonNull
+    private static String createDate(@NonNull Random aRandom, int aFromYear, int aToYear) {
+
+        return String.format(Locale.US, "%04d-%02d-%02dT%02d:%02d:%02d.%03dZ",
+                aFromYear + aRandom.nextInt(aToYear - aFromYear),
+                1 + aRandom.nextInt(12),
+                1 + aRandom.nextInt(28),
+                aRandom.nextInt(24),
+                aRandom.nextInt(60),
+                aRandom.nextInt(60),
+                aRandom.nextInt(1000));
+    }
+
+    @NonNull
+    private static String hex(@NonNull Random aRandom, int aLongCount) {
+
+        final StringBuilder hex = new StringBuilder();
+
+        for (int i = 0; i < aLongCount; i++) {
+            hex.append(String.format(Locale.US, "%016x", aRandom.nextLong()));
+        }
+
+        return hex.toString();
+    }
+
+    @NonNull
+    private static String pick(@NonNull Random aRandom, @NonNull String[] aValues) {
+
+        return aValues[aRandom.nextInt(aValues.length)];
+    }
+
+    private static int parseInt(@Nullable String aValue, int aDefaultValue) {
+
+        try {
+            return aValue == null ? aDefaultValue : Integer.parseInt(aValue);
+        } catch (NumberFormatException aEx) {
+            return aDefaultValue;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.develop.apachi.testtask.benchmark;
+
+import android.support.annotation.NonNull;
+
+import com.develop.apachi.testtask.model.User;
+import com.develop.apachi.testtask.model.adapters.UserTypeAdapter;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic data sets of full users, the same as stand-in server returns.
+ */
+public final class SyntheticUsers {
+
+    /** Users are generated page by page to keep JSON small.*/
+    private static final int PAGE_SIZE = 1000;
+
+    private SyntheticUsers() {
+    }
+
+    /**
+     * Creates data set.
+     *
+     * @param aSeed
+     *      Seed of data set.
+     * @param aCount
+     *      Count of users.
+     * @return Users with all sections.
+     */
+    @NonNull
+    public static List<User> create(@NonNull String aSeed, int aCount) throws IOException {
+
+        final UserTypeAdapter adapter = new UserTypeAdapter();
+        final List<User> users = new ArrayList<>(aCount);
+
+        for (int page = 1; users.size() < aCount; page++) {
+
+            // Position of user depends on page size, so the last page is full too and trimmed
+            final String json = RandomUserStandInServer.createPage(aSeed, page, PAGE_SIZE,
+                    RandomUserStandInServer.getAllSections());
+
+            try (JsonReader reader = new JsonReader(new StringReader(json))) {
+
+                reader.beginObject();
+
+                while (reader.hasNext()) {
+
+                    if (!"results".equals(reader.nextName())) {
+                        reader.skipValue();
+                        continue;
+                    }
+
+                    reader.beginArray();
+
+                    while (reader.hasNext()) {
+
+                        final User user = adapter.read(reader);
+
+                        if (users.size() < aCount) {
+                            users.add(user);
+                        }
+                    }
+
+                    reader.endArray();
+                }
+
+                reader.endObject();
+            }
+        }
+
+        return users;
+    }
+}
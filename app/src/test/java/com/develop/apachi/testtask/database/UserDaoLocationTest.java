@@ -0,0 +1,129 @@
+package com.develop.apachi.testtask.database;
+
+import android.app.Application;
+import android.arch.persistence.room.Room;
+
+import com.develop.apachi.testtask.model.User;
+import com.develop.apachi.testtask.model.UserLocationItem;
+import com.develop.apachi.testtask.utils.GeoGrid;
+
+import net.danlew.android.joda.JodaTimeAndroid;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Location queries of {@link UserDao#getUsersInBox(GeoGrid.BoundingBox)}
+ * and {@link UserDao#getNearestUsers(double, double, int)}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class UserDaoLocationTest {
+
+    private UsersDatabase iDatabase;
+    private UserDao iDao;
+
+    @Before
+    public void setUp() {
+
+        JodaTimeAndroid.init(RuntimeEnvironment.application);
+
+        iDatabase = Room
+                .inMemoryDatabaseBuilder(RuntimeEnvironment.application, UsersDatabase.class)
+                .addCallback(UsersDatabase.CALLBACK)
+                .allowMainThreadQueries()
+                .build();
+        iDao = iDatabase.getUserDao();
+
+        iDao.saveUsers(Arrays.asList(
+                createUser("Helsinki", 60.1699, 24.9384),
+                createUser("Tallinn", 59.4370, 24.7536),
+                createUser("Stockholm", 59.3293, 18.0686),
+                createUser("Suva", -18.1248, 178.4501),
+                createUser("Apia", -13.8333, -171.7667),
+                new User.Builder("Nowhere").setUserName("Nowhere").setLastName("Nowhere").build()));
+    }
+
+    @After
+    public void tearDown() {
+
+        iDatabase.close();
+    }
+
+    @Test
+    public void nearestUsersAreOrderedByDistance() {
+
+        assertEquals(Arrays.asList("Helsinki", "Tallinn", "Stockholm"),
+                getLastNames(iDao.getNearestUsers(60.17, 24.94, 3)));
+        assertEquals(Collections.singletonList("Tallinn"),
+                getLastNames(iDao.getNearestUsers(59.4, 24.7, 1)));
+    }
+
+    @Test
+    public void nearestUsersAreFoundAcrossAntimeridian() {
+
+        assertEquals(Arrays.asList("Suva", "Apia"), getLastNames(iDao.getNearestUsers(-15, 179.9, 2)));
+        assertEquals(Arrays.asList("Apia", "Suva"), getLastNames(iDao.getNearestUsers(-14, -173, 2)));
+    }
+
+    @Test
+    public void usersWithoutLocationAreNeverFound() {
+
+        final List<String> lastNames = getLastNames(iDao.getNearestUsers(0, 0, 10));
+
+        Collections.sort(lastNames);
+
+        assertEquals(Arrays.asList("Apia", "Helsinki", "Stockholm", "Suva", "Tallinn"), lastNames);
+    }
+
+    @Test
+    public void boxAcrossAntimeridianContainsUsersOfBothSides() {
+
+        final List<String> lastNames = getLastNames(iDao.getUsersInBox(GeoGrid.getBoundingBox(-16, 179.5, 10)));
+
+        Collections.sort(lastNames);
+
+        assertEquals(Arrays.asList("Apia", "Suva"), lastNames);
+    }
+
+    @Test
+    public void boxContainsOnlyUsersWithinItsBounds() {
+
+        assertEquals(Collections.singletonList("Stockholm"),
+                getLastNames(iDao.getUsersInBox(new GeoGrid.BoundingBox(59, 17, 60, 19))));
+        assertEquals(Collections.<String>emptyList(),
+                getLastNames(iDao.getUsersInBox(new GeoGrid.BoundingBox(-1, -1, 1, 1))));
+    }
+
+    private static List<String> getLastNames(List<UserLocationItem> aUsers) {
+
+        final List<String> lastNames = new ArrayList<>(aUsers.size());
+
+        for (UserLocationItem user : aUsers) {
+            lastNames.add(user.getLastName());
+        }
+
+        return lastNames;
+    }
+
+    private static User createUser(String aLastName, double aLatitude, double aLongitude) {
+
+        return new User.Builder(aLastName)
+                .setUserName(aLastName)
+                .setLastName(aLastName)
+                .setCoordinates(aLatitude, aLongitude)
+                .build();
+    }
+}
@@ -0,0 +1,56 @@
+package com.develop.apachi.testtask.database;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Escaping of queries typed by user in {@link UserDao#createMatchExpression(String)}.
+ */
+public class UserDaoMatchExpressionTest {
+
+    @Test
+    public void everyWordBecomesQuotedPrefixTerm() {
+
+        assertEquals("\"ida*\"", UserDao.createMatchExpression("ida"));
+        assertEquals("\"ida*\" \"helsinki*\"", UserDao.createMatchExpression("ida helsinki"));
+    }
+
+    @Test
+    public void whitespaceIsCollapsed() {
+
+        assertEquals("\"ida*\" \"nieminen*\"", UserDao.createMatchExpression("  ida \t\n nieminen  "));
+    }
+
+    @Test
+    public void quotesAreDropped() {
+
+        assertEquals("\"ida*\" \"o*\" \"neil*\"", UserDao.createMatchExpression("\"ida\" o\"neil"));
+    }
+
+    @Test
+    public void queryOperatorsAreQuoted() {
+
+        assertEquals("\"ida*\" \"OR*\" \"-nieminen*\"", UserDao.createMatchExpression("ida OR -nieminen"));
+        assertEquals("\"NEAR(ida*\" \"helsinki)*\"", UserDao.createMatchExpression("NEAR(ida helsinki)"));
+        assertEquals("\"email:ida*\"", UserDao.createMatchExpression("email:ida"));
+        assertEquals("\"**\"", UserDao.createMatchExpression("*"));
+    }
+
+    @Test
+    public void punctuationAndNonAsciiAreKept() {
+
+        assertEquals("\"ida.nieminen@example.com*\"", UserDao.createMatchExpression("ida.nieminen@example.com"));
+        assertEquals("\"jyv\u00e4skyl\u00e4*\"", UserDao.createMatchExpression("jyv\u00e4skyl\u00e4"));
+        assertEquals("\"it's*\"", UserDao.createMatchExpression("it's"));
+    }
+
+    @Test
+    public void queryWithoutWordsHasNoExpression() {
+
+        assertNull(UserDao.createMatchExpression(""));
+        assertNull(UserDao.createMatchExpression("   "));
+        assertNull(UserDao.createMatchExpression("\" \"\""));
+    }
+}
@@ -0,0 +1,246 @@
+package com.develop.apachi.testtask.database;
+
+import android.app.Application;
+import android.arch.persistence.room.Room;
+
+import com.develop.apachi.testtask.model.User;
+
+import net.danlew.android.joda.JodaTimeAndroid;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Writes of {@link UserDao#syncUsers(List)} and {@link UserDao#saveNewUsers(List)}
+ * and search index kept by them.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class UserDaoSyncTest {
+
+    private UsersDatabase iDatabase;
+    private UserDao iDao;
+
+    @Before
+    public void setUp() {
+
+        JodaTimeAndroid.init(RuntimeEnvironment.application);
+
+        iDatabase = Room
+                .inMemoryDatabaseBuilder(RuntimeEnvironment.application, UsersDatabase.class)
+                .addCallback(UsersDatabase.CALLBACK)
+                .allowMainThreadQueries()
+                .build();
+        iDao = iDatabase.getUserDao();
+    }
+
+    @After
+    public void tearDown() {
+
+        iDatabase.close();
+    }
+
+    @Test
+    public void syncInsertsUpdatesAndDeletesUsers() {
+
+        final User first = createUser(1, "Nieminen");
+        final User second = createUser(2, "Virtanen");
+        final User third = createUser(3, "Korhonen");
+
+        iDao.syncUsers(Arrays.asList(first, second, third));
+
+        assertEquals(3, iDao.getStoredUsers().size());
+
+        final User renamedSecond = createUser(2, "Laine");
+        final User fourth = createUser(4, "Heikkinen");
+
+        iDao.syncUsers(Arrays.asList(first, renamedSecond, fourth));
+
+        final Map<Long, User> storedUsers = getStoredUsers();
+
+        assertEquals(3, storedUsers.size());
+        assertEquals(first, storedUsers.get(first.getId()));
+        assertEquals(renamedSecond, storedUsers.get(second.getId()));
+        assertEquals(fourth, storedUsers.get(fourth.getId()));
+        assertFalse(storedUsers.containsKey(third.getId()));
+
+        assertTrue(iDao.search("virtanen").isEmpty());
+        assertTrue(iDao.search("korhonen").isEmpty());
+        assertEquals(1, iDao.search("laine").size());
+        assertEquals(1, iDao.search("nieminen").size());
+        assertEquals(1, iDao.search("heikkinen").size());
+    }
+
+    @Test
+    public void syncWithoutUsersDeletesAll() {
+
+        iDao.syncUsers(Arrays.asList(createUser(1, "Nieminen"), createUser(2, "Virtanen")));
+        iDao.syncUsers(Collections.<User>emptyList());
+
+        assertTrue(iDao.getStoredUsers().isEmpty());
+        assertTrue(iDao.search("nieminen").isEmpty());
+    }
+
+    @Test
+    public void partialUserDoesNotOverwriteCompleteOne() {
+
+        final User user = createUser(1, "Nieminen").withSource(1, false);
+
+        iDao.syncUsers(Collections.singletonList(user));
+        iDao.syncUsers(Collections.singletonList(user.withSource(2, true)));
+
+        assertEquals(user, getStoredUsers().get(user.getId()));
+        assertEquals(1, iDao.search("nieminen").size());
+
+        // Partial user with other data is newer than stored one
+        final User changedUser = createUser(1, "Virtanen").withSource(2, true);
+
+        iDao.syncUsers(Collections.singletonList(changedUser));
+
+        assertEquals(changedUser, getStoredUsers().get(user.getId()));
+    }
+
+    @Test
+    public void syncHandlesMoreUsersThanBoundVariables() {
+
+        final List<User> users = new ArrayList<>();
+
+        for (int i = 0; i < 2000; i++) {
+            users.add(createUser(i, "Name" + i));
+        }
+
+        iDao.syncUsers(users);
+
+        assertEquals(users.size(), iDao.getStoredUsers().size());
+
+        final List<User> keptUsers = new ArrayList<>(users.subList(500, 2000));
+
+        keptUsers.set(0, createUser(500, "Renamed"));
+        iDao.syncUsers(keptUsers);
+
+        final Map<Long, User> storedUsers = getStoredUsers();
+
+        assertEquals(keptUsers.size(), storedUsers.size());
+        assertFalse(storedUsers.containsKey(users.get(0).getId()));
+        assertEquals("Renamed", storedUsers.get(users.get(500).getId()).getLastName());
+    }
+
+    @Test
+    public void pageSyncKeepsUsersOfOtherPages() {
+
+        iDao.syncUsers(createPage(1, 1, 2, 3));
+        iDao.saveNewUsers(createPage(2, 4, 5, 6));
+        iDao.saveNewUsers(createPage(3, 7, 8, 9));
+
+        // The first page is refetched: user 3 is gone, user 2 is changed and user 10 is new
+        final List<User> firstPage = createPage(1, 1, 2, 10);
+
+        firstPage.set(1, createUser(2, "Renamed").withSource(1, true));
+        iDao.syncPage(1, firstPage);
+
+        final Map<Long, User> storedUsers = getStoredUsers();
+
+        assertEquals(9, storedUsers.size());
+        assertFalse(storedUsers.containsKey(createUser(3, "Name3").getId()));
+        assertEquals("Renamed", storedUsers.get(createUser(2, "Name2").getId()).getLastName());
+        assertTrue(storedUsers.containsKey(createUser(10, "Name10").getId()));
+
+        for (int number = 4; number <= 9; number++) {
+
+            final User user = storedUsers.get(createUser(number, "Name" + number).getId());
+
+            assertEquals(number <= 6 ? 2 : 3, user.getPage());
+        }
+
+        assertEquals(1, iDao.search("name9").size());
+        assertTrue(iDao.search("name3").isEmpty());
+    }
+
+    @Test
+    public void pageSyncMovesUserFromOtherPage() {
+
+        iDao.syncUsers(createPage(1, 1, 2));
+        iDao.saveNewUsers(createPage(2, 3, 4));
+
+        iDao.syncPage(1, createPage(1, 1, 2, 3));
+
+        final Map<Long, User> storedUsers = getStoredUsers();
+
+        assertEquals(4, storedUsers.size());
+        assertEquals(1, storedUsers.get(createUser(3, "Name3").getId()).getPage());
+        assertEquals(2, storedUsers.get(createUser(4, "Name4").getId()).getPage());
+    }
+
+    @Test
+    public void saveNewUsersKeepsStoredUsersAndTheirIndex() {
+
+        final User storedUser = createUser(1, "Nieminen");
+        final User newUser = createUser(2, "Virtanen");
+
+        iDao.syncUsers(Collections.singletonList(storedUser));
+        iDao.saveNewUsers(Arrays.asList(storedUser.withSource(2, true), newUser, newUser));
+
+        final Map<Long, User> storedUsers = getStoredUsers();
+
+        assertEquals(2, storedUsers.size());
+        assertEquals(storedUser, storedUsers.get(storedUser.getId()));
+        assertEquals(newUser, storedUsers.get(newUser.getId()));
+        assertEquals(1, iDao.search("nieminen").size());
+        assertEquals(1, iDao.search("virtanen").size());
+    }
+
+    private Map<Long, User> getStoredUsers() {
+
+        final Map<Long, User> users = new HashMap<>();
+
+        for (User user : iDao.getStoredUsers()) {
+            users.put(user.getId(), user);
+        }
+
+        return users;
+    }
+
+    /**
+     * Creates partial users of page with last names Name + number.
+     */
+    private static List<User> createPage(int aPage, int... aNumbers) {
+
+        final List<User> users = new ArrayList<>(aNumbers.length);
+
+        for (int number : aNumbers) {
+            users.add(createUser(number, "Name" + number).withSource(aPage, true));
+        }
+
+        return users;
+    }
+
+    private static User createUser(int aNumber, String aLastName) {
+
+        return new User.Builder("id" + aNumber)
+                .setUserName("user" + aNumber)
+                .setTitle("mr")
+                .setFirstName("Ida")
+                .setLastName(aLastName)
+                .setEmail("user" + aNumber + "@example.com")
+                .setCity("Helsinki")
+                .setCoordinates(60.1699, 24.9384)
+                .setTimeZoneOffset(120)
+                .build();
+    }
+}
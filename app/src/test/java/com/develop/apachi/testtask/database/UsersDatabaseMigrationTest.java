@@ -0,0 +1,286 @@
+package com.develop.apachi.testtask.database;
+
+import android.app.Application;
+import android.app.Instrumentation;
+import android.arch.persistence.db.SupportSQLiteDatabase;
+import android.arch.persistence.db.framework.FrameworkSQLiteOpenHelperFactory;
+import android.arch.persistence.room.testing.MigrationTestHelper;
+import android.content.Context;
+import android.database.Cursor;
+import android.location.Location;
+
+import com.develop.apachi.testtask.database.converters.LocationConverter;
+import com.develop.apachi.testtask.model.User;
+import com.develop.apachi.testtask.utils.GeoGrid;
+import com.develop.apachi.testtask.utils.TimeZoneUtils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Migrations of {@link UsersDatabase} between exported schemas, data of stored users is checked
+ * after every migration.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class UsersDatabaseMigrationTest {
+
+    private static final String DATABASE_NAME = "migration-test.db";
+
+    /** Header of object stream, blobs written without flush contain it only.*/
+    private static final byte[] STREAM_HEADER_BLOB = {(byte) 0xAC, (byte) 0xED, 0x00, 0x05};
+
+    /**
+     * Helper opening databases of exported schemas. Dropped tables are not validated, because
+     * search table and its shadow tables are created by migrations and are unknown to Room.
+     */
+    @Rule
+    public final MigrationTestHelper iHelper = new MigrationTestHelper(
+            new Instrumentation() {
+
+                @Override
+                public Context getContext() {
+                    return RuntimeEnvironment.application;
+                }
+
+                @Override
+                public Context getTargetContext() {
+                    return RuntimeEnvironment.application;
+                }
+            },
+            UsersDatabase.class.getCanonicalName(),
+            new FrameworkSQLiteOpenHelperFactory());
+
+    @Test
+    public void migrate3To4MovesLocationIntoColumns() throws IOException {
+
+        final Location location = new Location("test");
+        location.setLatitude(60.1699);
+        location.setLongitude(24.9384);
+
+        try (SupportSQLiteDatabase database = iHelper.createDatabase(DATABASE_NAME, 3)) {
+
+            insertVersion3User(database, 1, "Nieminen", LocationConverter.fromLocation(location));
+            insertVersion3User(database, 2, "Virtanen", STREAM_HEADER_BLOB);
+            insertVersion3User(database, 3, "Korhonen", null);
+        }
+
+        try (SupportSQLiteDatabase database = iHelper.runMigrationsAndValidate(
+                DATABASE_NAME, 4, false, UsersDatabase.MIGRATION_3_4)) {
+
+            assertLocation(database, 1, 60.1699, 24.9384, GeoGrid.getCell(60.1699, 24.9384));
+            assertLocation(database, 2, 0, 0, GeoGrid.NO_CELL);
+            assertLocation(database, 3, 0, 0, GeoGrid.NO_CELL);
+            assertEquals("Virtanen", querySingleString(database,
+                    "SELECT " + UsersDatabaseContract.UsersTable.LAST_NAME
+                            + " FROM " + UsersDatabaseContract.UsersTable.TABLE_NAME
+                            + " WHERE " + UsersDatabaseContract.UsersTable._ID + " = 2"));
+        }
+    }
+
+    @Test
+    public void migrate3To4KeepsSearchIndex() throws IOException {
+
+        try (SupportSQLiteDatabase database = iHelper.createDatabase(DATABASE_NAME, 3)) {
+
+            UsersDatabase.CALLBACK.onCreate(database);
+            insertVersion3User(database, 1, "Nieminen", null);
+        }
+
+        try (SupportSQLiteDatabase database = iHelper.runMigrationsAndValidate(
+                DATABASE_NAME, 4, false, UsersDatabase.MIGRATION_3_4)) {
+
+            assertEquals(1, querySearch(database, "niem*"));
+
+            // Search table is kept in sync by triggers of the new users table
+            database.execSQL("UPDATE " + UsersDatabaseContract.UsersTable.TABLE_NAME
+                    + " SET " + UsersDatabaseContract.UsersTable.LAST_NAME + " = 'Virtanen'");
+
+            assertEquals(0, querySearch(database, "niem*"));
+            assertEquals(1, querySearch(database, "virt*"));
+        }
+    }
+
+    @Test
+    public void migrate4To5ParsesTimeZoneIds() throws IOException {
+
+        try (SupportSQLiteDatabase database = iHelper.createDatabase(DATABASE_NAME, 4)) {
+
+            insertVersion4User(database, 1, "+05:30");
+            insertVersion4User(database, 2, "-03:00");
+            insertVersion4User(database, 3, "UTC");
+            insertVersion4User(database, 4, null);
+        }
+
+        try (SupportSQLiteDatabase database = iHelper.runMigrationsAndValidate(
+                DATABASE_NAME, 5, false, UsersDatabase.MIGRATION_4_5)) {
+
+            assertEquals(330, queryTimeZoneOffset(database, 1));
+            assertEquals(-180, queryTimeZoneOffset(database, 2));
+            assertEquals(0, queryTimeZoneOffset(database, 3));
+            assertEquals(TimeZoneUtils.NO_OFFSET, queryTimeZoneOffset(database, 4));
+        }
+    }
+
+    @Test
+    public void migrate5To6MarksStoredUsersComplete() throws IOException {
+
+        try (SupportSQLiteDatabase database = iHelper.createDatabase(DATABASE_NAME, 5)) {
+
+            database.execSQL("INSERT INTO " + UsersDatabaseContract.UsersTable.TABLE_NAME + " ("
+                            + UsersDatabaseContract.UsersTable._ID + ", "
+                            + UsersDatabaseContract.UsersTable.LAST_NAME + ", "
+                            + UsersDatabaseContract.UsersTable.BIRTH_DATE + ", "
+                            + UsersDatabaseContract.UsersTable.AGE + ", "
+                            + UsersDatabaseContract.UsersTable.REGISTRATION_DATE + ", "
+                            + UsersDatabaseContract.UsersTable.REGISTRATION_AGE + ", "
+                            + UsersDatabaseContract.UsersTable.LATITUDE + ", "
+                            + UsersDatabaseContract.UsersTable.LONGITUDE + ", "
+                            + UsersDatabaseContract.UsersTable.GRID_CELL + ", "
+                            + UsersDatabaseContract.UsersTable.TIME_ZONE_OFFSET + ")"
+                            + " VALUES (1, 'Name', 637065600000, 29, 1262304000000, 9, 0, 0, ?, 120)",
+                    new Object[] {GeoGrid.NO_CELL});
+        }
+
+        try (SupportSQLiteDatabase database = iHelper.runMigrationsAndValidate(
+                DATABASE_NAME, 6, false, UsersDatabase.MIGRATION_5_6);
+             Cursor cursor = database.query("SELECT "
+                     + UsersDatabaseContract.UsersTable.PAGE + ", "
+                     + UsersDatabaseContract.UsersTable.PARTIAL + ", "
+                     + UsersDatabaseContract.UsersTable.TIME_ZONE_OFFSET
+                     + " FROM " + UsersDatabaseContract.UsersTable.TABLE_NAME)) {
+
+            assertTrue(cursor.moveToFirst());
+            assertEquals(User.NO_PAGE, cursor.getInt(0));
+            assertEquals(0, cursor.getInt(1));
+            assertEquals(120, cursor.getInt(2));
+        }
+    }
+
+    @Test
+    public void migrate3To6KeepsUserData() throws IOException {
+
+        final Location location = new Location("test");
+        location.setLatitude(-33.8688);
+        location.setLongitude(151.2093);
+
+        try (SupportSQLiteDatabase database = iHelper.createDatabase(DATABASE_NAME, 3)) {
+
+            UsersDatabase.CALLBACK.onCreate(database);
+            insertVersion3User(database, 1, "Nieminen", LocationConverter.fromLocation(location));
+        }
+
+        try (SupportSQLiteDatabase database = iHelper.runMigrationsAndValidate(DATABASE_NAME, 6, false,
+                UsersDatabase.MIGRATION_3_4, UsersDatabase.MIGRATION_4_5, UsersDatabase.MIGRATION_5_6)) {
+
+            assertLocation(database, 1, -33.8688, 151.2093, GeoGrid.getCell(-33.8688, 151.2093));
+            assertEquals(120, queryTimeZoneOffset(database, 1));
+            assertEquals(1, querySearch(database, "niem*"));
+            assertEquals(1, querySearch(database, "helsinki*"));
+        }
+    }
+
+    /**
+     * Inserts user into users table of version 3, when location was serialized into blob.
+     */
+    private static void insertVersion3User(SupportSQLiteDatabase aDatabase,
+                                           long aId,
+                                           String aLastName,
+                                           byte[] aLocation) {
+
+        aDatabase.execSQL("INSERT INTO " + UsersDatabaseContract.UsersTable.TABLE_NAME + " ("
+                        + UsersDatabaseContract.UsersTable._ID + ", "
+                        + UsersDatabaseContract.UsersTable.FIRST_NAME + ", "
+                        + UsersDatabaseContract.UsersTable.LAST_NAME + ", "
+                        + UsersDatabaseContract.UsersTable.BIRTH_DATE + ", "
+                        + UsersDatabaseContract.UsersTable.AGE + ", "
+                        + UsersDatabaseContract.UsersTable.REGISTRATION_DATE + ", "
+                        + UsersDatabaseContract.UsersTable.REGISTRATION_AGE + ", "
+                        + UsersDatabaseContract.UsersTable.CITY + ", "
+                        + UsersDatabaseContract.UsersTable.LOCATION_BLOB + ", "
+                        + UsersDatabaseContract.UsersTable.TIME_ZONE + ", "
+                        + UsersDatabaseContract.UsersTable.EMAIL + ")"
+                        + " VALUES (?, 'Ida', ?, 637065600000, 29, 1262304000000, 9, 'Helsinki', ?, '+02:00', ?)",
+                new Object[] {aId, aLastName, aLocation, "user" + aId + "@example.com"});
+    }
+
+    /**
+     * Inserts user into users table of version 4, when time zone id was stored.
+     */
+    private static void insertVersion4User(SupportSQLiteDatabase aDatabase, long aId, String aTimeZone) {
+
+        aDatabase.execSQL("INSERT INTO " + UsersDatabaseContract.UsersTable.TABLE_NAME + " ("
+                        + UsersDatabaseContract.UsersTable._ID + ", "
+                        + UsersDatabaseContract.UsersTable.LAST_NAME + ", "
+                        + UsersDatabaseContract.UsersTable.BIRTH_DATE + ", "
+                        + UsersDatabaseContract.UsersTable.AGE + ", "
+                        + UsersDatabaseContract.UsersTable.REGISTRATION_DATE + ", "
+                        + UsersDatabaseContract.UsersTable.REGISTRATION_AGE + ", "
+                        + UsersDatabaseContract.UsersTable.LATITUDE + ", "
+                        + UsersDatabaseContract.UsersTable.LONGITUDE + ", "
+                        + UsersDatabaseContract.UsersTable.GRID_CELL + ", "
+                        + UsersDatabaseContract.UsersTable.TIME_ZONE + ")"
+                        + " VALUES (?, 'Name', 637065600000, 29, 1262304000000, 9, 0, 0, ?, ?)",
+                new Object[] {aId, GeoGrid.NO_CELL, aTimeZone});
+    }
+
+    private static void assertLocation(SupportSQLiteDatabase aDatabase,
+                                       long aId,
+                                       double aLatitude,
+                                       double aLongitude,
+                                       int aGridCell) {
+
+        try (Cursor cursor = aDatabase.query("SELECT "
+                + UsersDatabaseContract.UsersTable.LATITUDE + ", "
+                + UsersDatabaseContract.UsersTable.LONGITUDE + ", "
+                + UsersDatabaseContract.UsersTable.GRID_CELL
+                + " FROM " + UsersDatabaseContract.UsersTable.TABLE_NAME
+                + " WHERE " + UsersDatabaseContract.UsersTable._ID + " = ?", new Object[] {aId})) {
+
+            assertTrue(cursor.moveToFirst());
+            assertEquals(aLatitude, cursor.getDouble(0), 1e-9);
+            assertEquals(aLongitude, cursor.getDouble(1), 1e-9);
+            assertEquals(aGridCell, cursor.getInt(2));
+        }
+    }
+
+    private static int queryTimeZoneOffset(SupportSQLiteDatabase aDatabase, long aId) {
+
+        try (Cursor cursor = aDatabase.query("SELECT " + UsersDatabaseContract.UsersTable.TIME_ZONE_OFFSET
+                + " FROM " + UsersDatabaseContract.UsersTable.TABLE_NAME
+                + " WHERE " + UsersDatabaseContract.UsersTable._ID + " = ?", new Object[] {aId})) {
+
+            assertTrue(cursor.moveToFirst());
+            return cursor.getInt(0);
+        }
+    }
+
+    private static int querySearch(SupportSQLiteDatabase aDatabase, String aMatchExpression) {
+
+        try (Cursor cursor = aDatabase.query("SELECT " + UsersDatabaseContract.UsersSearchTable.DOC_ID
+                + " FROM " + UsersDatabaseContract.UsersSearchTable.TABLE_NAME
+                + " WHERE " + UsersDatabaseContract.UsersSearchTable.TABLE_NAME + " MATCH ?",
+                new Object[] {aMatchExpression})) {
+
+            return cursor.getCount();
+        }
+    }
+
+    private static String querySingleString(SupportSQLiteDatabase aDatabase, String aQuery) {
+
+        try (Cursor cursor = aDatabase.query(aQuery)) {
+
+            assertTrue(cursor.moveToFirst());
+            return cursor.getString(0);
+        }
+    }
+}
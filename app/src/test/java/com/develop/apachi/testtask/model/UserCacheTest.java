@@ -0,0 +1,174 @@
+package com.develop.apachi.testtask.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Copy-on-write snapshots and eviction of {@link UserCache}.
+ */
+public class UserCacheTest {
+
+    @Test
+    public void snapshotIsNotChangedByLaterWrites() {
+
+        final UserCache cache = new UserCache(10);
+
+        cache.replaceAll(createItems(1, 2));
+        final List<UserListItem> snapshot = cache.getUsers();
+
+        cache.addAll(createItems(3));
+        cache.updateAll(Collections.singletonList(createItem(1, "Updated")));
+        cache.clear();
+
+        assertEquals(Arrays.asList(1L, 2L), getIds(snapshot));
+        assertEquals("Name1", snapshot.get(0).getLastName());
+        assertTrue(cache.isEmpty());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void snapshotIsImmutable() {
+
+        final UserCache cache = new UserCache(10);
+
+        cache.replaceAll(createItems(1));
+        cache.getUsers().add(createItem(2, "Name2"));
+    }
+
+    @Test
+    public void addedUserWithCachedIdReplacesCachedOneInPlace() {
+
+        final UserCache cache = new UserCache(10);
+
+        cache.replaceAll(createItems(1, 2));
+        cache.addAll(Arrays.asList(createItem(1, "Updated"), createItem(3, "Name3")));
+
+        assertEquals(Arrays.asList(1L, 2L, 3L), getIds(cache.getUsers()));
+        assertEquals("Updated", cache.getUsers().get(0).getLastName());
+    }
+
+    @Test
+    public void updateKeepsOnlyCachedUsers() {
+
+        final UserCache cache = new UserCache(10);
+
+        cache.replaceAll(createItems(1, 2));
+        final List<UserListItem> snapshot = cache.getUsers();
+
+        cache.updateAll(Collections.singletonList(createItem(3, "Name3")));
+
+        assertSame(snapshot, cache.getUsers());
+
+        cache.updateAll(Arrays.asList(createItem(2, "Updated"), createItem(3, "Name3")));
+
+        assertEquals(Arrays.asList(1L, 2L), getIds(cache.getUsers()));
+        assertEquals("Updated", cache.getUsers().get(1).getLastName());
+    }
+
+    @Test
+    public void onlyFullUsersAreLookedUp() {
+
+        final User user = new User.Builder("full").setLastName("Full").build();
+        final UserCache cache = new UserCache(10);
+
+        cache.replaceAll(Arrays.asList(createItem(1, "Name1"), user));
+
+        assertSame(user, cache.getUser(user.getId()));
+        assertNull(cache.getUser(1));
+        assertNull(cache.getUser(2));
+    }
+
+    @Test
+    public void oldestUsersAreEvictedOverMaxEntries() {
+
+        final UserCache cache = new UserCache(3);
+
+        cache.replaceAll(createItems(1, 2));
+        assertFalse(cache.isTruncated());
+
+        cache.addAll(createItems(3, 4, 5));
+
+        assertEquals(Arrays.asList(3L, 4L, 5L), getIds(cache.getUsers()));
+        assertTrue(cache.isTruncated());
+
+        cache.addAll(Collections.<UserListItem>emptyList());
+        assertTrue(cache.isTruncated());
+
+        cache.replaceAll(createItems(6));
+        assertFalse(cache.isTruncated());
+    }
+
+    @Test
+    public void usersAreEvictedByWeight() {
+
+        final UserCache cache = new UserCache(10, aUser -> (int) aUser.getId());
+
+        cache.replaceAll(createItems(1, 2, 3, 4));
+
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L), getIds(cache.getUsers()));
+        assertFalse(cache.isTruncated());
+
+        cache.addAll(createItems(5));
+
+        assertEquals(Arrays.asList(4L, 5L), getIds(cache.getUsers()));
+        assertTrue(cache.isTruncated());
+
+        cache.replaceAll(createItems(11));
+
+        assertTrue(cache.isEmpty());
+        assertTrue(cache.isTruncated());
+    }
+
+    @Test
+    public void bytesWeigherWeighsFullUserMoreThanListItem() {
+
+        final UserListItem item = createItem(1, "Name");
+        final User user = new User.Builder("1")
+                .setLastName("Name")
+                .setEmail("name@example.com")
+                .setCity("City")
+                .build();
+
+        assertTrue(UserCache.BYTES_WEIGHER.weigh(item) > 0);
+        assertTrue(UserCache.BYTES_WEIGHER.weigh(user) > UserCache.BYTES_WEIGHER.weigh(item));
+    }
+
+    /**
+     * Creates list items with last names Name + id.
+     */
+    private static List<UserListItem> createItems(long... aIds) {
+
+        final List<UserListItem> items = new ArrayList<>(aIds.length);
+
+        for (long id : aIds) {
+            items.add(createItem(id, "Name" + id));
+        }
+
+        return items;
+    }
+
+    private static UserListItem createItem(long aId, String aLastName) {
+
+        return new UserListItem(aId, "Mr", "First", aLastName, "user" + aId, "m.jpg");
+    }
+
+    private static List<Long> getIds(List<UserListItem> aUsers) {
+
+        final List<Long> ids = new ArrayList<>(aUsers.size());
+
+        for (UserListItem user : aUsers) {
+            ids.add(user.getId());
+        }
+
+        return ids;
+    }
+}
@@ -0,0 +1,233 @@
+package com.develop.apachi.testtask.model;
+
+import android.app.Application;
+import android.arch.persistence.room.Room;
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+import com.develop.apachi.testtask.database.UsersDatabase;
+import com.develop.apachi.testtask.metrics.Metrics;
+import com.develop.apachi.testtask.network.FieldProfile;
+import com.develop.apachi.testtask.network.IRandomUserClient;
+
+import net.danlew.android.joda.JodaTimeAndroid;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import io.reactivex.Flowable;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.subscribers.TestSubscriber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Pages of seeded data set stored by {@link UserRepository} across refreshes.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, application = Application.class)
+public class UserRepositoryTest {
+
+    private static final int PAGE_SIZE = 3;
+
+    private static final String NETWORK_PREFERENCES = "net_pref";
+    private static final String PREVIOUS_NETWORK_FETCH_KEY = "prev_fetch";
+
+    private UsersDatabase iDatabase;
+    private PagesClient iClient;
+    private UserRepository iRepository;
+
+    @Before
+    public void setUp() {
+
+        JodaTimeAndroid.init(RuntimeEnvironment.application);
+
+        iDatabase = Room
+                .inMemoryDatabaseBuilder(RuntimeEnvironment.application, UsersDatabase.class)
+                .addCallback(UsersDatabase.CALLBACK)
+                .allowMainThreadQueries()
+                .build();
+        iClient = new PagesClient();
+        iRepository = new UserRepository(RuntimeEnvironment.application, iDatabase, iClient, new Metrics());
+    }
+
+    @After
+    public void tearDown() {
+
+        iDatabase.close();
+    }
+
+    @Test
+    public void refreshOfSameDataSetKeepsNextPages() {
+
+        iRepository.syncFromNetwork().blockingAwait();
+        iRepository.warmUp(3, 2).blockingAwait();
+
+        assertEquals(3 * PAGE_SIZE, getStoredPages().size());
+
+        iClient.iChangedFirstPage = true;
+        iRepository.syncFromNetwork().blockingAwait();
+
+        final List<Integer> pages = getStoredPages();
+
+        assertEquals(3 * PAGE_SIZE, pages.size());
+        assertTrue(pages.contains(2));
+        assertTrue(pages.contains(3));
+        assertEquals(3 * PAGE_SIZE, iRepository.getPersons(false).blockingGet().size());
+
+        // Stored pages and their count are kept, so neither of them is fetched again
+        iClient.iRequestedPages.clear();
+        iRepository.warmUp(3, 2).blockingAwait();
+
+        assertTrue(iClient.iRequestedPages.isEmpty());
+        assertEquals(PAGE_SIZE, iRepository.getNextPersonsPage().blockingGet().size());
+        assertEquals(4, (int) iClient.iRequestedPages.get(0));
+    }
+
+    @Test
+    public void sharedRefreshOfSameDataSetKeepsNextPages() {
+
+        iRepository.syncFromNetwork().blockingAwait();
+        iRepository.warmUp(3, 2).blockingAwait();
+
+        // Relaunched app finds stored data stale
+        RuntimeEnvironment.application
+                .getSharedPreferences(NETWORK_PREFERENCES, Context.MODE_PRIVATE)
+                .edit()
+                .putLong(PREVIOUS_NETWORK_FETCH_KEY, 0)
+                .commit();
+
+        final UserRepository repository = new UserRepository(RuntimeEnvironment.application,
+                iDatabase,
+                iClient,
+                new Metrics());
+
+        iClient.iRequestedPages.clear();
+        iClient.iFirstPageGate = PublishProcessor.create();
+
+        final TestSubscriber<List<UserListItem>> revalidation = repository.observePersons().test();
+        final TestObserver<Void> backgroundSync = repository.syncFromNetwork().test();
+
+        revalidation.assertValueCount(1);
+        iClient.iFirstPageGate.onNext(Boolean.TRUE);
+
+        revalidation.assertValueCount(2).assertComplete();
+        revalidation.assertValueAt(1, users -> users.size() == 3 * PAGE_SIZE);
+        backgroundSync.assertComplete();
+
+        assertEquals(1, iClient.iRequestedPages.size());
+        assertEquals(3 * PAGE_SIZE, getStoredPages().size());
+    }
+
+    @Test
+    public void newDataSetReplacesAllPages() {
+
+        iRepository.syncFromNetwork().blockingAwait();
+        iRepository.warmUp(3, 2).blockingAwait();
+
+        final Set<String> seeds = new HashSet<>(iClient.iRequestedSeeds);
+
+        assertEquals(PAGE_SIZE, iRepository.getPersons(true).blockingGet().size());
+
+        final List<Integer> pages = getStoredPages();
+
+        assertEquals(PAGE_SIZE, pages.size());
+        assertFalse(pages.contains(2));
+        assertFalse(seeds.containsAll(iClient.iRequestedSeeds));
+    }
+
+    /**
+     * @return Pages of all stored users.
+     */
+    private List<Integer> getStoredPages() {
+
+        final List<Integer> pages = new ArrayList<>();
+
+        for (User user : iDatabase.getUserDao().getStoredUsers()) {
+            pages.add(user.getPage());
+        }
+
+        return pages;
+    }
+
+    /**
+     * Client returning pages of {@link #PAGE_SIZE} users, which are the same for the same seed.
+     */
+    private static class PagesClient implements IRandomUserClient {
+
+        /** Pages requested since the last clear.*/
+        private final List<Integer> iRequestedPages = new ArrayList<>();
+
+        /** Seeds of all requests.*/
+        private final List<String> iRequestedSeeds = new ArrayList<>();
+
+        /** The first page has one user replaced by a new one.*/
+        private boolean iChangedFirstPage;
+
+        /** Holds requests of the first page until it emits, if it is set.*/
+        private PublishProcessor<Boolean> iFirstPageGate;
+
+        @Override
+        public Flowable<List<User>> getUsers() {
+            return Flowable.error(new UnsupportedOperationException());
+        }
+
+        @Override
+        public Flowable<List<User>> getUsers(int aPageNumber) {
+            return Flowable.error(new UnsupportedOperationException());
+        }
+
+        @Override
+        public Flowable<List<User>> getUsers(int aPageNumber, @NonNull String aSeed, @NonNull FieldProfile aProfile) {
+
+            final Flowable<List<User>> page = Flowable.fromCallable(() -> {
+
+                iRequestedPages.add(aPageNumber);
+                iRequestedSeeds.add(aSeed);
+
+                final List<User> users = new ArrayList<>(PAGE_SIZE);
+
+                for (int i = 0; i < PAGE_SIZE; i++) {
+
+                    final String name = aPageNumber == 1 && i == 0 && iChangedFirstPage
+                            ? "changed"
+                            : aSeed + "-" + aPageNumber + "-" + i;
+
+                    users.add(new User.Builder(name)
+                            .setUserName(name)
+                            .setLastName("Name" + aPageNumber + i)
+                            .build()
+                            .withSource(aPageNumber, aProfile.isPartial()));
+                }
+
+                return users;
+            });
+
+            return aPageNumber == 1 && iFirstPageGate != null ? page.delaySubscription(iFirstPageGate) : page;
+        }
+
+        @Override
+        public Flowable<List<User>> getUsers(int aFirstPageNumber,
+                                             int aPageCount,
+                                             @NonNull String aSeed,
+                                             int aMaxConcurrency,
+                                             @NonNull FieldProfile aProfile) {
+
+            return Flowable.range(aFirstPageNumber, aPageCount)
+                    .concatMap(page -> getUsers(page, aSeed, aProfile));
+        }
+    }
+}
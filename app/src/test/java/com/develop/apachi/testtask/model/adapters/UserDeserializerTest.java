@@ -0,0 +1,48 @@
+package com.develop.apachi.testtask.model.adapters;
+
+import com.develop.apachi.testtask.model.User;
+import com.develop.apachi.testtask.utils.GeoGrid;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Reading of users by tree model {@link UserDeserializer}, it reads the same users as {@link UserTypeAdapter}.
+ */
+public class UserDeserializerTest {
+
+    private static final String USER_WITH_NULL_NUMBERS = "{"
+            + "\"name\":{\"last\":\"Nieminen\"},"
+            + "\"login\":{\"username\":\"idanieminen512\"},"
+            + "\"location\":{\"coordinates\":{\"latitude\":null,\"longitude\":\"24.9384\"}},"
+            + "\"dob\":{\"date\":null,\"age\":null},"
+            + "\"registered\":{\"date\":\"2010-01-01T00:00:00.000Z\",\"age\":null}}";
+
+    private final Gson iGson = new GsonBuilder()
+            .registerTypeAdapter(User.class, new UserDeserializer())
+            .create();
+
+    @Test
+    public void nullNumbersAreSkipped() {
+
+        final User user = iGson.fromJson(USER_WITH_NULL_NUMBERS, User.class);
+
+        assertEquals("Nieminen", user.getLastName());
+        assertEquals(GeoGrid.NO_CELL, user.getGridCell());
+        assertEquals(User.NO_DATE, user.getBirthDateMillis());
+        assertEquals(0, user.getAge());
+        assertEquals(0, user.getRegistrationAge());
+    }
+
+    @Test
+    public void userIsTheSameAsOfStreamingAdapter() throws IOException {
+
+        assertEquals(new UserTypeAdapter().fromJson(USER_WITH_NULL_NUMBERS),
+                iGson.fromJson(USER_WITH_NULL_NUMBERS, User.class));
+    }
+}
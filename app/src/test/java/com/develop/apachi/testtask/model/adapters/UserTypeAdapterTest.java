@@ -0,0 +1,107 @@
+package com.develop.apachi.testtask.model.adapters;
+
+import com.develop.apachi.testtask.model.User;
+import com.develop.apachi.testtask.utils.GeoGrid;
+import com.develop.apachi.testtask.utils.TimeZoneUtils;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Reading and writing of users by {@link UserTypeAdapter}.
+ */
+public class UserTypeAdapterTest {
+
+    private static final String USER = "{"
+            + "\"gender\":\"female\","
+            + "\"name\":{\"title\":\"Ms\",\"first\":\"Ida\",\"last\":\"Nieminen\"},"
+            + "\"location\":{"
+            + "\"street\":{\"number\":9382,\"name\":\"Mannerheimintie\"},"
+            + "\"city\":\"Helsinki\",\"state\":\"Uusimaa\",\"country\":\"Finland\",\"postcode\":100,"
+            + "\"coordinates\":{\"latitude\":\"60.1699\",\"longitude\":\"24.9384\"},"
+            + "\"timezone\":{\"offset\":\"-3:30\",\"description\":\"Newfoundland\"}},"
+            + "\"email\":\"ida.nieminen@example.com\","
+            + "\"login\":{\"uuid\":\"155e77ee-ba6d-486f-95ce-0e0c0fb4b919\",\"username\":\"idanieminen512\"},"
+            + "\"dob\":{\"date\":\"1990-03-10T10:40:00.000Z\",\"age\":29},"
+            + "\"registered\":{\"date\":\"2010-01-01T00:00:00.000Z\",\"age\":9},"
+            + "\"phone\":\"02-555-0143\",\"cell\":\"041-555-0199\","
+            + "\"id\":{\"name\":\"HETU\",\"value\":\"NaNNA582undefined\"},"
+            + "\"picture\":{\"large\":\"l.jpg\",\"medium\":\"m.jpg\",\"thumbnail\":\"t.jpg\"},"
+            + "\"nat\":\"FI\"}";
+
+    private final UserTypeAdapter iAdapter = new UserTypeAdapter();
+
+    @Test
+    public void read() throws IOException {
+
+        final User user = iAdapter.fromJson(USER);
+
+        assertEquals("Ida", user.getFirstName());
+        assertEquals("9382 Mannerheimintie", user.getStreet());
+        assertEquals("100", user.getPostCode());
+        assertEquals(60.1699, user.getLatitude(), 0);
+        assertEquals(-210, user.getTimeZoneOffset());
+        assertEquals(637_065_600_000L, user.getBirthDateMillis());
+        assertEquals("NaNNA582undefined", user.getIdNumber());
+    }
+
+    @Test
+    public void nullNumbersAreSkipped() throws IOException {
+
+        final User user = iAdapter.fromJson("{"
+                + "\"name\":{\"last\":\"Nieminen\"},"
+                + "\"location\":{\"coordinates\":{\"latitude\":null,\"longitude\":\"24.9384\"}},"
+                + "\"dob\":{\"date\":null,\"age\":null},"
+                + "\"registered\":{\"date\":\"2010-01-01T00:00:00.000Z\",\"age\":null}}");
+
+        assertEquals("Nieminen", user.getLastName());
+        assertEquals(GeoGrid.NO_CELL, user.getGridCell());
+        assertEquals(0, user.getLatitude(), 0);
+        assertEquals(0, user.getLongitude(), 0);
+        assertEquals(User.NO_DATE, user.getBirthDateMillis());
+        assertEquals(0, user.getAge());
+        assertEquals(0, user.getRegistrationAge());
+    }
+
+    @Test
+    public void writtenUserIsReadBackEqual() throws IOException {
+
+        final User user = iAdapter.fromJson(USER);
+        final User readUser = iAdapter.fromJson(iAdapter.toJson(user));
+
+        assertEquals(user, readUser);
+        assertEquals(user.getId(), readUser.getId());
+        assertEquals(user.getStreet(), readUser.getStreet());
+        assertEquals(user.getGridCell(), readUser.getGridCell());
+        assertEquals(user.getTimeZoneOffset(), readUser.getTimeZoneOffset());
+        assertEquals(user.getBirthDateMillis(), readUser.getBirthDateMillis());
+        assertEquals(user.getRegistrationDateMillis(), readUser.getRegistrationDateMillis());
+        assertEquals(user.getLargePictureUrl(), readUser.getLargePictureUrl());
+    }
+
+    @Test
+    public void writtenUserWithoutOptionalSectionsIsReadBackEqual() throws IOException {
+
+        final User user = new User.Builder("123")
+                .setUserName("nobody")
+                .build();
+        final User readUser = iAdapter.fromJson(iAdapter.toJson(user));
+
+        assertEquals(user, readUser);
+        assertEquals(user.getId(), readUser.getId());
+        assertEquals(GeoGrid.NO_CELL, readUser.getGridCell());
+        assertEquals(TimeZoneUtils.NO_OFFSET, readUser.getTimeZoneOffset());
+        assertEquals(User.NO_DATE, readUser.getBirthDateMillis());
+    }
+
+    @Test
+    public void writeNull() throws IOException {
+
+        assertEquals("null", iAdapter.toJson(null));
+        assertNull(iAdapter.fromJson("null"));
+    }
+}
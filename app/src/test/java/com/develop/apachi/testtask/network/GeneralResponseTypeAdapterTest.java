@@ -0,0 +1,52 @@
+package com.develop.apachi.testtask.network;
+
+import com.develop.apachi.testtask.model.adapters.UserTypeAdapter;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Reading of response envelope by {@link GeneralResponseTypeAdapter}.
+ */
+public class GeneralResponseTypeAdapterTest {
+
+    private final GeneralResponseTypeAdapter iAdapter = new GeneralResponseTypeAdapter(new UserTypeAdapter());
+
+    @Test
+    public void resultsAreReadAndOtherFieldsAreSkipped() throws IOException {
+
+        final GeneralResponse response = iAdapter.fromJson("{"
+                + "\"info\":{\"seed\":\"abc\",\"results\":2,\"page\":1},"
+                + "\"results\":[{\"name\":{\"last\":\"Nieminen\"}},{\"name\":{\"last\":\"Virtanen\"}}]}");
+
+        assertEquals(2, response.results.size());
+        assertEquals("Nieminen", response.results.get(0).getLastName());
+        assertEquals("Virtanen", response.results.get(1).getLastName());
+    }
+
+    @Test
+    public void emptyResultsAreEmptyPage() throws IOException {
+
+        assertTrue(iAdapter.fromJson("{\"results\":[]}").results.isEmpty());
+    }
+
+    @Test
+    public void errorEnvelopeHasNoResults() throws IOException {
+
+        assertNull(iAdapter.fromJson("{\"error\":\"Uh oh, something has gone wrong.\"}").results);
+        assertNull(iAdapter.fromJson("{\"results\":null}").results);
+        assertNull(iAdapter.fromJson("{}").results);
+    }
+
+    @Test
+    public void writeNull() throws IOException {
+
+        assertEquals("null", iAdapter.toJson(null));
+        assertNull(iAdapter.fromJson("null"));
+    }
+}
@@ -0,0 +1,161 @@
+package com.develop.apachi.testtask.utils;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Cell math of {@link GeoGrid} at the antimeridian and the poles.
+ */
+public class GeoGridTest {
+
+    private static final int COLUMN_COUNT = 360;
+    private static final int LAST_CELL = 180 * COLUMN_COUNT - 1;
+
+    @Test
+    public void cellsAreNumberedFromSouthWestCorner() {
+
+        assertEquals(0, GeoGrid.getCell(-90, -180));
+        assertEquals(COLUMN_COUNT - 1, GeoGrid.getCell(-90, 179.9));
+        assertEquals(COLUMN_COUNT, GeoGrid.getCell(-89, -180));
+        assertEquals(90 * COLUMN_COUNT + 180, GeoGrid.getCell(0, 0));
+        assertEquals(90 * COLUMN_COUNT + 179, GeoGrid.getCell(0, -0.5));
+        assertEquals(89 * COLUMN_COUNT + 180, GeoGrid.getCell(-0.5, 0));
+    }
+
+    @Test
+    public void polesAndAntimeridianAreClampedIntoGrid() {
+
+        assertEquals(LAST_CELL, GeoGrid.getCell(90, 180));
+        assertEquals(LAST_CELL, GeoGrid.getCell(89.99, 179.99));
+        assertEquals(179 * COLUMN_COUNT, GeoGrid.getCell(90, -180));
+        assertEquals(COLUMN_COUNT - 1, GeoGrid.getCell(-90, 180));
+        assertEquals(90 * COLUMN_COUNT + COLUMN_COUNT - 1, GeoGrid.getCell(0, 180));
+        assertEquals(90 * COLUMN_COUNT, GeoGrid.getCell(0, -180));
+    }
+
+    @Test
+    public void boxAcrossAntimeridianWrapsLongitudes() {
+
+        final GeoGrid.BoundingBox box = GeoGrid.getBoundingBox(0, 179.5, 1);
+
+        assertTrue(box.crossesAntimeridian());
+        assertEquals(178.5, box.getWest(), 1e-6);
+        assertEquals(-179.5, box.getEast(), 1e-6);
+
+        final GeoGrid.BoundingBox westernBox = GeoGrid.getBoundingBox(0, -179.5, 1);
+
+        assertTrue(westernBox.crossesAntimeridian());
+        assertEquals(179.5, westernBox.getWest(), 1e-6);
+        assertEquals(-178.5, westernBox.getEast(), 1e-6);
+    }
+
+    @Test
+    public void boxAcrossAntimeridianIsCoveredFromBothSides() {
+
+        final List<int[]> ranges = GeoGrid.getCellRanges(GeoGrid.getBoundingBox(0, 179.5, 1));
+
+        // Rows 89, 90 and 91, each of them is split by antimeridian
+        assertEquals(6, ranges.size());
+        assertTrue(isCovered(ranges, GeoGrid.getCell(0, 179.9)));
+        assertTrue(isCovered(ranges, GeoGrid.getCell(0, 180)));
+        assertTrue(isCovered(ranges, GeoGrid.getCell(0, -180)));
+        assertTrue(isCovered(ranges, GeoGrid.getCell(0.5, -179.9)));
+        assertFalse(isCovered(ranges, GeoGrid.getCell(0, 0)));
+        assertFalse(isCovered(ranges, GeoGrid.getCell(0, -170)));
+    }
+
+    @Test
+    public void boxAroundPoleContainsAllLongitudes() {
+
+        final GeoGrid.BoundingBox northBox = GeoGrid.getBoundingBox(89.5, 10, 1);
+
+        assertEquals(88.5, northBox.getSouth(), 1e-6);
+        assertEquals(90, northBox.getNorth(), 0);
+        assertEquals(-180, northBox.getWest(), 0);
+        assertEquals(180, northBox.getEast(), 0);
+        assertFalse(northBox.crossesAntimeridian());
+
+        final List<int[]> northRanges = GeoGrid.getCellRanges(northBox);
+
+        assertTrue(isCovered(northRanges, GeoGrid.getCell(89.9, -170)));
+        assertTrue(isCovered(northRanges, GeoGrid.getCell(90, 180)));
+        assertTrue(isCovered(northRanges, GeoGrid.getCell(88.6, 100)));
+        assertFalse(isCovered(northRanges, GeoGrid.getCell(87.9, 10)));
+
+        final GeoGrid.BoundingBox southBox = GeoGrid.getBoundingBox(-89, 0, 2);
+
+        assertEquals(-90, southBox.getSouth(), 0);
+        assertEquals(-87, southBox.getNorth(), 1e-6);
+
+        final List<int[]> southRanges = GeoGrid.getCellRanges(southBox);
+
+        assertTrue(isCovered(southRanges, GeoGrid.getCell(-90, -180)));
+        assertTrue(isCovered(southRanges, GeoGrid.getCell(-88, 179.9)));
+    }
+
+    @Test
+    public void tallBoxIsCoveredByOneRangePerLongitudeSpan() {
+
+        final List<int[]> ranges = GeoGrid.getCellRanges(new GeoGrid.BoundingBox(-40, 170, 40, -170));
+
+        assertEquals(2, ranges.size());
+        assertEquals(50 * COLUMN_COUNT + 350, ranges.get(0)[0]);
+        assertEquals(130 * COLUMN_COUNT + COLUMN_COUNT - 1, ranges.get(0)[1]);
+        assertEquals(50 * COLUMN_COUNT, ranges.get(1)[0]);
+        assertEquals(130 * COLUMN_COUNT + 10, ranges.get(1)[1]);
+    }
+
+    @Test
+    public void pointsWithinRadiusAreCovered() {
+
+        final Random random = new Random(42);
+        final double[][] centers = {{0, 179.9}, {0, -179.9}, {60, 180}, {-75, -179}, {89.9, 0}, {-89.9, 90}, {45, 10}};
+
+        for (double[] center : centers) {
+
+            final double radius = 0.5 + random.nextDouble() * 5;
+            final List<int[]> ranges = GeoGrid.getCellRanges(GeoGrid.getBoundingBox(center[0], center[1], radius));
+
+            for (int i = 0; i < 1000; i++) {
+
+                final double latitude = Math.max(-90, Math.min(90, center[0] + (random.nextDouble() * 2 - 1) * radius));
+                double longitude = center[1] + (random.nextDouble() * 2 - 1) * 180;
+
+                longitude = longitude > 180 ? longitude - 360 : longitude < -180 ? longitude + 360 : longitude;
+
+                if (GeoGrid.getDistanceDegrees(center[0], center[1], latitude, longitude) <= radius) {
+
+                    assertTrue("Point " + latitude + ", " + longitude + " near " + center[0] + ", " + center[1],
+                            isCovered(ranges, GeoGrid.getCell(latitude, longitude)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void distanceWrapsAroundAntimeridianAndPoles() {
+
+        assertEquals(1, GeoGrid.getDistanceDegrees(0, 179.5, 0, -179.5), 1e-9);
+        assertEquals(0, GeoGrid.getDistanceDegrees(90, 0, 90, 123), 1e-6);
+        assertEquals(2, GeoGrid.getDistanceDegrees(89, 0, 89, 180), 1e-9);
+        assertEquals(GeoGrid.MAX_DISTANCE_DEGREES, GeoGrid.getDistanceDegrees(90, 0, -90, 0), 1e-9);
+    }
+
+    private static boolean isCovered(List<int[]> aRanges, int aCell) {
+
+        for (int[] range : aRanges) {
+
+            if (aCell >= range[0] && aCell <= range[1]) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
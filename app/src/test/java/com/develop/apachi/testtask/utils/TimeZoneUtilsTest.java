@@ -0,0 +1,71 @@
+package com.develop.apachi.testtask.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Parsing and formatting of offsets in {@link TimeZoneUtils}.
+ */
+public class TimeZoneUtilsTest {
+
+    @Test
+    public void offsetsOfServiceAreParsed() {
+
+        assertEquals(330, TimeZoneUtils.parseOffsetMinutes("+5:30"));
+        assertEquals(-210, TimeZoneUtils.parseOffsetMinutes("-3:30"));
+        assertEquals(0, TimeZoneUtils.parseOffsetMinutes("0:00"));
+        assertEquals(-30, TimeZoneUtils.parseOffsetMinutes("-0:30"));
+        assertEquals(765, TimeZoneUtils.parseOffsetMinutes("+12:45"));
+    }
+
+    @Test
+    public void paddedAndShortOffsetsAreParsed() {
+
+        assertEquals(330, TimeZoneUtils.parseOffsetMinutes("+05:30"));
+        assertEquals(-180, TimeZoneUtils.parseOffsetMinutes(" -03:00\t"));
+        assertEquals(180, TimeZoneUtils.parseOffsetMinutes("3"));
+        assertEquals(-60, TimeZoneUtils.parseOffsetMinutes("-1"));
+    }
+
+    @Test
+    public void invalidOffsetsHaveNoOffset() {
+
+        assertEquals(TimeZoneUtils.NO_OFFSET, TimeZoneUtils.parseOffsetMinutes(""));
+        assertEquals(TimeZoneUtils.NO_OFFSET, TimeZoneUtils.parseOffsetMinutes("   "));
+        assertEquals(TimeZoneUtils.NO_OFFSET, TimeZoneUtils.parseOffsetMinutes("UTC"));
+        assertEquals(TimeZoneUtils.NO_OFFSET, TimeZoneUtils.parseOffsetMinutes("+"));
+        assertEquals(TimeZoneUtils.NO_OFFSET, TimeZoneUtils.parseOffsetMinutes("+a:00"));
+        assertEquals(TimeZoneUtils.NO_OFFSET, TimeZoneUtils.parseOffsetMinutes("+5:"));
+    }
+
+    @Test
+    public void offsetsAreFormattedInServiceFormat() {
+
+        assertEquals("+5:30", TimeZoneUtils.formatOffset(330));
+        assertEquals("-3:00", TimeZoneUtils.formatOffset(-180));
+        assertEquals("0:00", TimeZoneUtils.formatOffset(0));
+        assertEquals("-0:30", TimeZoneUtils.formatOffset(-30));
+        assertEquals("+0:05", TimeZoneUtils.formatOffset(5));
+    }
+
+    @Test
+    public void formattedOffsetsAreParsedBack() {
+
+        for (int offset = -12 * 60; offset <= 14 * 60; offset += 15) {
+            assertEquals(offset, TimeZoneUtils.parseOffsetMinutes(TimeZoneUtils.formatOffset(offset)));
+        }
+    }
+
+    @Test
+    public void zonesAreSharedByOffset() {
+
+        assertSame(TimeZoneUtils.forOffsetMinutes(330), TimeZoneUtils.forOffsetMinutes(330));
+        assertEquals(330, TimeZoneUtils.getOffsetMinutes(TimeZoneUtils.forOffsetMinutes(330)));
+        assertEquals(-180, TimeZoneUtils.getOffsetMinutes(TimeZoneUtils.forOffsetMinutes(-180)));
+        assertNull(TimeZoneUtils.forOffsetMinutes(TimeZoneUtils.NO_OFFSET));
+        assertEquals(TimeZoneUtils.NO_OFFSET, TimeZoneUtils.getOffsetMinutes(null));
+    }
+}
@@ -0,0 +1,29 @@
+package android.location;
+
+/**
+ * JVM shadow of Android location, keeps coordinates only.
+ */
+public class Location {
+
+    private double iLatitude;
+    private double iLongitude;
+
+    public Location(String aProvider) {
+    }
+
+    public double getLatitude() {
+        return iLatitude;
+    }
+
+    public void setLatitude(double aLatitude) {
+        iLatitude = aLatitude;
+    }
+
+    public double getLongitude() {
+        return iLongitude;
+    }
+
+    public void setLongitude(double aLongitude) {
+        iLongitude = aLongitude;
+    }
+}
@@ -0,0 +1,21 @@
+package android.support.v4.util;
+
+import java.util.Arrays;
+
+/**
+ * JVM shadow of support library objects compat, the same as on API 19+.
+ */
+public class ObjectsCompat {
+
+    public static boolean equals(Object aFirst, Object aSecond) {
+        return aFirst == null ? aSecond == null : aFirst.equals(aSecond);
+    }
+
+    public static int hashCode(Object aObject) {
+        return aObject == null ? 0 : aObject.hashCode();
+    }
+
+    public static int hash(Object... aValues) {
+        return Arrays.hashCode(aValues);
+    }
+}
@@ -0,0 +1,90 @@
+package com.develop.apachi.testtask.benchmark;
+
+import android.location.Location;
+
+import com.develop.apachi.testtask.database.converters.LocationConverter;
+import com.develop.apachi.testtask.model.User;
+import com.develop.apachi.testtask.utils.DateUtils;
+
+import org.joda.time.DateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-row conversions: location blobs, date formatting and dates of users.
+ * Dates are stored as epoch millis since schema 5, so there is no date converter anymore,
+ * its round trip is millis to date time of user and back.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ConverterBenchmark {
+
+    private static final double LATITUDE = 60.1699;
+    private static final double LONGITUDE = 24.9384;
+    private static final long DATE_MILLIS = 637_065_600_000L;
+
+    private Location iLocation;
+
+    /** Blob of location as stored by schema 1-3.*/
+    private byte[] iLocationBlob;
+
+    private DateTime iDateTime;
+    private User iUser;
+
+    @Setup
+    public void setUp() {
+
+        iLocation = new Location("benchmark");
+        iLocation.setLatitude(LATITUDE);
+        iLocation.setLongitude(LONGITUDE);
+
+        iLocationBlob = LocationConverter.fromLocation(iLocation);
+
+        iDateTime = new DateTime(DATE_MILLIS);
+        iUser = new User.Builder()
+                .setUserName("benchmark")
+                .setBirthDateMillis(DATE_MILLIS)
+                .build();
+    }
+
+    @Benchmark
+    public byte[] locationFromLocation() {
+
+        return LocationConverter.fromLocation(iLocation);
+    }
+
+    @Benchmark
+    public Location locationFromBlob() {
+
+        return LocationConverter.fromBlob(iLocationBlob);
+    }
+
+    @Benchmark
+    public String dateFromDateTime() {
+
+        return DateUtils.fromDateTime(iDateTime);
+    }
+
+    @Benchmark
+    public DateTime dateFromMillis() {
+
+        return iUser.getBirthDate();
+    }
+
+    @Benchmark
+    public long dateToMillis() {
+
+        return new User.Builder()
+                .setBirthDate(iDateTime)
+                .build()
+                .getBirthDateMillis();
+    }
+}
@@ -0,0 +1,85 @@
+package com.develop.apachi.testtask.benchmark;
+
+import com.develop.apachi.testtask.model.User;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building of users, it is done for every parsed row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class UserBuilderBenchmark {
+
+    private User iUser;
+
+    @Setup
+    public void setUp() {
+
+        iUser = buildUser();
+    }
+
+    /**
+     * User with all fields, primary key comes from uuid.
+     */
+    @Benchmark
+    public User buildUser() {
+
+        return new User.Builder()
+                .setUuid("155e77ee-ba6d-486f-95ce-0e0c0fb4b919")
+                .setIdType("SSN")
+                .setIdNumber("405-88-3636")
+                .setTitle("Ms")
+                .setFirstName("Ida")
+                .setLastName("Nieminen")
+                .setUserName("idanieminen512")
+                .setBirthDateMillis(637_065_600_000L)
+                .setAge(29)
+                .setRegistrationDateMillis(1_262_304_000_000L)
+                .setRegistrationAge(9)
+                .setPhoneNumber("(042)-555-0143")
+                .setCellNumber("(042)-555-0199")
+                .setThumbnailPicture("https://randomuser.me/api/portraits/thumb/women/5.jpg")
+                .setMediumPicture("https://randomuser.me/api/portraits/med/women/5.jpg")
+                .setLargePicture("https://randomuser.me/api/portraits/women/5.jpg")
+                .setStreet("9382 Mannerheimintie")
+                .setCity("Helsinki")
+                .setState("Uusimaa")
+                .setPostCode("00100")
+                .setCoordinates(60.1699, 24.9384)
+                .setTimeZoneOffset(120)
+                .setEmail("ida.nieminen@example.com")
+                .build();
+    }
+
+    /**
+     * User without uuid, primary key is hashed from id number and user name.
+     */
+    @Benchmark
+    public User buildUserWithHashedKey() {
+
+        return new User.Builder("405-88-3636")
+                .setUserName("idanieminen512")
+                .setFirstName("Ida")
+                .setLastName("Nieminen")
+                .build();
+    }
+
+    /**
+     * Copy of user marked with its page.
+     */
+    @Benchmark
+    public User withSource() {
+
+        return iUser.withSource(3, true);
+    }
+}
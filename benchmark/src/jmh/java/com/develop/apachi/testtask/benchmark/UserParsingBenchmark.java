@@ -0,0 +1,71 @@
+package com.develop.apachi.testtask.benchmark;
+
+import com.develop.apachi.testtask.model.User;
+import com.develop.apachi.testtask.model.adapters.UserDeserializer;
+import com.develop.apachi.testtask.model.adapters.UserTypeAdapter;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of page with 25 users: JSON tree deserializer against streaming type adapter.
+ * Every operation parses the whole page.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class UserParsingBenchmark {
+
+    /** Page of service response with all user sections.*/
+    private static final String PAGE_RESOURCE = "/users_page.json";
+
+    /** JSON array of users.*/
+    private String iUsers;
+
+    private Gson iTreeGson;
+    private Gson iStreamingGson;
+
+    @Setup
+    public void setUp() throws IOException {
+
+        try (Reader reader = new InputStreamReader(
+                UserParsingBenchmark.class.getResourceAsStream(PAGE_RESOURCE), StandardCharsets.UTF_8)) {
+
+            iUsers = new JsonParser().parse(reader).getAsJsonObject().get("results").toString();
+        }
+
+        iTreeGson = new GsonBuilder()
+                .registerTypeAdapter(User.class, new UserDeserializer())
+                .create();
+
+        iStreamingGson = new GsonBuilder()
+                .registerTypeAdapter(User.class, new UserTypeAdapter())
+                .create();
+    }
+
+    @Benchmark
+    public User[] treeDeserializer() {
+
+        return iTreeGson.fromJson(iUsers, User[].class);
+    }
+
+    @Benchmark
+    public User[] streamingTypeAdapter() {
+
+        return iStreamingGson.fromJson(iUsers, User[].class);
+    }
+}